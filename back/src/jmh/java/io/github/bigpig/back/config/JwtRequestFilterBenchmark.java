@@ -0,0 +1,67 @@
+package io.github.bigpig.back.config;
+
+import io.github.bigpig.back.util.JwtUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link JwtRequestFilter} for a bearer token. With {@code cacheSize = 0}
+ * every request verifies the HMAC and parses the claims, which is what the filter did
+ * before verified tokens were cached.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtRequestFilterBenchmark {
+
+    private static final String SECRET = "benchmarkSecretKeyThatIsLongEnoughForHS256Algorithm";
+
+    @Param({"0", "10000"})
+    long cacheSize;
+
+    private JwtRequestFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setUp() {
+        JwtUtils jwtUtils = new JwtUtils(SECRET, 3_600_000, cacheSize, new SimpleMeterRegistry(), Clock.systemUTC());
+        filter = new JwtRequestFilter(jwtUtils);
+        String token = jwtUtils.generateJwtToken(User.withUsername("alice")
+                .password("secret")
+                .roles("USER")
+                .build());
+        request = new MockHttpServletRequest("GET", "/bp-invest/api/v1/main-info");
+        request.addHeader("Authorization", "Bearer " + token);
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public void authenticate(Blackhole blackhole) throws Exception {
+        FilterChain chain = (req, res) -> blackhole.consume(SecurityContextHolder.getContext().getAuthentication());
+        filter.doFilter(request, response, chain);
+        SecurityContextHolder.clearContext();
+    }
+}
@@ -0,0 +1,64 @@
+package io.github.bigpig.back.util;
+
+import io.github.bigpig.back.dto.AnalyseDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of an AI analysis as the analysis service returns it, with escaped line breaks,
+ * against the regex parser it replaced. {@code paragraphs} pads the assessment the way a
+ * verbose model does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalysisParserBenchmark {
+
+    private static final String ANALYSE = "Overall Assessment: Apple remains a dominant force in the tech sector with "
+            + "strong revenue streams, high brand loyalty, and a resilient ecosystem.\\nWhile growth in hardware may be "
+            + "moderating, services and emerging product areas offer long-term potential.\\n"
+            + "Attractiveness Rating: 8/10 - Strong long-term hold\\n"
+            + "Pros: Strong brand loyalty, Diversified revenue streams, Robust financial position, "
+            + "High margins in services\\n"
+            + "Cons: High valuation, Hardware growth slowdown, Dependence on iPhone sales, Regulatory pressure\\n\\n";
+
+    private static final String PARAGRAPH = "Margins held up despite higher input costs, and the balance "
+            + "sheet leaves room for buybacks.\\n";
+
+    @Param({"0", "50"})
+    int paragraphs;
+
+    private final AnalysisParser analysisParser = new AnalysisParser();
+    private final RegexAnalysisParser regexAnalysisParser = new RegexAnalysisParser();
+    private String analyse;
+
+    @Setup
+    public void setUp() {
+        int assessmentEnd = ANALYSE.indexOf("Attractiveness Rating:");
+        analyse = ANALYSE.substring(0, assessmentEnd) + PARAGRAPH.repeat(paragraphs) + ANALYSE.substring(assessmentEnd);
+    }
+
+    @Benchmark
+    public AnalyseDto parseAnalyse() {
+        return analysisParser.parseAnalyse(analyse);
+    }
+
+    @Benchmark
+    public AnalyseDto parseAnalyseRegex() {
+        return regexAnalysisParser.parseAnalyse(analyse);
+    }
+}
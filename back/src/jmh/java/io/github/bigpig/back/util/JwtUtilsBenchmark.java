@@ -0,0 +1,66 @@
+package io.github.bigpig.back.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token generation and verification. {@code verifyUncached} pays for the HMAC check and
+ * the claims parsing on every call, {@code verifyCached} is the path of a returning client.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilsBenchmark {
+
+    private static final String SECRET = "benchmarkSecretKeyThatIsLongEnoughForHS256Algorithm";
+    private static final int EXPIRATION_MS = 3_600_000;
+
+    private final UserDetails user = User.withUsername("alice")
+            .password("secret")
+            .roles("USER", "ADMIN")
+            .build();
+
+    private JwtUtils uncached;
+    private JwtUtils cached;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        uncached = new JwtUtils(SECRET, EXPIRATION_MS, 0, new SimpleMeterRegistry(), Clock.systemUTC());
+        cached = new JwtUtils(SECRET, EXPIRATION_MS, 10_000, new SimpleMeterRegistry(), Clock.systemUTC());
+        token = cached.generateJwtToken(user);
+        cached.verify(token);
+    }
+
+    @Benchmark
+    public String generate() {
+        return uncached.generateJwtToken(user);
+    }
+
+    @Benchmark
+    public JwtUtils.VerifiedToken verifyUncached() {
+        return uncached.verify(token);
+    }
+
+    @Benchmark
+    public JwtUtils.VerifiedToken verifyCached() {
+        return cached.verify(token);
+    }
+}
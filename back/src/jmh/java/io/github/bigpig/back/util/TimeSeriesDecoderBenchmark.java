@@ -0,0 +1,85 @@
+package io.github.bigpig.back.util;
+
+import io.github.bigpig.back.models.PriceBar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of TIME_SERIES_DAILY responses the size of a compact (100 bars) and a full
+ * (about 25 years) output. The body has the layout, field order and number formatting of
+ * a recorded Alpha Vantage response, generated so the fixture does not bloat the repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeSeriesDecoderBenchmark {
+
+    @Param({"100", "6500"})
+    int bars;
+
+    private final TimeSeriesDecoder timeSeriesDecoder = new TimeSeriesDecoder();
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        body = recordedResponse(bars).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<PriceBar> decode() throws IOException {
+        return timeSeriesDecoder.decode(new ByteArrayInputStream(body), "IBM", null, bars);
+    }
+
+    static String recordedResponse(int bars) {
+        StringBuilder json = new StringBuilder(bars * 180);
+        json.append("""
+                {
+                    "Meta Data": {
+                        "1. Information": "Daily Prices (open, high, low, close) and Volumes",
+                        "2. Symbol": "IBM",
+                        "3. Last Refreshed": "2024-01-22",
+                        "4. Output Size": "Full size",
+                        "5. Time Zone": "US/Eastern"
+                    },
+                    "Time Series (Daily)": {
+                """);
+        LocalDate day = LocalDate.parse("2024-01-22");
+        double close = 172.83;
+        for (int i = 0; i < bars; i++) {
+            double open = close * (1 + Math.sin(i) * 0.01);
+            json.append(String.format(Locale.ROOT, """
+                            "%s": {
+                                "1. open": "%.4f",
+                                "2. high": "%.4f",
+                                "3. low": "%.4f",
+                                "4. close": "%.4f",
+                                "5. volume": "%d"
+                            }%s
+                    """, day, open, Math.max(open, close) * 1.006, Math.min(open, close) * 0.994, close,
+                    4_000_000 + (i * 7919) % 3_000_000, i + 1 < bars ? "," : ""));
+            close = open;
+            day = day.minusDays(day.getDayOfWeek().getValue() == 1 ? 3 : 1);
+        }
+        return json.append("    }\n}\n").toString();
+    }
+}
@@ -3,12 +3,18 @@ package io.github.bigpig.back;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Clock;
 
 /**
  * Main entry point for the REST API application.
  */
 @SpringBootApplication
+@EnableScheduling
 public class RestApiApplication {
 
 	/**
@@ -19,7 +25,17 @@ public class RestApiApplication {
 	}
 
 	@Bean
-	public RestClient restClientBean() {
-		return RestClient.create();
+	public RestClient restClientBean(ClientHttpRequestFactory requestFactory) {
+		return RestClient.builder().requestFactory(requestFactory).build();
+	}
+
+	@Bean
+	public RestTemplate restTemplate(ClientHttpRequestFactory requestFactory) {
+		return new RestTemplate(requestFactory);
+	}
+
+	@Bean
+	public Clock clock() {
+		return Clock.systemUTC();
 	}
 }
@@ -0,0 +1,91 @@
+package io.github.bigpig.back.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Executors for blocking upstream calls and chart stream sends. The execution mode
+ * follows {@code spring.threads.virtual.enabled}, which also switches Tomcat request
+ * handling to virtual threads.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    public static final String IO_EXECUTOR = "ioExecutor";
+    public static final String STREAM_EXECUTOR = "streamExecutor";
+
+    /**
+     * Pool for the upstream calls of asynchronous requests and batch fan-out, which the
+     * request thread does not run itself. A full queue rejects the call rather than running
+     * it on the submitting request thread, and the caller is answered with 503.
+     */
+    @Bean(name = IO_EXECUTOR)
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public AsyncTaskExecutor ioExecutor(
+            @Value("${app.io-executor.pool-size:16}") int poolSize,
+            @Value("${app.io-executor.queue-capacity:256}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("io-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
+    /**
+     * One virtual thread per asynchronous request's upstream call; beyond the limit calls
+     * are rejected instead of blocking the submitting request thread.
+     */
+    @Bean(name = IO_EXECUTOR)
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public AsyncTaskExecutor virtualIoExecutor(
+            @Value("${app.io-executor.virtual-concurrency-limit:1024}") int concurrencyLimit) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("io-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(concurrencyLimit);
+        executor.setRejectTasksWhenLimitReached(true);
+        return executor;
+    }
+
+    /**
+     * Pool for the blocking sends of chart streams, kept apart from upstream calls. A full
+     * queue rejects the send so that it never runs on the thread that stored the prices.
+     */
+    @Bean(name = STREAM_EXECUTOR)
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public AsyncTaskExecutor streamExecutor(
+            @Value("${app.stream-executor.pool-size:8}") int poolSize,
+            @Value("${app.stream-executor.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("stream-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
+    /**
+     * One virtual thread per chart stream send; beyond the limit sends are rejected
+     * instead of blocking the publishing thread.
+     */
+    @Bean(name = STREAM_EXECUTOR)
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public AsyncTaskExecutor virtualStreamExecutor(
+            @Value("${app.stream-executor.virtual-concurrency-limit:1024}") int concurrencyLimit) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("stream-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(concurrencyLimit);
+        executor.setRejectTasksWhenLimitReached(true);
+        return executor;
+    }
+}
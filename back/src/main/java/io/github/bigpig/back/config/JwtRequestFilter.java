@@ -27,27 +27,26 @@ public class JwtRequestFilter extends OncePerRequestFilter {
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         String authHeader = request.getHeader("Authorization");
-        String username = null;
-        String jwtToken = null;
+        JwtUtils.VerifiedToken token = null;
 
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            jwtToken = authHeader.substring(7);
             try {
-                username = jwtUtils.getUserNameFromJwtToken(jwtToken);
+                token = jwtUtils.verify(authHeader.substring(7));
             } catch (ExpiredJwtException e) {
                 log.error("Token's lifetime has expired");
                 throw new TokenExpiredException("Token's lifetime has expired");
             }
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+        if (token != null && token.username() != null
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
             UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken = new UsernamePasswordAuthenticationToken(
-                    username,
+                    token.username(),
                     null,
-                    jwtUtils.getRolesFromToken(jwtToken).stream().map(SimpleGrantedAuthority::new).toList()
+                    token.roles().stream().map(SimpleGrantedAuthority::new).toList()
             );
             SecurityContextHolder.getContext().setAuthentication(usernamePasswordAuthenticationToken);
-            log.info("Authenticated user: {}", username);
+            log.debug("Authenticated user: {}", token.username());
 
         }
 
@@ -1,6 +1,8 @@
 package io.github.bigpig.back.config;
 
+import io.github.bigpig.back.resilience.DeadlineFilter;
 import io.github.bigpig.back.services.UserService;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -55,6 +57,8 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .authorizeHttpRequests(auth -> auth
+                        // Async dispatches resume a request that was already authorized, e.g. the chart stream
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(
                                 "/api/auth/**",
                                 "/swagger-ui/**",
@@ -63,7 +67,8 @@ public class SecurityConfig {
                                 "/swagger-resources",
                                 "/webjars/**",
                                 "/configuration/ui",
-                                "/configuration/security"
+                                "/configuration/security",
+                                "/actuator/health"
                         ).permitAll().anyRequest().authenticated()
                 )
                 .sessionManagement(session -> session
@@ -82,7 +87,8 @@ public class SecurityConfig {
                 "http://localhost:9002"
         ));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
-        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "Accept"));
+        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "Accept",
+                DeadlineFilter.TIMEOUT_HEADER));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
 
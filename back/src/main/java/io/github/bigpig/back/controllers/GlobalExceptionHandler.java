@@ -2,6 +2,9 @@ package io.github.bigpig.back.controllers;
 
 import io.github.bigpig.back.dto.ExceptionDto;
 import io.github.bigpig.back.exceptions.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -12,50 +15,75 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 @Slf4j
 @RestControllerAdvice
+@RequiredArgsConstructor
 public class GlobalExceptionHandler {
 
+    public static final String ERRORS_METRIC = "api.errors";
+
+    private final MeterRegistry meterRegistry;
+
     @ExceptionHandler(EmailAlreadyExistsException.class)
     public ResponseEntity<ExceptionDto> handleException(EmailAlreadyExistsException ex) {
         log.error(ex.getMessage());
-        return new ResponseEntity<>(new ExceptionDto(ex.getMessage(),
-                ErrorCodes.EMAIL_ALREADY_EXISTS.toString()), HttpStatus.CONFLICT);
+        return error(ex, ErrorCodes.EMAIL_ALREADY_EXISTS, HttpStatus.CONFLICT);
     }
 
     @ExceptionHandler(UserAlreadyExistsException.class)
     public ResponseEntity<ExceptionDto> handleException(UserAlreadyExistsException ex) {
         log.error(ex.getMessage());
-        return new ResponseEntity<>(new ExceptionDto(ex.getMessage(),
-                ErrorCodes.USER_ALREADY_EXISTS.toString()), HttpStatus.CONFLICT);
+        return error(ex, ErrorCodes.USER_ALREADY_EXISTS, HttpStatus.CONFLICT);
     }
 
     @ExceptionHandler(UsernameNotFoundException.class)
     public ResponseEntity<ExceptionDto> handleException(UsernameNotFoundException ex) {
         log.error(ex.getMessage());
-        return new ResponseEntity<>(new ExceptionDto(ex.getMessage(),
-                ErrorCodes.USER_NOT_FOUND.toString()), HttpStatus.NOT_FOUND);
+        return error(ex, ErrorCodes.USER_NOT_FOUND, HttpStatus.NOT_FOUND);
     }
 
     @ExceptionHandler(FetchDataException.class)
     public ResponseEntity<ExceptionDto> handleException(FetchDataException ex) {
         log.error(ex.getMessage());
-        return new ResponseEntity<>(new ExceptionDto(ex.getMessage(),
-                ErrorCodes.DATA_NOT_FETCHED.toString()), HttpStatus.INTERNAL_SERVER_ERROR);
+        return error(ex, ErrorCodes.DATA_NOT_FETCHED, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<ExceptionDto> handleException(InvalidRequestException ex) {
+        log.error(ex.getMessage());
+        return error(ex, ErrorCodes.INVALID_REQUEST, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(UpstreamUnavailableException.class)
+    public ResponseEntity<ExceptionDto> handleException(UpstreamUnavailableException ex) {
+        log.warn(ex.getMessage());
+        return error(ex, ErrorCodes.UPSTREAM_UNAVAILABLE, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler(DeadlineExceededException.class)
+    public ResponseEntity<ExceptionDto> handleException(DeadlineExceededException ex) {
+        log.warn(ex.getMessage());
+        return error(ex, ErrorCodes.DEADLINE_EXCEEDED, HttpStatus.GATEWAY_TIMEOUT);
     }
 
     @ExceptionHandler(BadCredentialsException.class)
     public ResponseEntity<ExceptionDto> handleException(BadCredentialsException ex) {
         log.error(ex.getMessage());
         if (ex instanceof LoginNotFoundException) {
-            return new ResponseEntity<>(new ExceptionDto(ex.getMessage(),
-                    ErrorCodes.USER_NOT_FOUND.toString()), HttpStatus.NOT_FOUND);
+            return error(ex, ErrorCodes.USER_NOT_FOUND, HttpStatus.NOT_FOUND);
         }
-        return new ResponseEntity<>(new ExceptionDto(ex.getMessage(),
-                ErrorCodes.INVALID_PASSWORD.toString()), HttpStatus.NOT_FOUND);
+        return error(ex, ErrorCodes.INVALID_PASSWORD, HttpStatus.NOT_FOUND);
     }
 
     @ExceptionHandler(TokenExpiredException.class)
     public ResponseEntity<ExceptionDto> handleException(TokenExpiredException ex) {
-        return new ResponseEntity<>(new ExceptionDto(ex.getMessage(),
-                ErrorCodes.TOKEN_EXPIRED.toString()), HttpStatus.UNAUTHORIZED);
+        return error(ex, ErrorCodes.TOKEN_EXPIRED, HttpStatus.UNAUTHORIZED);
+    }
+
+    private ResponseEntity<ExceptionDto> error(Exception ex, ErrorCodes code, HttpStatus status) {
+        Counter.builder(ERRORS_METRIC)
+                .description("Error responses by error code")
+                .tag("code", code.toString())
+                .register(meterRegistry)
+                .increment();
+        return new ResponseEntity<>(new ExceptionDto(ex.getMessage(), code.toString()), status);
     }
 }
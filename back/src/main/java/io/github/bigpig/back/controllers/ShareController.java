@@ -1,23 +1,50 @@
 package io.github.bigpig.back.controllers;
 
 import io.github.bigpig.back.dto.AnalyseDto;
+import io.github.bigpig.back.dto.BatchSection;
 import io.github.bigpig.back.dto.ExceptionDto;
 import io.github.bigpig.back.dto.PointDto;
+import io.github.bigpig.back.dto.TickerInfoDto;
+import io.github.bigpig.back.exceptions.DeadlineExceededException;
 import io.github.bigpig.back.services.AnalyseService;
+import io.github.bigpig.back.services.BatchService;
+import io.github.bigpig.back.services.PriceStreamService;
 import io.github.bigpig.back.services.PricesService;
 import io.github.bigpig.back.services.ShareService;
 import io.github.bigpig.back.dto.ShareDto;
+import io.github.bigpig.back.models.PriceSeries;
+import io.github.bigpig.back.resilience.Deadline;
+import io.github.bigpig.back.util.ETags;
+import io.github.bigpig.back.util.MarketCalendar;
+import io.github.bigpig.back.util.ResponseBodyCache;
+import io.github.bigpig.back.util.TickerPopularity;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.annotation.Secured;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("bp-invest/api/v1")
@@ -26,9 +53,18 @@ import java.util.List;
 @Slf4j
 public class ShareController {
 
+    // Overviews and analyses change a few times a day, so clients may reuse them briefly
+    private static final CacheControl SLOW_CHANGING = CacheControl.maxAge(Duration.ofMinutes(5)).cachePrivate();
+    // A new bar can land after any poll, so clients revalidate with If-None-Match every time
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     private final ShareService shareService;
     private final PricesService pointService;
     private final AnalyseService analyseService;
+    private final BatchService batchService;
+    private final PriceStreamService priceStreamService;
+    private final TickerPopularity tickerPopularity;
+    private final ResponseBodyCache responseBodyCache;
 
     @Operation(
             summary = "Get method for getting the main multipliers",
@@ -47,6 +83,7 @@ public class ShareController {
                             description = "Successfully retrieved main info",
                             content = @Content(
                                     mediaType = "application/json",
+                                    schema = @Schema(implementation = ShareDto.class),
                                     examples = @ExampleObject(
                                             value = """
                                                     {
@@ -62,6 +99,10 @@ public class ShareController {
                                     )
                             )
                     ),
+                    @ApiResponse(
+                            responseCode = "304",
+                            description = "Unchanged since the ETag sent in If-None-Match"
+                    ),
                     @ApiResponse(
                             responseCode = "500",
                             description = "Internal server error",
@@ -70,9 +111,15 @@ public class ShareController {
             }
     )
     @GetMapping("/main-info")
-    public ShareDto getMainMultipliers(@RequestParam String ticker) {
-        log.info("getMainMultipliers - {}", ticker);
-        return shareService.getMainInfo(ticker);
+    public ResponseEntity<byte[]> getMainMultipliers(
+            @RequestParam String ticker,
+            @Parameter(hidden = true) @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+            String acceptEncoding) {
+        log.debug("getMainMultipliers - {}", ticker);
+        ShareDto info = shareService.getMainInfo(ticker);
+        tickerPopularity.record(ticker);
+        return responseBodyCache.render(ResponseEntity.ok().cacheControl(SLOW_CHANGING),
+                "main-info:" + ticker.toUpperCase(Locale.ROOT), ETags.of(info), () -> info, acceptEncoding);
     }
 
     @Operation(
@@ -84,6 +131,22 @@ public class ShareController {
                             description = "Stock ticker symbol",
                             example = "AAPL",
                             required = true
+                    ),
+                    @Parameter(
+                            name = "from",
+                            description = "First day of the range, inclusive (ISO date)",
+                            example = "2024-01-01"
+                    ),
+                    @Parameter(
+                            name = "to",
+                            description = "Last day of the range, inclusive (ISO date)",
+                            example = "2024-12-31"
+                    ),
+                    @Parameter(
+                            name = "maxPoints",
+                            description = "Maximum number of points to return, the series is downsampled "
+                                    + "with LTTB when it is longer (at least 3)",
+                            example = "500"
                     )
             },
             responses = {
@@ -92,6 +155,7 @@ public class ShareController {
                             description = "Successfully retrieved price data",
                             content = @Content(
                                     mediaType = "application/json",
+                                    array = @ArraySchema(schema = @Schema(implementation = PointDto.class)),
                                     examples = @ExampleObject(
                                             value = """
                     [
@@ -108,17 +172,137 @@ public class ShareController {
                                     )
                             )
                     ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid range or maxPoints",
+                            content = @Content(schema = @Schema(implementation = ExceptionDto.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "304",
+                            description = "Unchanged since the ETag sent in If-None-Match"
+                    ),
                     @ApiResponse(
                             responseCode = "500",
                             description = "Internal server error",
                             content = @Content(schema = @Schema(implementation = ExceptionDto.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "503",
+                            description = "Alpha Vantage unavailable",
+                            content = @Content(schema = @Schema(implementation = ExceptionDto.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "504",
+                            description = "The prices took longer than the request deadline",
+                            content = @Content(schema = @Schema(implementation = ExceptionDto.class))
                     )
             }
     )
     @GetMapping("/chart-info")
-    public List<PointDto> getCharInfo(@RequestParam String ticker) {
-        log.info("getCharInfo - {}", ticker);
-        return pointService.getPrices(ticker);
+    public DeferredResult<ResponseEntity<byte[]>> getCharInfo(
+            @RequestParam String ticker,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer maxPoints,
+            @Parameter(hidden = true) @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+            String acceptEncoding) {
+        log.debug("getCharInfo - {}", ticker);
+        String key = String.join(":", "chart-info", ticker.toUpperCase(Locale.ROOT),
+                String.valueOf(from), String.valueOf(to), String.valueOf(maxPoints));
+        return defer(pointService.getPricesAsync(ticker, from, to, maxPoints),
+                String.format("Timed out loading prices for ticker: %s", ticker), series -> {
+                    tickerPopularity.record(ticker);
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                            .cacheControl(REVALIDATE);
+                    if (!series.isEmpty()) {
+                        response.lastModified(series.lastDate()
+                                .atTime(MarketCalendar.MARKET_CLOSE)
+                                .atZone(MarketCalendar.MARKET_ZONE));
+                    }
+                    return responseBodyCache.render(response, key, ETags.of(series),
+                            () -> PointDto.fromSeries(series), acceptEncoding);
+                });
+    }
+
+    @Operation(
+            summary = "Post method for repairing stored prices",
+            description = """
+                Refetches the price history of the ticker and corrects every stored bar that differs
+                from it. The full history is only fetched when enabled for the Alpha Vantage key, otherwise
+                the last 100 sessions are. Each repair spends upstream quota, so it is reserved for admins.
+            """,
+            parameters = {
+                    @Parameter(
+                            name = "ticker",
+                            description = "Stock ticker symbol",
+                            example = "AAPL",
+                            required = true
+                    )
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Repaired price data"
+                    ),
+                    @ApiResponse(
+                            responseCode = "403",
+                            description = "The caller is not an admin"
+                    ),
+                    @ApiResponse(
+                            responseCode = "500",
+                            description = "Internal server error",
+                            content = @Content(schema = @Schema(implementation = ExceptionDto.class))
+                    )
+            }
+    )
+    @Secured("ROLE_ADMIN")
+    @PostMapping("/chart-info/repair")
+    public List<PointDto> repairChartInfo(@RequestParam String ticker) {
+        log.debug("repairChartInfo - {}", ticker);
+        return PointDto.fromSeries(pointService.repairPrices(ticker));
+    }
+
+    @Operation(
+            summary = "Get method for streaming chart updates",
+            description = """
+                Opens a server-sent events stream that pushes a `prices` event whenever new or corrected
+                points of one of the tickers are stored. Load the chart with `/chart-info` first and apply
+                the pushed points on top of it. A client that falls too far behind is disconnected and
+                should reload the chart before subscribing again.
+            """,
+            parameters = {
+                    @Parameter(
+                            name = "tickers",
+                            description = "Comma separated stock ticker symbols",
+                            example = "AAPL,MSFT",
+                            required = true
+                    )
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Event stream opened",
+                            content = @Content(
+                                    mediaType = MediaType.TEXT_EVENT_STREAM_VALUE,
+                                    examples = @ExampleObject(
+                                            value = """
+                    event:prices
+                    data:{"ticker":"AAPL","points":[{"day":"2024-01-22","val":155.0}]}
+                    """
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "No tickers or too many tickers",
+                            content = @Content(schema = @Schema(implementation = ExceptionDto.class))
+                    )
+            }
+    )
+    @GetMapping(value = "/chart-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChartInfo(@RequestParam List<String> tickers) {
+        log.debug("streamChartInfo - {}", tickers);
+        return priceStreamService.subscribe(tickers);
     }
 
     @Operation(
@@ -146,6 +330,7 @@ public class ShareController {
                             description = "Successfully received AI analysis data",
                             content =  @Content(
                                     mediaType = "Application/Json",
+                                    schema = @Schema(implementation = AnalyseDto.class),
                                     examples = @ExampleObject(
                                             value = """
                                                 {
@@ -166,16 +351,148 @@ public class ShareController {
                                     )
                             )
                     ),
+                    @ApiResponse(
+                            responseCode = "304",
+                            description = "Unchanged since the ETag sent in If-None-Match"
+                    ),
                     @ApiResponse(
                             responseCode = "500",
                             description = "Internal server error",
                             content = @Content(schema = @Schema(implementation = ExceptionDto.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "503",
+                            description = "AI service unavailable",
+                            content = @Content(schema = @Schema(implementation = ExceptionDto.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "504",
+                            description = "The analysis took longer than the request deadline",
+                            content = @Content(schema = @Schema(implementation = ExceptionDto.class))
                     )
             }
     )
     @GetMapping("/ai-analyse")
-    public AnalyseDto getAiAnalyse(@RequestParam String ticker) {
-        log.info("getAiAnalyse - {}", ticker);
-        return analyseService.getAnalyse(ticker);
+    public DeferredResult<ResponseEntity<byte[]>> getAiAnalyse(
+            @RequestParam String ticker,
+            @Parameter(hidden = true) @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false)
+            String acceptEncoding) {
+        log.debug("getAiAnalyse - {}", ticker);
+        return defer(analyseService.getAnalyseAsync(ticker),
+                String.format("Timed out waiting for the analyse of %s", ticker), analyse -> {
+                    tickerPopularity.record(ticker);
+                    return responseBodyCache.render(ResponseEntity.ok().cacheControl(SLOW_CHANGING),
+                            "ai-analyse:" + ticker.toUpperCase(Locale.ROOT), ETags.of(analyse), () -> analyse,
+                            acceptEncoding);
+                });
+    }
+
+    @Operation(
+            summary = "Get method for loading several tickers at once",
+            description = """
+                Loads the requested sections for every ticker in parallel and returns one document.
+                A section that fails for a ticker is reported in its `errors` map while the other
+                sections and tickers are still returned.
+            """,
+            parameters = {
+                    @Parameter(
+                            name = "tickers",
+                            description = "Comma separated stock ticker symbols",
+                            example = "AAPL,MSFT,GOOGL",
+                            required = true
+                    ),
+                    @Parameter(
+                            name = "sections",
+                            description = "Sections to load: MAIN_INFO, CHART_INFO, AI_ANALYSE (all by default)",
+                            example = "MAIN_INFO,CHART_INFO"
+                    ),
+                    @Parameter(
+                            name = "maxPoints",
+                            description = "Maximum number of chart points per ticker (at least 3)",
+                            example = "100"
+                    )
+            },
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Batch loaded, possibly with per-ticker errors",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    examples = @ExampleObject(
+                                            value = """
+                    [
+                      {
+                        "ticker": "AAPL",
+                        "mainInfo": {
+                          "ticker": "AAPL",
+                          "name": "Apple Inc.",
+                          "P/E": "28.7"
+                        },
+                        "chart": [
+                          {
+                            "day": "2024-01-16",
+                            "val": 186.50
+                          }
+                        ]
+                      },
+                      {
+                        "ticker": "MSFT",
+                        "errors": {
+                          "MAIN_INFO": {
+                            "message": "Failed to fetch share data for ticker: MSFT",
+                            "errorCode": "DATA_NOT_FETCHED"
+                          }
+                        }
+                      }
+                    ]
+                    """
+                                    )
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "No tickers, too many tickers or invalid maxPoints",
+                            content = @Content(schema = @Schema(implementation = ExceptionDto.class))
+                    )
+            }
+    )
+    @GetMapping("/batch-info")
+    public List<TickerInfoDto> getBatchInfo(
+            @RequestParam List<String> tickers,
+            @RequestParam(required = false) Set<BatchSection> sections,
+            @RequestParam(required = false) Integer maxPoints) {
+        log.debug("getBatchInfo - {} {}", tickers, sections);
+        List<TickerInfoDto> batch = batchService.getBatch(tickers, sections, maxPoints);
+        batch.stream()
+                .filter(info -> info.errors() == null || info.errors().isEmpty())
+                .forEach(info -> tickerPopularity.record(info.ticker()));
+        return batch;
+    }
+
+    /**
+     * Answers once {@code value} completes, releasing the servlet thread meanwhile. The request
+     * times out at its deadline; then, or when the async request fails, the future is cancelled
+     * so that an upstream call no other request waits for is abandoned. Tomcat does not report
+     * a client that hangs up while waiting, so such a call runs until the deadline.
+     */
+    private <T> DeferredResult<ResponseEntity<byte[]>> defer(CompletableFuture<T> value, String timeoutMessage,
+                                                             Function<T, ResponseEntity<byte[]>> render) {
+        Deadline deadline = Deadline.current();
+        DeferredResult<ResponseEntity<byte[]>> response = new DeferredResult<>(
+                deadline == null ? null : Math.max(1, deadline.remaining().toMillis()));
+        response.onTimeout(() -> {
+            response.setErrorResult(new DeadlineExceededException(timeoutMessage));
+            value.cancel(false);
+        });
+        response.onError(ex -> value.cancel(false));
+        value.thenApply(render)
+                .whenComplete((body, ex) -> {
+                    if (ex != null) {
+                        response.setErrorResult(ex instanceof CompletionException ? ex.getCause() : ex);
+                    } else {
+                        response.setResult(body);
+                    }
+                });
+        return response;
     }
 }
@@ -0,0 +1,7 @@
+package io.github.bigpig.back.dto;
+
+public enum BatchSection {
+    MAIN_INFO,
+    CHART_INFO,
+    AI_ANALYSE
+}
@@ -1,8 +1,21 @@
 package io.github.bigpig.back.dto;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import io.github.bigpig.back.models.PriceSeries;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public record PointDto(
     @JsonProperty("day") String date,
     @JsonProperty("val") Double price
-) {}
+) {
+
+    public static List<PointDto> fromSeries(PriceSeries series) {
+        List<PointDto> points = new ArrayList<>(series.size());
+        for (int i = 0; i < series.size(); i++) {
+            points.add(new PointDto(series.dateAt(i).toString(), series.priceAt(i)));
+        }
+        return points;
+    }
+}
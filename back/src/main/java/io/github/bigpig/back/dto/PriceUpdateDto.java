@@ -0,0 +1,14 @@
+package io.github.bigpig.back.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * New or corrected points of a ticker, published when a sync stores them and pushed
+ * to the chart stream subscribers.
+ */
+public record PriceUpdateDto(
+        @JsonProperty("ticker") String ticker,
+        @JsonProperty("points") List<PointDto> points
+) {}
@@ -0,0 +1,16 @@
+package io.github.bigpig.back.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Map;
+
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public record TickerInfoDto(
+        @JsonProperty("ticker") String ticker,
+        @JsonProperty("mainInfo") ShareDto mainInfo,
+        @JsonProperty("chart") List<PointDto> chart,
+        @JsonProperty("analyse") AnalyseDto analyse,
+        @JsonProperty("errors") Map<BatchSection, ExceptionDto> errors
+) {}
@@ -0,0 +1,7 @@
+package io.github.bigpig.back.exceptions;
+
+public class DeadlineExceededException extends UpstreamUnavailableException {
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
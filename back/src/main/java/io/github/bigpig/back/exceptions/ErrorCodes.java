@@ -6,5 +6,8 @@ public enum ErrorCodes {
     DATA_NOT_FETCHED,
     INVALID_PASSWORD,
     TOKEN_EXPIRED,
-    EMAIL_ALREADY_EXISTS
+    EMAIL_ALREADY_EXISTS,
+    INVALID_REQUEST,
+    UPSTREAM_UNAVAILABLE,
+    DEADLINE_EXCEEDED
 }
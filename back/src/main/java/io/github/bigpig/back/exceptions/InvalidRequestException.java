@@ -0,0 +1,7 @@
+package io.github.bigpig.back.exceptions;
+
+public class InvalidRequestException extends RuntimeException {
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
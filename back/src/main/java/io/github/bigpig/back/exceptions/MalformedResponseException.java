@@ -0,0 +1,7 @@
+package io.github.bigpig.back.exceptions;
+
+public class MalformedResponseException extends RuntimeException {
+    public MalformedResponseException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,7 @@
+package io.github.bigpig.back.exceptions;
+
+public class UpstreamUnavailableException extends RuntimeException {
+    public UpstreamUnavailableException(String message) {
+        super(message);
+    }
+}
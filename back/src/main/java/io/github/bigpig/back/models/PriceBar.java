@@ -0,0 +1,62 @@
+package io.github.bigpig.back.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDate;
+
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "price_bars")
+@IdClass(PriceBarId.class)
+public class PriceBar implements Persistable<PriceBarId> {
+
+    @Id
+    @Column(name = "ticker")
+    private String ticker;
+
+    @Id
+    @Column(name = "trade_date")
+    private LocalDate tradeDate;
+
+    @Column(name = "high")
+    private double high;
+
+    @Column(name = "low")
+    private double low;
+
+    // Bars parsed from the upstream are always new rows, so saveAll can insert
+    // them directly instead of issuing a merge select per bar.
+    @Transient
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private boolean persisted;
+
+    public PriceBar(String ticker, LocalDate tradeDate, double high, double low) {
+        this.ticker = ticker;
+        this.tradeDate = tradeDate;
+        this.high = high;
+        this.low = low;
+    }
+
+    @Override
+    public PriceBarId getId() {
+        return new PriceBarId(ticker, tradeDate);
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+}
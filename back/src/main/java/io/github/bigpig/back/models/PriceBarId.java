@@ -0,0 +1,17 @@
+package io.github.bigpig.back.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceBarId implements Serializable {
+
+    private String ticker;
+    private LocalDate tradeDate;
+}
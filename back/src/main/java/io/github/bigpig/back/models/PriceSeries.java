@@ -0,0 +1,157 @@
+package io.github.bigpig.back.models;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalDouble;
+
+/**
+ * Immutable daily price history in columnar form: trade dates as epoch days and
+ * mid prices rounded to cents, both in chronological order.
+ */
+public final class PriceSeries {
+
+    public static final PriceSeries EMPTY = new PriceSeries(new int[0], new double[0]);
+
+    private final int[] days;
+    private final double[] prices;
+
+    private PriceSeries(int[] days, double[] prices) {
+        this.days = days;
+        this.prices = prices;
+    }
+
+    public static PriceSeries of(int[] days, double[] prices) {
+        if (days.length != prices.length) {
+            throw new IllegalArgumentException("Days and prices must have the same length");
+        }
+        for (int i = 1; i < days.length; i++) {
+            if (days[i] <= days[i - 1]) {
+                throw new IllegalArgumentException("Days must be strictly increasing");
+            }
+        }
+        return new PriceSeries(days.clone(), prices.clone());
+    }
+
+    public static PriceSeries fromBars(List<PriceBar> bars) {
+        return EMPTY.append(bars);
+    }
+
+    public static double midPrice(double high, double low) {
+        return Math.round((high + low) * 50.0) / 100.0;
+    }
+
+    /**
+     * Returns a series extended with the bars dated after the last day of this one.
+     */
+    public PriceSeries append(List<PriceBar> bars) {
+        int last = days.length == 0 ? Integer.MIN_VALUE : days[days.length - 1];
+        int[] newDays = Arrays.copyOf(days, days.length + bars.size());
+        double[] newPrices = Arrays.copyOf(prices, prices.length + bars.size());
+        int size = days.length;
+        for (PriceBar bar : bars) {
+            int day = (int) bar.getTradeDate().toEpochDay();
+            if (day <= last) {
+                continue;
+            }
+            newDays[size] = day;
+            newPrices[size] = midPrice(bar.getHigh(), bar.getLow());
+            last = day;
+            size++;
+        }
+        if (size == days.length) {
+            return this;
+        }
+        return new PriceSeries(Arrays.copyOf(newDays, size), Arrays.copyOf(newPrices, size));
+    }
+
+    /**
+     * Returns a series with {@code bars} merged in by day. A bar on a day the series already
+     * has replaces its price, so upstream corrections win. Bars must be in chronological order.
+     */
+    public PriceSeries merge(List<PriceBar> bars) {
+        if (bars.isEmpty()) {
+            return this;
+        }
+        int[] newDays = new int[days.length + bars.size()];
+        double[] newPrices = new double[newDays.length];
+        int i = 0;
+        int size = 0;
+        for (PriceBar bar : bars) {
+            int day = (int) bar.getTradeDate().toEpochDay();
+            while (i < days.length && days[i] < day) {
+                newDays[size] = days[i];
+                newPrices[size++] = prices[i++];
+            }
+            if (i < days.length && days[i] == day) {
+                i++;
+            }
+            if (size > 0 && newDays[size - 1] >= day) {
+                throw new IllegalArgumentException("Bars must be in chronological order");
+            }
+            newDays[size] = day;
+            newPrices[size++] = midPrice(bar.getHigh(), bar.getLow());
+        }
+        int rest = days.length - i;
+        System.arraycopy(days, i, newDays, size, rest);
+        System.arraycopy(prices, i, newPrices, size, rest);
+        size += rest;
+        return new PriceSeries(Arrays.copyOf(newDays, size), Arrays.copyOf(newPrices, size));
+    }
+
+    /**
+     * Returns the price on {@code date}, empty when the series has no bar that day.
+     */
+    public OptionalDouble priceOn(LocalDate date) {
+        int index = Arrays.binarySearch(days, (int) date.toEpochDay());
+        return index < 0 ? OptionalDouble.empty() : OptionalDouble.of(prices[index]);
+    }
+
+    /**
+     * Returns the bars between {@code from} and {@code to} inclusive, either bound may be null.
+     */
+    public PriceSeries slice(LocalDate from, LocalDate to) {
+        int start = from == null ? 0 : indexOf(from.toEpochDay(), false);
+        int end = to == null ? days.length : indexOf(to.toEpochDay(), true);
+        if (start == 0 && end == days.length) {
+            return this;
+        }
+        if (start >= end) {
+            return EMPTY;
+        }
+        return new PriceSeries(Arrays.copyOfRange(days, start, end), Arrays.copyOfRange(prices, start, end));
+    }
+
+    private int indexOf(long epochDay, boolean inclusiveEnd) {
+        int key = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, epochDay));
+        int index = Arrays.binarySearch(days, key);
+        if (index < 0) {
+            return -index - 1;
+        }
+        return inclusiveEnd ? index + 1 : index;
+    }
+
+    public int size() {
+        return days.length;
+    }
+
+    public boolean isEmpty() {
+        return days.length == 0;
+    }
+
+    public int epochDayAt(int index) {
+        return days[index];
+    }
+
+    public LocalDate dateAt(int index) {
+        return LocalDate.ofEpochDay(days[index]);
+    }
+
+    public double priceAt(int index) {
+        return prices[index];
+    }
+
+    public LocalDate lastDate() {
+        return days.length == 0 ? null : dateAt(days.length - 1);
+    }
+}
@@ -0,0 +1,13 @@
+package io.github.bigpig.back.repositories;
+
+import io.github.bigpig.back.models.PriceBar;
+import io.github.bigpig.back.models.PriceBarId;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PriceBarRepository extends CrudRepository<PriceBar, PriceBarId> {
+    List<PriceBar> findByTickerOrderByTradeDateAsc(String ticker);
+}
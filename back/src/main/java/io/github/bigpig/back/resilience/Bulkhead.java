@@ -0,0 +1,33 @@
+package io.github.bigpig.back.resilience;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the calls in flight to one upstream, so a slow upstream can hold at most
+ * {@code maxConcurrent} threads instead of all of them.
+ */
+class Bulkhead {
+
+    private final Semaphore permits;
+    private final Duration maxWait;
+
+    Bulkhead(int maxConcurrent, Duration maxWait) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxWait = maxWait;
+    }
+
+    boolean tryAcquire() {
+        try {
+            return permits.tryAcquire(Deadline.cap(maxWait).toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    void release() {
+        permits.release();
+    }
+}
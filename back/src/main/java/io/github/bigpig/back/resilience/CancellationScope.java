@@ -0,0 +1,72 @@
+package io.github.bigpig.back.resilience;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Lets another thread abort a running upstream call. The calling thread runs the call
+ * inside the scope and every HTTP request started there registers how to abort it, so
+ * {@link #cancel()} breaks off the exchange instead of waiting for an answer nobody reads.
+ */
+public final class CancellationScope {
+
+    private static final ThreadLocal<CancellationScope> CURRENT = new ThreadLocal<>();
+
+    private final List<Runnable> aborts = new ArrayList<>();
+    private boolean cancelled;
+
+    public <T> T call(Supplier<T> call) {
+        CancellationScope previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public void cancel() {
+        List<Runnable> started;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            started = List.copyOf(aborts);
+            aborts.clear();
+        }
+        started.forEach(Runnable::run);
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Ties a request started on this thread to the scope it runs in, if any. A request
+     * started after the scope was cancelled is aborted right away.
+     */
+    public static void register(Runnable abort) {
+        CancellationScope scope = CURRENT.get();
+        if (scope == null) {
+            return;
+        }
+        synchronized (scope) {
+            if (!scope.cancelled) {
+                scope.aborts.add(abort);
+                return;
+            }
+        }
+        abort.run();
+    }
+
+    public static boolean isCurrentCancelled() {
+        CancellationScope scope = CURRENT.get();
+        return scope != null && scope.isCancelled();
+    }
+}
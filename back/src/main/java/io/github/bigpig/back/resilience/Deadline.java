@@ -0,0 +1,106 @@
+package io.github.bigpig.back.resilience;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Point in time by which the client expects an answer. The deadline of a request is bound
+ * to the threads working on it, so every wait and upstream call made on its behalf can be
+ * cut to the time that is left instead of outlasting the client.
+ */
+public final class Deadline {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    // Never passes, yet stays close enough to nanoTime for the differences not to overflow
+    private static final long UNLIMITED_NANOS = Long.MAX_VALUE / 2;
+
+    private volatile long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public static Deadline after(Duration budget) {
+        return new Deadline(System.nanoTime() + budget.toNanos());
+    }
+
+    /**
+     * Deadline of work shared by several requests. It starts at the deadline of the request
+     * that started the work, unlimited when that one has none, and is moved out with
+     * {@link #extendTo} as other requests join.
+     */
+    public static Deadline shared(Deadline first) {
+        return new Deadline(first == null ? System.nanoTime() + UNLIMITED_NANOS : first.expiresAtNanos);
+    }
+
+    /**
+     * Moves the deadline out to {@code other} if that one is later, or lifts it when
+     * {@code other} is {@code null}. Only meant for {@link #shared} deadlines.
+     */
+    public synchronized void extendTo(Deadline other) {
+        long later = other == null ? System.nanoTime() + UNLIMITED_NANOS : other.expiresAtNanos;
+        if (later - expiresAtNanos > 0) {
+            expiresAtNanos = later;
+        }
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, expiresAtNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Binds the deadline to the current thread until the returned binding is closed.
+     */
+    Binding bind() {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    public <T> T call(Supplier<T> call) {
+        try (Binding ignored = bind()) {
+            return call.get();
+        }
+    }
+
+    /**
+     * The deadline of the request the current thread works for, {@code null} outside requests.
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    public static boolean isCurrentExpired() {
+        Deadline deadline = CURRENT.get();
+        return deadline != null && deadline.isExpired();
+    }
+
+    /**
+     * Shortens {@code timeout} to the time left before the current deadline, if any.
+     */
+    public static Duration cap(Duration timeout) {
+        Deadline deadline = CURRENT.get();
+        if (deadline == null) {
+            return timeout;
+        }
+        Duration remaining = deadline.remaining();
+        return remaining.compareTo(timeout) < 0 ? remaining : timeout;
+    }
+
+    interface Binding extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,76 @@
+package io.github.bigpig.back.resilience;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Starts the {@link Deadline} of every request as it arrives. The budget is the endpoint's
+ * default, which a client that gives up sooner can shorten with the
+ * {@value #TIMEOUT_HEADER} header, in milliseconds.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class DeadlineFilter extends OncePerRequestFilter {
+
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+    private final Duration defaultBudget;
+    private final Map<String, Duration> endpointBudgets;
+
+    public DeadlineFilter(@Value("${app.deadline.default:PT20S}") Duration defaultBudget,
+                          @Value("${app.deadline.chart-info:PT30S}") Duration chartInfoBudget,
+                          @Value("${app.deadline.ai-analyse:PT60S}") Duration aiAnalyseBudget,
+                          @Value("${app.deadline.batch-info:PT60S}") Duration batchInfoBudget) {
+        this.defaultBudget = defaultBudget;
+        this.endpointBudgets = Map.of(
+                "/chart-info", chartInfoBudget,
+                "/ai-analyse", aiAnalyseBudget,
+                "/batch-info", batchInfoBudget);
+    }
+
+    // A price stream stays open for as long as the client listens
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().endsWith("/chart-stream");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        try (Deadline.Binding ignored = Deadline.after(budget(request)).bind()) {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    Duration budget(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        Duration budget = endpointBudgets.entrySet().stream()
+                .filter(endpoint -> uri.endsWith(endpoint.getKey()))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(defaultBudget);
+        String timeout = request.getHeader(TIMEOUT_HEADER);
+        if (timeout == null) {
+            return budget;
+        }
+        try {
+            long millis = Long.parseLong(timeout.trim());
+            return millis > 0 && millis < budget.toMillis() ? Duration.ofMillis(millis) : budget;
+        } catch (NumberFormatException ex) {
+            log.debug("Ignoring malformed {} header: {}", TIMEOUT_HEADER, timeout);
+            return budget;
+        }
+    }
+}
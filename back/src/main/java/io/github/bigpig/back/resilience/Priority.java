@@ -0,0 +1,10 @@
+package io.github.bigpig.back.resilience;
+
+/**
+ * Urgency of an upstream call. When a rate-limited upstream has no quota to spare,
+ * callers waiting for it are served in this order.
+ */
+public enum Priority {
+    INTERACTIVE,
+    BACKGROUND
+}
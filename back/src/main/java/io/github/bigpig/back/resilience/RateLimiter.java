@@ -0,0 +1,141 @@
+package io.github.bigpig.back.resilience;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token bucket holding up to {@code burst} calls, refilled at {@code callsPerMinute}, with
+ * at most {@code callsPerDay} calls per UTC day. Callers finding the bucket empty wait in
+ * line, by priority and then arrival, each for at most its priority's maximum wait. A call
+ * cancelled while it waits leaves the line without taking a token.
+ */
+class RateLimiter {
+
+    enum Result {
+        GRANTED,
+        THROTTLED,
+        QUOTA_EXHAUSTED,
+        CANCELLED
+    }
+
+    private record Ticket(Priority priority, long sequence) implements Comparable<Ticket> {
+
+        @Override
+        public int compareTo(Ticket other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final PriorityQueue<Ticket> queue = new PriorityQueue<>();
+    private final double capacity;
+    private final double millisPerToken;
+    private final int callsPerDay;
+    private final Map<Priority, Duration> maxWaits;
+    private final Clock clock;
+
+    private double tokens;
+    private long refilledAt;
+    private LocalDate day;
+    private int usedToday;
+    private long sequence;
+
+    RateLimiter(int burst, int callsPerMinute, int callsPerDay, Map<Priority, Duration> maxWaits, Clock clock) {
+        this.capacity = burst;
+        this.millisPerToken = (double) TimeUnit.MINUTES.toMillis(1) / callsPerMinute;
+        this.callsPerDay = callsPerDay;
+        this.maxWaits = maxWaits;
+        this.clock = clock;
+        this.tokens = burst;
+        this.refilledAt = clock.millis();
+        this.day = today();
+    }
+
+    Result acquire(Priority priority) {
+        lock.lock();
+        Ticket ticket = new Ticket(priority, sequence++);
+        queue.add(ticket);
+        try {
+            long remainingNanos = Deadline.cap(maxWaits.get(priority)).toNanos();
+            while (true) {
+                refill();
+                if (usedToday >= callsPerDay) {
+                    return Result.QUOTA_EXHAUSTED;
+                }
+                if (CancellationScope.isCurrentCancelled()) {
+                    return Result.CANCELLED;
+                }
+                boolean first = queue.peek() == ticket;
+                if (first && tokens >= 1) {
+                    tokens--;
+                    usedToday++;
+                    return Result.GRANTED;
+                }
+                if (remainingNanos <= 0) {
+                    return Result.THROTTLED;
+                }
+                // Only the head of the line waits for the next token, the rest wait their turn
+                long waitNanos = first ? Math.min(remainingNanos, nanosUntilNextToken()) : remainingNanos;
+                remainingNanos -= waitNanos - changed.awaitNanos(waitNanos);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return Result.THROTTLED;
+        } finally {
+            queue.remove(ticket);
+            changed.signalAll();
+            lock.unlock();
+        }
+    }
+
+    int usedToday() {
+        lock.lock();
+        try {
+            refill();
+            return usedToday;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int remainingToday() {
+        return Math.max(0, callsPerDay - usedToday());
+    }
+
+    int queued() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refill() {
+        long now = clock.millis();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) / millisPerToken);
+        refilledAt = now;
+        LocalDate today = today();
+        if (!today.equals(day)) {
+            day = today;
+            usedToday = 0;
+        }
+    }
+
+    private long nanosUntilNextToken() {
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(1, (long) Math.ceil((1 - tokens) * millisPerToken)));
+    }
+
+    private LocalDate today() {
+        return LocalDate.ofInstant(clock.instant(), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,31 @@
+package io.github.bigpig.back.resilience;
+
+/**
+ * Token bucket limiting retries to a fraction of the calls made. Every call deposits
+ * {@code ratio} tokens up to {@code capacity}, every retry spends one, so a failing
+ * upstream sees at most about {@code 1 + ratio} times its normal load.
+ */
+class RetryBudget {
+
+    private final double ratio;
+    private final double capacity;
+    private double tokens;
+
+    RetryBudget(double ratio, int capacity) {
+        this.ratio = ratio;
+        this.capacity = capacity;
+        this.tokens = capacity;
+    }
+
+    synchronized void recordCall() {
+        tokens = Math.min(capacity, tokens + ratio);
+    }
+
+    synchronized boolean tryAcquireRetry() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+}
@@ -0,0 +1,10 @@
+package io.github.bigpig.back.resilience;
+
+/**
+ * External services the backend depends on. Resilience state such as retry
+ * budgets is kept per upstream so one misbehaving service cannot drain another's.
+ */
+public enum Upstream {
+    ALPHA_VANTAGE,
+    AI_ANALYSIS
+}
@@ -0,0 +1,156 @@
+package io.github.bigpig.back.resilience;
+
+import io.github.bigpig.back.exceptions.DeadlineExceededException;
+import io.github.bigpig.back.exceptions.UpstreamUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Single entry point for upstream calls. Every attempt made by the retrier passes the
+ * upstream's circuit breaker, bulkhead and rate limiter; a rejected attempt fails fast with
+ * {@link UpstreamUnavailableException} instead of waiting on a struggling service. Waits and
+ * calls are cut to the request {@link Deadline}, once it has passed attempts fail with
+ * {@link DeadlineExceededException}.
+ */
+@Component
+public class UpstreamGateway {
+
+    public static final String REJECTED_CALLS_METRIC = "upstream.calls.rejected";
+    public static final String CIRCUIT_STATE_METRIC = "upstream.circuit.state";
+
+    private final UpstreamRetrier upstreamRetrier;
+    private final UpstreamRateLimiter upstreamRateLimiter;
+    private final UpstreamMetrics upstreamMetrics;
+    private final MeterRegistry meterRegistry;
+    private final Map<Upstream, CircuitBreaker> breakers = new EnumMap<>(Upstream.class);
+    private final Map<Upstream, Bulkhead> bulkheads = new EnumMap<>(Upstream.class);
+
+    public UpstreamGateway(UpstreamRetrier upstreamRetrier,
+                           UpstreamRateLimiter upstreamRateLimiter,
+                           UpstreamMetrics upstreamMetrics,
+                           MeterRegistry meterRegistry,
+                           Clock clock,
+                           @Value("${app.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                           @Value("${app.circuit-breaker.open-duration:PT30S}") Duration openDuration,
+                           @Value("${app.bulkhead.alpha-vantage.max-concurrent:20}") int alphaVantageConcurrency,
+                           @Value("${app.bulkhead.ai-analysis.max-concurrent:4}") int aiAnalysisConcurrency,
+                           @Value("${app.bulkhead.max-wait:PT0.5S}") Duration maxWait) {
+        this.upstreamRetrier = upstreamRetrier;
+        this.upstreamRateLimiter = upstreamRateLimiter;
+        this.upstreamMetrics = upstreamMetrics;
+        this.meterRegistry = meterRegistry;
+        bulkheads.put(Upstream.ALPHA_VANTAGE, new Bulkhead(alphaVantageConcurrency, maxWait));
+        bulkheads.put(Upstream.AI_ANALYSIS, new Bulkhead(aiAnalysisConcurrency, maxWait));
+        for (Upstream upstream : Upstream.values()) {
+            CircuitBreaker breaker = new CircuitBreaker(failureThreshold, openDuration, clock);
+            breakers.put(upstream, breaker);
+            Gauge.builder(CIRCUIT_STATE_METRIC, breaker, b -> b.state().ordinal())
+                    .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+                    .tag("upstream", upstream.name())
+                    .register(meterRegistry);
+        }
+    }
+
+    public <T> T execute(Upstream upstream, String operation, Supplier<T> call) {
+        return execute(upstream, operation, Priority.INTERACTIVE, call);
+    }
+
+    /**
+     * @param operation what is called on the upstream, used to tag the call latency
+     */
+    public <T> T execute(Upstream upstream, String operation, Priority priority, Supplier<T> call) {
+        return upstreamRetrier.execute(upstream, () -> guarded(upstream, operation, priority, call));
+    }
+
+    private <T> T guarded(Upstream upstream, String operation, Priority priority, Supplier<T> call) {
+        // A call nobody waits for any more should not spend quota or a concurrency slot
+        if (CancellationScope.isCurrentCancelled()) {
+            throw rejected(upstream, "cancelled", "Call to %s was cancelled");
+        }
+        if (Deadline.isCurrentExpired()) {
+            countRejected(upstream, "deadline_exceeded");
+            throw deadlineExceeded(upstream);
+        }
+        CircuitBreaker breaker = breakers.get(upstream);
+        if (!breaker.tryAcquire()) {
+            throw rejected(upstream, "circuit_open", "%s is unavailable, circuit is open");
+        }
+        // The concurrency slot is taken first: a rejected call must not spend a quota token
+        Bulkhead bulkhead = bulkheads.get(upstream);
+        if (!bulkhead.tryAcquire()) {
+            breaker.release();
+            if (Deadline.isCurrentExpired()) {
+                throw deadlineExceeded(upstream);
+            }
+            throw rejected(upstream, "bulkhead_full", "%s is at its concurrency limit");
+        }
+        RateLimiter.Result quota = upstreamRateLimiter.acquire(upstream, priority);
+        if (quota != RateLimiter.Result.GRANTED) {
+            bulkhead.release();
+            breaker.release();
+            if (quota == RateLimiter.Result.CANCELLED) {
+                throw rejected(upstream, "cancelled", "Call to %s was cancelled");
+            }
+            if (Deadline.isCurrentExpired()) {
+                throw deadlineExceeded(upstream);
+            }
+            throw quota == RateLimiter.Result.QUOTA_EXHAUSTED
+                    ? rejected(upstream, "quota_exhausted", "%s daily quota is exhausted")
+                    : rejected(upstream, "rate_limited", "%s rate limit reached, try again shortly");
+        }
+        try {
+            // Timed only once admitted, so rejections do not skew the latency of real calls
+            T result = upstreamMetrics.record(upstream.name(), operation, call);
+            breaker.onSuccess();
+            return result;
+        } catch (RuntimeException ex) {
+            // Client errors mean the upstream answered, only transient failures count against it;
+            // an exchange we aborted ourselves or cut short to the deadline says nothing about it
+            boolean expired = Deadline.isCurrentExpired();
+            if (expired || CancellationScope.isCurrentCancelled()) {
+                breaker.release();
+            } else if (UpstreamRetrier.isRetryable(ex)) {
+                breaker.onFailure();
+            } else {
+                breaker.onSuccess();
+            }
+            if (expired) {
+                throw deadlineExceeded(upstream);
+            }
+            throw ex;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    CircuitBreaker.State circuitState(Upstream upstream) {
+        return breakers.get(upstream).state();
+    }
+
+    private UpstreamUnavailableException rejected(Upstream upstream, String reason, String message) {
+        countRejected(upstream, reason);
+        return new UpstreamUnavailableException(String.format(message, upstream));
+    }
+
+    private void countRejected(Upstream upstream, String reason) {
+        Counter.builder(REJECTED_CALLS_METRIC)
+                .description("Upstream calls rejected by a circuit breaker or bulkhead")
+                .tag("upstream", upstream.name())
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    static DeadlineExceededException deadlineExceeded(Upstream upstream) {
+        return new DeadlineExceededException(String.format("Request deadline passed waiting for %s", upstream));
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.bigpig.back.resilience;
+
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.util.function.Supplier;
+
+/**
+ * Times calls to external services. Every call is recorded in the {@code upstream.calls}
+ * timer tagged with the upstream, the operation (Alpha Vantage function, AI endpoint,
+ * OAuth step) and its outcome; calls still waiting for an answer show up in
+ * {@code upstream.calls.active}.
+ */
+@Component
+@RequiredArgsConstructor
+public class UpstreamMetrics {
+
+    public static final String CALLS_METRIC = "upstream.calls";
+    public static final String ACTIVE_CALLS_METRIC = "upstream.calls.active";
+
+    private final MeterRegistry meterRegistry;
+
+    public <T> T record(String upstream, String operation, Supplier<T> call) {
+        Tags tags = Tags.of("upstream", upstream, "operation", operation);
+        LongTaskTimer.Sample active = LongTaskTimer.builder(ACTIVE_CALLS_METRIC)
+                .description("Upstream calls in flight")
+                .tags(tags)
+                .register(meterRegistry)
+                .start();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "SUCCESS";
+        String exception = "none";
+        try {
+            return call.get();
+        } catch (RuntimeException ex) {
+            outcome = outcome(ex);
+            exception = ex.getClass().getSimpleName();
+            throw ex;
+        } finally {
+            active.stop();
+            sample.stop(Timer.builder(CALLS_METRIC)
+                    .description("Latency of upstream calls")
+                    .tags(tags)
+                    .tag("outcome", outcome)
+                    .tag("exception", exception)
+                    .register(meterRegistry));
+        }
+    }
+
+    private static String outcome(RuntimeException ex) {
+        if (ex instanceof RestClientResponseException response) {
+            return response.getStatusCode().is4xxClientError() ? "CLIENT_ERROR" : "SERVER_ERROR";
+        }
+        return "ERROR";
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.bigpig.back.resilience;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Keeps calls to quota-limited upstreams within their published limits. Bursts queue
+ * briefly for the next token instead of being throttled by the upstream, and
+ * interactive calls are let through before background ones.
+ */
+@Component
+public class UpstreamRateLimiter {
+
+    public static final String QUOTA_USED_METRIC = "upstream.quota.used";
+    public static final String QUOTA_REMAINING_METRIC = "upstream.quota.remaining";
+    public static final String QUEUED_CALLS_METRIC = "upstream.quota.queued";
+
+    private final Map<Upstream, RateLimiter> limiters = new EnumMap<>(Upstream.class);
+
+    public UpstreamRateLimiter(MeterRegistry meterRegistry,
+                               Clock clock,
+                               @Value("${app.rate-limit.alpha-vantage.burst:5}") int alphaVantageBurst,
+                               @Value("${app.rate-limit.alpha-vantage.calls-per-minute:5}") int alphaVantagePerMinute,
+                               @Value("${app.rate-limit.alpha-vantage.calls-per-day:25}") int alphaVantagePerDay,
+                               @Value("${app.rate-limit.interactive-max-wait:PT15S}") Duration interactiveMaxWait,
+                               @Value("${app.rate-limit.background-max-wait:PT2M}") Duration backgroundMaxWait) {
+        Map<Priority, Duration> maxWaits = new EnumMap<>(Map.of(
+                Priority.INTERACTIVE, interactiveMaxWait,
+                Priority.BACKGROUND, backgroundMaxWait));
+        limiters.put(Upstream.ALPHA_VANTAGE, new RateLimiter(
+                alphaVantageBurst, alphaVantagePerMinute, alphaVantagePerDay, maxWaits, clock));
+
+        limiters.forEach((upstream, limiter) -> {
+            Gauge.builder(QUOTA_USED_METRIC, limiter, RateLimiter::usedToday)
+                    .description("Upstream calls made today")
+                    .tag("upstream", upstream.name())
+                    .register(meterRegistry);
+            Gauge.builder(QUOTA_REMAINING_METRIC, limiter, RateLimiter::remainingToday)
+                    .description("Upstream calls left in today's quota")
+                    .tag("upstream", upstream.name())
+                    .register(meterRegistry);
+            Gauge.builder(QUEUED_CALLS_METRIC, limiter, RateLimiter::queued)
+                    .description("Calls waiting for upstream quota")
+                    .tag("upstream", upstream.name())
+                    .register(meterRegistry);
+        });
+    }
+
+    /**
+     * Calls left in today's quota for {@code upstream}, unbounded for upstreams without
+     * a published limit.
+     */
+    public int remainingToday(Upstream upstream) {
+        RateLimiter limiter = limiters.get(upstream);
+        return limiter == null ? Integer.MAX_VALUE : limiter.remainingToday();
+    }
+
+    /**
+     * Waits for quota to call {@code upstream}. Upstreams without a published limit are
+     * always granted.
+     */
+    RateLimiter.Result acquire(Upstream upstream, Priority priority) {
+        RateLimiter limiter = limiters.get(upstream);
+        return limiter == null ? RateLimiter.Result.GRANTED : limiter.acquire(priority);
+    }
+}
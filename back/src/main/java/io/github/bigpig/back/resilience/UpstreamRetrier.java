@@ -0,0 +1,132 @@
+package io.github.bigpig.back.resilience;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.github.bigpig.back.exceptions.MalformedResponseException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Retries transient upstream failures a bounded number of times with full-jitter
+ * exponential backoff, within a retry budget per upstream and the request {@link Deadline}.
+ */
+@Slf4j
+@Component
+public class UpstreamRetrier {
+
+    public static final String RETRIES_METRIC = "upstream.retries";
+
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final Map<Upstream, RetryBudget> budgets = new EnumMap<>(Upstream.class);
+
+    public UpstreamRetrier(MeterRegistry meterRegistry,
+                           @Value("${app.retry.max-attempts:3}") int maxAttempts,
+                           @Value("${app.retry.initial-backoff:PT0.2S}") Duration initialBackoff,
+                           @Value("${app.retry.max-backoff:PT2S}") Duration maxBackoff,
+                           @Value("${app.retry.budget-ratio:0.2}") double budgetRatio,
+                           @Value("${app.retry.budget-capacity:10}") int budgetCapacity) {
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+        for (Upstream upstream : Upstream.values()) {
+            budgets.put(upstream, new RetryBudget(budgetRatio, budgetCapacity));
+        }
+    }
+
+    /**
+     * Runs {@code call}, retrying failures classified as transient. The last failure is
+     * rethrown unchanged when attempts or the budget run out.
+     */
+    public <T> T execute(Upstream upstream, Supplier<T> call) {
+        RetryBudget budget = budgets.get(upstream);
+        budget.recordCall();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.get();
+            } catch (RuntimeException ex) {
+                // A cancelled call fails because its exchange was aborted, not worth repeating
+                if (attempt >= maxAttempts || !isRetryable(ex) || CancellationScope.isCurrentCancelled()) {
+                    throw ex;
+                }
+                long backoffNanos = backoffNanos(attempt);
+                Deadline deadline = Deadline.current();
+                if (deadline != null && deadline.remaining().toNanos() <= backoffNanos) {
+                    log.warn("No time left to retry {}: {}", upstream, ex.getMessage());
+                    throw UpstreamGateway.deadlineExceeded(upstream);
+                }
+                if (!budget.tryAcquireRetry()) {
+                    log.warn("Retry budget for {} exhausted, giving up: {}", upstream, ex.getMessage());
+                    throw ex;
+                }
+                log.warn("Attempt {} to {} failed, retrying: {}", attempt, upstream, ex.getMessage());
+                retries(upstream).increment();
+                if (!sleep(backoffNanos)) {
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    /**
+     * Connection problems, 5xx, 429 and malformed AI output are worth another attempt;
+     * client errors and unparseable data payloads will fail the same way again.
+     */
+    static boolean isRetryable(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MalformedResponseException) {
+                return true;
+            }
+            if (cause instanceof RestClientResponseException response) {
+                HttpStatusCode status = response.getStatusCode();
+                return status.is5xxServerError() || status.value() == HttpStatus.TOO_MANY_REQUESTS.value();
+            }
+            if (cause instanceof JsonProcessingException) {
+                return false;
+            }
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    long backoffNanos(int attempt) {
+        double exponential = initialBackoffNanos * Math.pow(2, attempt - 1);
+        long cap = (long) Math.min(maxBackoffNanos, exponential);
+        return cap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private Counter retries(Upstream upstream) {
+        return Counter.builder(RETRIES_METRIC)
+                .description("Upstream calls repeated after a transient failure")
+                .tag("upstream", upstream.name())
+                .register(meterRegistry);
+    }
+
+    private static boolean sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
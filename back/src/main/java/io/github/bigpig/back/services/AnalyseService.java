@@ -1,48 +1,139 @@
 package io.github.bigpig.back.services;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.github.bigpig.back.config.ExecutorConfig;
 import io.github.bigpig.back.dto.AnalyseDto;
 import io.github.bigpig.back.dto.AnalyseResponseDto;
 import io.github.bigpig.back.exceptions.FetchDataException;
+import io.github.bigpig.back.exceptions.MalformedResponseException;
+import io.github.bigpig.back.exceptions.UpstreamUnavailableException;
+import io.github.bigpig.back.resilience.Upstream;
+import io.github.bigpig.back.resilience.UpstreamGateway;
 import io.github.bigpig.back.util.AnalysisParser;
+import io.github.bigpig.back.util.RequestCoalescer;
 import io.github.bigpig.back.util.UrlBuilder;
-import lombok.AllArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 @Service
-@AllArgsConstructor
 public class AnalyseService {
 
+    public static final String CACHE_NAME = "aiAnalyses";
+
+    private static final String FUNCTION = "AI_ANALYSE";
+
     private final RestClient restClient;
     private final UrlBuilder urlBuilder;
     private final AnalysisParser analysisParser;
+    private final RequestCoalescer requestCoalescer;
+    private final UpstreamGateway upstreamGateway;
+    private final Executor ioExecutor;
+    private final LoadingCache<String, AnalyseDto> analyses;
+
+    /**
+     * Analyses older than {@code ttl} are still served while one background refresh
+     * replaces them; after {@code maxStale} they are dropped and the next caller waits.
+     */
+    public AnalyseService(RestClient restClient,
+                          UrlBuilder urlBuilder,
+                          AnalysisParser analysisParser,
+                          RequestCoalescer requestCoalescer,
+                          UpstreamGateway upstreamGateway,
+                          @Qualifier(ExecutorConfig.IO_EXECUTOR) Executor ioExecutor,
+                          MeterRegistry meterRegistry,
+                          Clock clock,
+                          @Value("${app.ai-cache.ttl:PT6H}") Duration ttl,
+                          @Value("${app.ai-cache.max-stale:PT24H}") Duration maxStale,
+                          @Value("${app.ai-cache.max-size:1000}") long maxSize) {
+        this.restClient = restClient;
+        this.urlBuilder = urlBuilder;
+        this.analysisParser = analysisParser;
+        this.requestCoalescer = requestCoalescer;
+        this.upstreamGateway = upstreamGateway;
+        this.ioExecutor = ioExecutor;
+        this.analyses = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .refreshAfterWrite(ttl)
+                .expireAfterWrite(maxStale)
+                .executor(ioExecutor)
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+                .recordStats()
+                .build(key -> requestCoalescer.execute(FUNCTION, key, () -> fetchAnalyse(key)));
+        CaffeineCacheMetrics.monitor(meterRegistry, analyses, CACHE_NAME);
+    }
 
     public AnalyseDto getAnalyse(String ticker) {
+        return analyses.get(ticker.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Loads the analysis on the I/O executor, so a request waiting for the AI service
+     * does not hold a servlet thread. A cached analysis completes the future right away.
+     * Cancelling the future withdraws the caller from the shared AI call, which is itself
+     * cancelled once no caller waits for it any more.
+     */
+    public CompletableFuture<AnalyseDto> getAnalyseAsync(String ticker) {
+        String key = ticker.toUpperCase(Locale.ROOT);
+        AnalyseDto cached = analyses.getIfPresent(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return requestCoalescer.executeAsync(FUNCTION, key, () -> {
+            AnalyseDto analyse = fetchAnalyse(key);
+            analyses.put(key, analyse);
+            return analyse;
+        }, ioExecutor);
+    }
+
+    /**
+     * Reloads the analysis in the background while the cached one keeps being served.
+     */
+    public CompletableFuture<AnalyseDto> refreshAnalyse(String ticker) {
+        return analyses.refresh(ticker.toUpperCase(Locale.ROOT));
+    }
+
+    private AnalyseDto fetchAnalyse(String ticker) {
+        try {
+            return upstreamGateway.execute(Upstream.AI_ANALYSIS, FUNCTION, () -> requestAnalyse(ticker));
+        } catch (UpstreamUnavailableException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new FetchDataException(String.format("Failed to fetch analyse: %s", ticker));
+        }
+    }
+
+    private AnalyseDto requestAnalyse(String ticker) {
         Map<String, String> body = new HashMap<>();
         body.put("symbol", ticker);
 
-        AnalyseDto analyseRes = null;
+        AnalyseResponseDto response = restClient.post()
+            .uri(urlBuilder.buildAnalyseUrl())
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(body)
+            .retrieve()
+            .toEntity(AnalyseResponseDto.class)
+            .getBody();
+
+        // The model occasionally answers with text the parser cannot split, a new answer usually can be
         try {
-            AnalyseResponseDto response = restClient.post()
-                .uri(urlBuilder.buildAnalyseUrl())
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(body)
-                .retrieve()
-                .toEntity(AnalyseResponseDto.class)
-                .getBody();
-
-            if (response != null) {
-                analyseRes = analysisParser.parseAnalyse(response.analysis());
-            } else {
-                throw new FetchDataException(String.format("Failed to fetch analyse: %s", ticker));
-            }
-        } catch(IndexOutOfBoundsException ex) {
-            getAnalyse(ticker);
+            return analysisParser.parseAnalyse(response == null ? null : response.analysis());
+        } catch (IllegalArgumentException ex) {
+            throw new MalformedResponseException(String.format("Malformed analyse for %s", ticker), ex);
         }
-        return analyseRes;
     }
 }
@@ -0,0 +1,155 @@
+package io.github.bigpig.back.services;
+
+import io.github.bigpig.back.dto.AnalyseDto;
+import io.github.bigpig.back.dto.BatchSection;
+import io.github.bigpig.back.dto.ExceptionDto;
+import io.github.bigpig.back.dto.PointDto;
+import io.github.bigpig.back.dto.ShareDto;
+import io.github.bigpig.back.dto.TickerInfoDto;
+import io.github.bigpig.back.exceptions.DeadlineExceededException;
+import io.github.bigpig.back.exceptions.ErrorCodes;
+import io.github.bigpig.back.exceptions.FetchDataException;
+import io.github.bigpig.back.exceptions.InvalidRequestException;
+import io.github.bigpig.back.exceptions.UpstreamUnavailableException;
+import io.github.bigpig.back.models.PriceSeries;
+import io.github.bigpig.back.resilience.Deadline;
+import io.github.bigpig.back.util.SeriesDownsampler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Service
+@Slf4j
+public class BatchService {
+
+    private final ShareService shareService;
+    private final PricesService pricesService;
+    private final AnalyseService analyseService;
+    private final int maxTickers;
+    private final Duration timeout;
+
+    public BatchService(ShareService shareService,
+                        PricesService pricesService,
+                        AnalyseService analyseService,
+                        @Value("${app.batch.max-tickers:50}") int maxTickers,
+                        @Value("${app.batch.timeout:PT60S}") Duration timeout) {
+        this.shareService = shareService;
+        this.pricesService = pricesService;
+        this.analyseService = analyseService;
+        this.maxTickers = maxTickers;
+        this.timeout = timeout;
+    }
+
+    public List<TickerInfoDto> getBatch(List<String> tickers, Set<BatchSection> sections, Integer maxPoints) {
+        Set<String> uniqueTickers = new LinkedHashSet<>();
+        for (String ticker : tickers) {
+            if (!ticker.isBlank()) {
+                uniqueTickers.add(ticker.trim().toUpperCase(Locale.ROOT));
+            }
+        }
+        if (uniqueTickers.isEmpty()) {
+            throw new InvalidRequestException("At least one ticker is required");
+        }
+        if (uniqueTickers.size() > maxTickers) {
+            throw new InvalidRequestException(String.format("At most %d tickers are allowed", maxTickers));
+        }
+        if (maxPoints != null && maxPoints < SeriesDownsampler.MIN_POINTS) {
+            throw new InvalidRequestException(
+                    String.format("maxPoints must be at least %d", SeriesDownsampler.MIN_POINTS));
+        }
+        Set<BatchSection> requested = sections == null || sections.isEmpty()
+                ? EnumSet.allOf(BatchSection.class)
+                : EnumSet.copyOf(sections);
+
+        List<Map<BatchSection, CompletableFuture<?>>> pending = new ArrayList<>(uniqueTickers.size());
+        for (String ticker : uniqueTickers) {
+            Map<BatchSection, CompletableFuture<?>> calls = new EnumMap<>(BatchSection.class);
+            for (BatchSection section : requested) {
+                calls.put(section, load(section, ticker, maxPoints));
+            }
+            pending.add(calls);
+        }
+
+        long deadline = System.nanoTime() + Deadline.cap(timeout).toNanos();
+        List<TickerInfoDto> results = new ArrayList<>(uniqueTickers.size());
+        int index = 0;
+        for (String ticker : uniqueTickers) {
+            Map<BatchSection, Object> values = new EnumMap<>(BatchSection.class);
+            Map<BatchSection, ExceptionDto> errors = new EnumMap<>(BatchSection.class);
+            for (Map.Entry<BatchSection, CompletableFuture<?>> call : pending.get(index++).entrySet()) {
+                try {
+                    long remaining = Math.max(0, deadline - System.nanoTime());
+                    values.put(call.getKey(), call.getValue().get(remaining, TimeUnit.NANOSECONDS));
+                } catch (TimeoutException ex) {
+                    // Withdraws the batch from the shared call, which stops once nobody else waits for it
+                    call.getValue().cancel(false);
+                    errors.put(call.getKey(), new ExceptionDto(
+                            String.format("Timed out loading %s for ticker: %s", call.getKey(), ticker),
+                            ErrorCodes.DATA_NOT_FETCHED.toString()));
+                } catch (ExecutionException | CancellationException ex) {
+                    errors.put(call.getKey(), toError(ex.getCause() != null ? ex.getCause() : ex));
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new FetchDataException("Batch request was interrupted");
+                }
+            }
+            results.add(new TickerInfoDto(
+                    ticker,
+                    (ShareDto) values.get(BatchSection.MAIN_INFO),
+                    values.containsKey(BatchSection.CHART_INFO)
+                            ? PointDto.fromSeries((PriceSeries) values.get(BatchSection.CHART_INFO))
+                            : null,
+                    (AnalyseDto) values.get(BatchSection.AI_ANALYSE),
+                    errors
+            ));
+        }
+        return results;
+    }
+
+    /**
+     * Starts the section load without waiting for it. Each future is the caller's own share of
+     * the coalesced upstream call, so cancelling it withdraws only this batch.
+     */
+    private CompletableFuture<?> load(BatchSection section, String ticker, Integer maxPoints) {
+        try {
+            return switch (section) {
+                case MAIN_INFO -> shareService.getMainInfoAsync(ticker);
+                case CHART_INFO -> pricesService.getPricesAsync(ticker, null, null, maxPoints);
+                case AI_ANALYSE -> analyseService.getAnalyseAsync(ticker);
+            };
+        } catch (RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    private static ExceptionDto toError(Throwable ex) {
+        if (ex instanceof InvalidRequestException) {
+            return new ExceptionDto(ex.getMessage(), ErrorCodes.INVALID_REQUEST.toString());
+        }
+        if (ex instanceof DeadlineExceededException) {
+            return new ExceptionDto(ex.getMessage(), ErrorCodes.DEADLINE_EXCEEDED.toString());
+        }
+        if (ex instanceof UpstreamUnavailableException) {
+            return new ExceptionDto(ex.getMessage(), ErrorCodes.UPSTREAM_UNAVAILABLE.toString());
+        }
+        if (!(ex instanceof FetchDataException)) {
+            log.error("Unexpected batch failure", ex);
+        }
+        return new ExceptionDto(ex.getMessage(), ErrorCodes.DATA_NOT_FETCHED.toString());
+    }
+}
@@ -0,0 +1,104 @@
+package io.github.bigpig.back.services;
+
+import io.github.bigpig.back.resilience.Upstream;
+import io.github.bigpig.back.resilience.UpstreamRateLimiter;
+import io.github.bigpig.back.util.MarketCalendar;
+import io.github.bigpig.back.util.TickerPopularity;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Keeps the configured tickers and the most requested ones warm, so the morning
+ * traffic hits the caches instead of the upstreams. Market data is reloaded after the
+ * close, when the new daily bar is published, and analyses before the open. Refreshes
+ * run one at a time at background priority and stop short of the quota kept for users.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.prewarm.enabled", havingValue = "true", matchIfMissing = true)
+public class CacheWarmer {
+
+    // OVERVIEW and TIME_SERIES_DAILY
+    private static final int CALLS_PER_TICKER = 2;
+
+    private final ShareService shareService;
+    private final PricesService pricesService;
+    private final AnalyseService analyseService;
+    private final TickerPopularity tickerPopularity;
+    private final UpstreamRateLimiter upstreamRateLimiter;
+    private final List<String> tickers;
+    private final int learnedTickers;
+    private final int quotaReserve;
+
+    public CacheWarmer(ShareService shareService,
+                       PricesService pricesService,
+                       AnalyseService analyseService,
+                       TickerPopularity tickerPopularity,
+                       UpstreamRateLimiter upstreamRateLimiter,
+                       @Value("${app.prewarm.tickers:}") List<String> tickers,
+                       @Value("${app.prewarm.learned-tickers:5}") int learnedTickers,
+                       @Value("${app.prewarm.quota-reserve:10}") int quotaReserve) {
+        this.shareService = shareService;
+        this.pricesService = pricesService;
+        this.analyseService = analyseService;
+        this.tickerPopularity = tickerPopularity;
+        this.upstreamRateLimiter = upstreamRateLimiter;
+        this.tickers = tickers;
+        this.learnedTickers = learnedTickers;
+        this.quotaReserve = quotaReserve;
+    }
+
+    @Scheduled(cron = "${app.prewarm.market-data-cron:0 30 16 * * MON-FRI}", zone = MarketCalendar.MARKET_ZONE_ID)
+    public void warmMarketData() {
+        List<String> warmed = new ArrayList<>();
+        for (String ticker : hotTickers()) {
+            if (upstreamRateLimiter.remainingToday(Upstream.ALPHA_VANTAGE) < quotaReserve + CALLS_PER_TICKER) {
+                log.info("Stopping market data warm-up to keep {} Alpha Vantage calls for users", quotaReserve);
+                break;
+            }
+            try {
+                shareService.refreshMainInfo(ticker);
+                pricesService.refreshPrices(ticker);
+                warmed.add(ticker);
+            } catch (RuntimeException ex) {
+                log.warn("Failed to warm market data for {}: {}", ticker, ex.getMessage());
+            }
+        }
+        tickerPopularity.decay();
+        log.info("Warmed market data for {}", warmed);
+    }
+
+    @Scheduled(cron = "${app.prewarm.analyses-cron:0 0 7 * * MON-FRI}", zone = MarketCalendar.MARKET_ZONE_ID)
+    public void warmAnalyses() {
+        List<String> warmed = new ArrayList<>();
+        for (String ticker : hotTickers()) {
+            try {
+                analyseService.refreshAnalyse(ticker).join();
+                warmed.add(ticker);
+            } catch (RuntimeException ex) {
+                log.warn("Failed to warm analyse for {}: {}", ticker, ex.getMessage());
+            }
+        }
+        log.info("Warmed analyses for {}", warmed);
+    }
+
+    List<String> hotTickers() {
+        Set<String> hot = new LinkedHashSet<>();
+        for (String ticker : tickers) {
+            if (!ticker.isBlank()) {
+                hot.add(ticker.strip().toUpperCase(Locale.ROOT));
+            }
+        }
+        hot.addAll(tickerPopularity.hottest(learnedTickers));
+        return List.copyOf(hot);
+    }
+}
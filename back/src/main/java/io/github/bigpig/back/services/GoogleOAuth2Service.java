@@ -2,6 +2,7 @@ package io.github.bigpig.back.services;
 
 import io.github.bigpig.back.models.User;
 import io.github.bigpig.back.repositories.RoleRepository;
+import io.github.bigpig.back.resilience.UpstreamMetrics;
 import io.github.bigpig.back.util.JwtUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
@@ -24,9 +25,13 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class GoogleOAuth2Service {
 
+    public static final String UPSTREAM = "GOOGLE_OAUTH";
+
     private final UserService userService;
     private final JwtUtils jwtUtils;
     private final RoleRepository roleRepository;
+    private final RestTemplate restTemplate;
+    private final UpstreamMetrics upstreamMetrics;
 
     @Value("${spring.security.oauth2.client.registration.google.client-id}")
     private String clientId;
@@ -34,11 +39,13 @@ public class GoogleOAuth2Service {
     @Value("${spring.security.oauth2.client.registration.google.client-secret}")
     private String clientSecret;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Value("${app.google.token-url:https://oauth2.googleapis.com/token}")
+    private String tokenUrl;
 
-    public String exchangeCodeForToken(String code, String codeVerifier, String redirectUri) {
-        String tokenUrl = "https://oauth2.googleapis.com/token";
+    @Value("${app.google.user-info-url:https://www.googleapis.com/oauth2/v3/userinfo}")
+    private String userInfoUrl;
 
+    public String exchangeCodeForToken(String code, String codeVerifier, String redirectUri) {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
 
@@ -51,16 +58,17 @@ public class GoogleOAuth2Service {
 
         HttpEntity<String> request = new HttpEntity<>(body, headers);
 
-        Map<String, Object> response = restTemplate.postForObject(tokenUrl, request, Map.class);
+        Map<String, Object> response = upstreamMetrics.record(UPSTREAM, "token",
+                () -> restTemplate.postForObject(tokenUrl, request, Map.class));
         return (String) response.get("access_token");
     }
 
     public Map<String, Object> getUserInfo(String accessToken) {
-        String userInfoUrl = "https://www.googleapis.com/oauth2/v3/userinfo";
         HttpHeaders headers = new HttpHeaders();
         headers.setBearerAuth(accessToken);
         HttpEntity<Void> request = new HttpEntity<>(headers);
-        return restTemplate.exchange(userInfoUrl, HttpMethod.GET, request, Map.class).getBody();
+        return upstreamMetrics.record(UPSTREAM, "userinfo",
+                () -> restTemplate.exchange(userInfoUrl, HttpMethod.GET, request, Map.class).getBody());
     }
 
     public String handleGoogleLogin(String code, String codeVerifier, String redirectUri) {
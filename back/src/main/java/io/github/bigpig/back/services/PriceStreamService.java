@@ -0,0 +1,248 @@
+package io.github.bigpig.back.services;
+
+import io.github.bigpig.back.config.ExecutorConfig;
+import io.github.bigpig.back.dto.PointDto;
+import io.github.bigpig.back.dto.PriceUpdateDto;
+import io.github.bigpig.back.exceptions.InvalidRequestException;
+import io.github.bigpig.back.resilience.Upstream;
+import io.github.bigpig.back.resilience.UpstreamRateLimiter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes new and corrected chart points to SSE subscribers. Each ticker has one feed
+ * shared by all its subscribers, fed by the sync that stored the points. Sends run on
+ * the stream executor so a slow client never blocks the sync; while a send is in
+ * flight later points are conflated per day, and a client that falls further behind
+ * than the pending limit, or whose send the saturated executor rejects, is disconnected
+ * and has to reload the chart.
+ */
+@Slf4j
+@Service
+public class PriceStreamService {
+
+    static final String SUBSCRIBERS_METRIC = "prices.stream.subscribers";
+    static final String EVENT_NAME = "prices";
+
+    private final PricesService pricesService;
+    private final Executor streamExecutor;
+    private final UpstreamRateLimiter upstreamRateLimiter;
+    private final int maxTickers;
+    private final int maxPending;
+    private final Duration timeout;
+    private final int quotaReserve;
+
+    private final Map<String, Set<Subscriber>> feeds = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    public PriceStreamService(PricesService pricesService,
+                              @Qualifier(ExecutorConfig.STREAM_EXECUTOR) Executor streamExecutor,
+                              UpstreamRateLimiter upstreamRateLimiter,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.price-stream.max-tickers:50}") int maxTickers,
+                              @Value("${app.price-stream.max-pending:500}") int maxPending,
+                              @Value("${app.price-stream.timeout:PT30M}") Duration timeout,
+                              @Value("${app.prewarm.quota-reserve:10}") int quotaReserve) {
+        this.pricesService = pricesService;
+        this.streamExecutor = streamExecutor;
+        this.upstreamRateLimiter = upstreamRateLimiter;
+        this.maxTickers = maxTickers;
+        this.maxPending = maxPending;
+        this.timeout = timeout;
+        this.quotaReserve = quotaReserve;
+        Gauge.builder(SUBSCRIBERS_METRIC, subscribers, AtomicInteger::get)
+                .description("Open chart stream connections")
+                .register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(List<String> tickers) {
+        Set<String> uniqueTickers = new LinkedHashSet<>();
+        for (String ticker : tickers) {
+            if (!ticker.isBlank()) {
+                uniqueTickers.add(ticker.trim().toUpperCase(Locale.ROOT));
+            }
+        }
+        if (uniqueTickers.isEmpty()) {
+            throw new InvalidRequestException("At least one ticker is required");
+        }
+        if (uniqueTickers.size() > maxTickers) {
+            throw new InvalidRequestException(String.format("At most %d tickers are allowed", maxTickers));
+        }
+
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, uniqueTickers);
+        for (String ticker : uniqueTickers) {
+            feeds.computeIfAbsent(ticker, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        }
+        subscribers.incrementAndGet();
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(ex -> unsubscribe(subscriber));
+        return emitter;
+    }
+
+    @EventListener
+    public void onPricesUpdated(PriceUpdateDto update) {
+        Set<Subscriber> feed = feeds.get(update.ticker());
+        if (feed == null) {
+            return;
+        }
+        for (Subscriber subscriber : feed) {
+            switch (subscriber.offer(update)) {
+                case DRAIN -> {
+                    try {
+                        streamExecutor.execute(subscriber::drain);
+                    } catch (RejectedExecutionException ex) {
+                        log.info("Disconnecting chart stream for {}, no thread is free to send to it",
+                                subscriber.tickers);
+                        disconnect(subscriber, "Chart stream sends are saturated");
+                    }
+                }
+                case OVERFLOW -> {
+                    log.info("Disconnecting chart stream for {}, it is {} points behind",
+                            subscriber.tickers, maxPending);
+                    disconnect(subscriber, "Chart stream subscriber is too slow");
+                }
+                case QUEUED -> { }
+            }
+        }
+    }
+
+    /**
+     * Syncs the subscribed tickers so that new bars reach the stream without waiting
+     * for a client to reload the chart. Tickers that are up to date cost no upstream call.
+     * Only tickers a chart has loaded are refreshed, so subscribing to unknown symbols spends
+     * no quota, and refreshes stop short of the quota kept for users.
+     */
+    @Scheduled(fixedDelayString = "${app.price-stream.refresh-interval:PT15M}",
+            initialDelayString = "${app.price-stream.refresh-interval:PT15M}")
+    public void refreshSubscribed() {
+        for (String ticker : List.copyOf(feeds.keySet())) {
+            if (!pricesService.hasPrices(ticker)) {
+                continue;
+            }
+            if (upstreamRateLimiter.remainingToday(Upstream.ALPHA_VANTAGE) <= quotaReserve) {
+                log.info("Stopping chart stream refresh to keep {} Alpha Vantage calls for users", quotaReserve);
+                break;
+            }
+            try {
+                pricesService.refreshPrices(ticker);
+            } catch (RuntimeException ex) {
+                log.warn("Failed to refresh streamed prices for {}: {}", ticker, ex.getMessage());
+            }
+        }
+    }
+
+    Set<String> streamedTickers() {
+        return feeds.keySet();
+    }
+
+    private void disconnect(Subscriber subscriber, String reason) {
+        subscriber.emitter.completeWithError(new IllegalStateException(reason));
+        unsubscribe(subscriber);
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.close()) {
+            return;
+        }
+        for (String ticker : subscriber.tickers) {
+            feeds.computeIfPresent(ticker, (key, feed) -> {
+                feed.remove(subscriber);
+                return feed.isEmpty() ? null : feed;
+            });
+        }
+        subscribers.decrementAndGet();
+    }
+
+    private enum Offer { DRAIN, QUEUED, OVERFLOW }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Set<String> tickers;
+        // ticker -> day -> latest point, a correction replaces the pending value of its day
+        private final Map<String, TreeMap<String, PointDto>> pending = new LinkedHashMap<>();
+        private int pendingPoints;
+        private boolean draining;
+        private boolean closed;
+
+        private Subscriber(SseEmitter emitter, Set<String> tickers) {
+            this.emitter = emitter;
+            this.tickers = tickers;
+        }
+
+        private synchronized Offer offer(PriceUpdateDto update) {
+            TreeMap<String, PointDto> days = pending.computeIfAbsent(update.ticker(), key -> new TreeMap<>());
+            for (PointDto point : update.points()) {
+                if (days.put(point.date(), point) == null) {
+                    pendingPoints++;
+                }
+            }
+            if (pendingPoints > maxPending) {
+                return Offer.OVERFLOW;
+            }
+            if (draining) {
+                return Offer.QUEUED;
+            }
+            draining = true;
+            return Offer.DRAIN;
+        }
+
+        private void drain() {
+            while (true) {
+                List<PriceUpdateDto> batch;
+                synchronized (this) {
+                    if (closed || pending.isEmpty()) {
+                        draining = false;
+                        return;
+                    }
+                    batch = new ArrayList<>(pending.size());
+                    pending.forEach((ticker, days) -> batch.add(new PriceUpdateDto(ticker, List.copyOf(days.values()))));
+                    pending.clear();
+                    pendingPoints = 0;
+                }
+                try {
+                    for (PriceUpdateDto update : batch) {
+                        emitter.send(SseEmitter.event().name(EVENT_NAME).data(update));
+                    }
+                } catch (IOException | IllegalStateException ex) {
+                    log.debug("Chart stream for {} closed: {}", tickers, ex.getMessage());
+                    unsubscribe(this);
+                    return;
+                }
+            }
+        }
+
+        private synchronized boolean close() {
+            if (closed) {
+                return false;
+            }
+            closed = true;
+            pending.clear();
+            return true;
+        }
+    }
+}
@@ -1,64 +1,291 @@
 package io.github.bigpig.back.services;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.bigpig.back.config.ExecutorConfig;
 import io.github.bigpig.back.dto.PointDto;
+import io.github.bigpig.back.dto.PriceUpdateDto;
 import io.github.bigpig.back.exceptions.FetchDataException;
+import io.github.bigpig.back.exceptions.UpstreamUnavailableException;
+import io.github.bigpig.back.exceptions.InvalidRequestException;
+import io.github.bigpig.back.models.PriceBar;
+import io.github.bigpig.back.models.PriceSeries;
+import io.github.bigpig.back.repositories.PriceBarRepository;
+import io.github.bigpig.back.resilience.Priority;
+import io.github.bigpig.back.resilience.Upstream;
+import io.github.bigpig.back.resilience.UpstreamGateway;
+import io.github.bigpig.back.util.MarketCalendar;
+import io.github.bigpig.back.util.RequestCoalescer;
+import io.github.bigpig.back.util.SeriesDownsampler;
+import io.github.bigpig.back.util.TimeSeriesDecoder;
 import io.github.bigpig.back.util.UrlBuilder;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientResponseException;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.*;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.OptionalDouble;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 @Service
-@RequiredArgsConstructor
+@Slf4j
 public class PricesService {
 
+    public static final String CACHE_NAME = "priceSeries";
+
+    private static final String FUNCTION = "TIME_SERIES_DAILY";
+    // Repairs are coalesced apart, joining a plain load would skip the refetch
+    private static final String REPAIR = "TIME_SERIES_DAILY_REPAIR";
+
+    // The compact output size holds the last 100 bars, the full one about 25 years of them.
+    // Alpha Vantage only serves the full one to premium keys.
+    private static final String COMPACT = "compact";
+    private static final String FULL = "full";
+    private static final int COMPACT_BARS = 100;
+    private static final int FULL_BARS = 6500;
+
     private final UrlBuilder urlBuilder;
     private final RestClient restClient;
+    private final TimeSeriesDecoder timeSeriesDecoder;
+    private final SeriesDownsampler seriesDownsampler;
+    private final PriceBarRepository priceBarRepository;
+    private final RequestCoalescer requestCoalescer;
+    private final UpstreamGateway upstreamGateway;
+    private final Executor ioExecutor;
+    private final MarketCalendar marketCalendar;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Clock clock;
+    private final Duration syncInterval;
+    private final boolean fullHistory;
 
-    public List<PointDto> getPrices(String ticker) {
-        try {
-            String function = "TIME_SERIES_DAILY";
-            String url = urlBuilder.buildAlphaVintageUrl(ticker, function);
-            String json = restClient
-                    .get()
-                    .uri(url)
-                    .retrieve()
-                    .toEntity(String.class)
-                    .getBody();
+    private final Cache<String, PriceSeries> seriesCache;
+    private final Cache<String, Instant> lastSyncAttempts;
 
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode root = mapper.readTree(json);
+    public PricesService(UrlBuilder urlBuilder,
+                         RestClient restClient,
+                         TimeSeriesDecoder timeSeriesDecoder,
+                         SeriesDownsampler seriesDownsampler,
+                         PriceBarRepository priceBarRepository,
+                         RequestCoalescer requestCoalescer,
+                         UpstreamGateway upstreamGateway,
+                         @Qualifier(ExecutorConfig.IO_EXECUTOR) Executor ioExecutor,
+                         MarketCalendar marketCalendar,
+                         ApplicationEventPublisher eventPublisher,
+                         MeterRegistry meterRegistry,
+                         Clock clock,
+                         @Value("${app.prices.sync-interval:PT1H}") Duration syncInterval,
+                         @Value("${app.prices.full-history:false}") boolean fullHistory,
+                         @Value("${app.prices.cache-max-size:1000}") long maxSize) {
+        this.urlBuilder = urlBuilder;
+        this.restClient = restClient;
+        this.timeSeriesDecoder = timeSeriesDecoder;
+        this.seriesDownsampler = seriesDownsampler;
+        this.priceBarRepository = priceBarRepository;
+        this.requestCoalescer = requestCoalescer;
+        this.upstreamGateway = upstreamGateway;
+        this.ioExecutor = ioExecutor;
+        this.marketCalendar = marketCalendar;
+        this.eventPublisher = eventPublisher;
+        this.clock = clock;
+        this.syncInterval = syncInterval;
+        this.fullHistory = fullHistory;
+        // Keyed by whatever ticker users ask for, so both are bounded
+        this.seriesCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        this.lastSyncAttempts = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(syncInterval)
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, seriesCache, CACHE_NAME);
+    }
 
-            JsonNode timeSeries = root.get("Time Series (Daily)");
+    public PriceSeries getPrices(String ticker, LocalDate from, LocalDate to, Integer maxPoints) {
+        validateWindow(from, to, maxPoints);
+        return window(getPrices(ticker), from, to, maxPoints);
+    }
+
+    /**
+     * Serves an up-to-date series right away and syncs a stale one on the I/O executor,
+     * failing with {@link UpstreamUnavailableException} when that one is saturated.
+     * Cancelling the returned future withdraws the caller from the shared load, which is
+     * itself cancelled once no caller waits for it any more.
+     */
+    public CompletableFuture<PriceSeries> getPricesAsync(String ticker, LocalDate from, LocalDate to,
+                                                         Integer maxPoints) {
+        validateWindow(from, to, maxPoints);
+        String key = ticker.toUpperCase(Locale.ROOT);
+        PriceSeries cached = seriesCache.getIfPresent(key);
+        if (cached != null && !cached.isEmpty() && !cached.lastDate().isBefore(marketCalendar.lastClosedSession())) {
+            return CompletableFuture.completedFuture(window(cached, from, to, maxPoints));
+        }
+        CompletableFuture<PriceSeries> load = requestCoalescer.executeAsync(FUNCTION, key,
+                () -> loadPrices(key, Priority.INTERACTIVE, false), ioExecutor);
+        CompletableFuture<PriceSeries> chart = load.thenApply(series -> window(series, from, to, maxPoints));
+        chart.whenComplete((series, ex) -> load.cancel(false));
+        return chart;
+    }
 
-            List<PointDto> points = new ArrayList<>();
+    public PriceSeries getPrices(String ticker) {
+        String key = ticker.toUpperCase(Locale.ROOT);
+        return requestCoalescer.execute(FUNCTION, key, () -> loadPrices(key, Priority.INTERACTIVE, false));
+    }
 
-            Iterator<Map.Entry<String, JsonNode>> it = timeSeries.fields();
-            while (it.hasNext()) {
-                Map.Entry<String, JsonNode> entry = it.next();
-                String date = entry.getKey();
-                JsonNode dailyData = entry.getValue();
+    /**
+     * Syncs the stored series at background priority. Not coalesced with interactive callers,
+     * so a user never waits behind a refresh queued for quota; while the refresh runs, users
+     * are served the stored series.
+     */
+    public PriceSeries refreshPrices(String ticker) {
+        return loadPrices(ticker.toUpperCase(Locale.ROOT), Priority.BACKGROUND, false);
+    }
 
-                double high = dailyData.get("2. high").asDouble();
-                double low = dailyData.get("3. low").asDouble();
+    /**
+     * Whether a series with at least one bar has been loaded for the ticker.
+     */
+    public boolean hasPrices(String ticker) {
+        PriceSeries cached = seriesCache.getIfPresent(ticker.toUpperCase(Locale.ROOT));
+        return cached != null && !cached.isEmpty();
+    }
 
-                double avg_price = (high + low) / 2.0;
+    /**
+     * Refetches the history, in full when the key allows it, and corrects every stored bar
+     * that differs from it.
+     */
+    public PriceSeries repairPrices(String ticker) {
+        String key = ticker.toUpperCase(Locale.ROOT);
+        return requestCoalescer.execute(REPAIR, key, () -> loadPrices(key, Priority.INTERACTIVE, true));
+    }
 
-                BigDecimal bd = new BigDecimal(avg_price);
-                bd = bd.setScale(2, RoundingMode.HALF_UP);
-                Double price = bd.doubleValue();
+    private static void validateWindow(LocalDate from, LocalDate to, Integer maxPoints) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new InvalidRequestException(String.format("Range start %s is after range end %s", from, to));
+        }
+        if (maxPoints != null && maxPoints < SeriesDownsampler.MIN_POINTS) {
+            throw new InvalidRequestException(
+                    String.format("maxPoints must be at least %d", SeriesDownsampler.MIN_POINTS));
+        }
+    }
 
-                points.add(new PointDto(date, price));
+    private PriceSeries window(PriceSeries series, LocalDate from, LocalDate to, Integer maxPoints) {
+        PriceSeries range = series.slice(from, to);
+        return maxPoints == null ? range : seriesDownsampler.downsample(range, maxPoints);
+    }
 
+    private PriceSeries loadPrices(String key, Priority priority, boolean repair) {
+        PriceSeries series = seriesCache.getIfPresent(key);
+        if (series == null) {
+            series = PriceSeries.fromBars(priceBarRepository.findByTickerOrderByTradeDateAsc(key));
+        }
+
+        if (repair || needsSync(key, series.lastDate())) {
+            try {
+                series = sync(key, series, priority, fullHistory && (repair || needsFullHistory(series)));
+            } catch (FetchDataException | UpstreamUnavailableException ex) {
+                if (repair || series.isEmpty()) {
+                    throw ex;
+                }
+                log.warn("Serving stored prices for {}: {}", key, ex.getMessage());
+            }
+        } else if (series.isEmpty()) {
+            throw new FetchDataException(String.format("No prices data for ticker %s, retry later", key));
+        }
+
+        seriesCache.put(key, series);
+        return series;
+    }
+
+    /**
+     * Merges the fetched bars into the series, storing only new bars and bars whose
+     * price the upstream has corrected since they were stored. The stored points are
+     * published for the chart stream.
+     */
+    private PriceSeries sync(String ticker, PriceSeries series, Priority priority, boolean full) {
+        List<PriceBar> changed = new ArrayList<>();
+        for (PriceBar bar : fetchBars(ticker, priority, full)) {
+            OptionalDouble stored = series.priceOn(bar.getTradeDate());
+            if (stored.isEmpty()) {
+                changed.add(bar);
+            } else if (stored.getAsDouble() != PriceSeries.midPrice(bar.getHigh(), bar.getLow())) {
+                bar.setPersisted(true);
+                changed.add(bar);
             }
+        }
+        if (changed.isEmpty()) {
+            return series;
+        }
+        priceBarRepository.saveAll(changed);
+        PriceSeries merged = series.merge(changed);
+        List<PointDto> points = new ArrayList<>(changed.size());
+        for (PriceBar bar : changed) {
+            points.add(new PointDto(bar.getTradeDate().toString(),
+                    PriceSeries.midPrice(bar.getHigh(), bar.getLow())));
+        }
+        eventPublisher.publishEvent(new PriceUpdateDto(ticker, points));
+        return merged;
+    }
 
-            Collections.reverse(points);
-            return points;
+    // A compact response only reaches back 100 sessions, an older gap needs the full history
+    private boolean needsFullHistory(PriceSeries series) {
+        return series.isEmpty()
+                || MarketCalendar.tradingDaysBetween(series.lastDate(), marketCalendar.lastClosedSession())
+                        >= COMPACT_BARS;
+    }
+
+    private boolean needsSync(String ticker, LocalDate lastStored) {
+        if (lastStored != null && !lastStored.isBefore(marketCalendar.lastClosedSession())) {
+            return false;
+        }
+        // Exchange holidays and late upstream updates leave the last session without a bar,
+        // so a stale ticker is re-checked at most once per sync interval. So is a ticker
+        // without bars, which the upstream may not know at all.
+        // Recording the attempt atomically also keeps a background refresh and a user
+        // from syncing the same ticker at the same time.
+        Instant now = clock.instant();
+        boolean[] due = new boolean[1];
+        lastSyncAttempts.asMap().compute(ticker, (key, lastAttempt) -> {
+            if (lastAttempt != null && lastAttempt.plus(syncInterval).isAfter(now)) {
+                return lastAttempt;
+            }
+            due[0] = true;
+            return now;
+        });
+        return due[0];
+    }
+
+    private List<PriceBar> fetchBars(String ticker, Priority priority, boolean full) {
+        try {
+            String url = urlBuilder.buildAlphaVintageUrl(ticker, FUNCTION, full ? FULL : COMPACT);
+            return upstreamGateway.execute(Upstream.ALPHA_VANTAGE, FUNCTION, priority, () -> restClient
+                    .get()
+                    .uri(url)
+                    .exchange((request, response) -> {
+                        if (response.getStatusCode().isError()) {
+                            throw new RestClientResponseException(String.format(
+                                    "Prices request for %s failed with status %s", ticker, response.getStatusCode()),
+                                    response.getStatusCode(), response.getStatusText(), null, null, null);
+                        }
+                        return timeSeriesDecoder.decode(response.getBody(), ticker, null,
+                                full ? FULL_BARS : COMPACT_BARS);
+                    }));
+        } catch (UpstreamUnavailableException ex) {
+            throw ex;
         } catch (Exception e) {
             throw new FetchDataException(String.format("Failed to fetch prices data for ticker: %s", ticker));
         }
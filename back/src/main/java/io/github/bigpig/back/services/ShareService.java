@@ -1,33 +1,148 @@
 package io.github.bigpig.back.services;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.github.bigpig.back.config.ExecutorConfig;
 import io.github.bigpig.back.dto.ShareDto;
 import io.github.bigpig.back.exceptions.FetchDataException;
+import io.github.bigpig.back.exceptions.UpstreamUnavailableException;
+import io.github.bigpig.back.resilience.Priority;
+import io.github.bigpig.back.resilience.Upstream;
+import io.github.bigpig.back.resilience.UpstreamGateway;
+import io.github.bigpig.back.util.MarketCalendar;
+import io.github.bigpig.back.util.RequestCoalescer;
 import io.github.bigpig.back.util.UrlBuilder;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
 @Service
-@RequiredArgsConstructor
 public class ShareService {
 
+    public static final String CACHE_NAME = "shareOverviews";
+
+    private static final String FUNCTION = "OVERVIEW";
+
     private final UrlBuilder urlBuilder;
     private final RestClient restClient;
+    private final RequestCoalescer requestCoalescer;
+    private final UpstreamGateway upstreamGateway;
+    private final Executor ioExecutor;
+    private final Cache<String, ShareDto> overviews;
+
+    public ShareService(UrlBuilder urlBuilder,
+                        RestClient restClient,
+                        RequestCoalescer requestCoalescer,
+                        UpstreamGateway upstreamGateway,
+                        @Qualifier(ExecutorConfig.IO_EXECUTOR) Executor ioExecutor,
+                        MarketCalendar marketCalendar,
+                        MeterRegistry meterRegistry,
+                        Clock clock,
+                        @Value("${app.share-cache.max-size:1000}") long maxSize) {
+        this.urlBuilder = urlBuilder;
+        this.restClient = restClient;
+        this.requestCoalescer = requestCoalescer;
+        this.upstreamGateway = upstreamGateway;
+        this.ioExecutor = ioExecutor;
+        this.overviews = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilMarketClose(marketCalendar, clock))
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, overviews, CACHE_NAME);
+    }
 
     public ShareDto getMainInfo(String ticker) {
-        String function = "OVERVIEW";
-        String url = urlBuilder.buildAlphaVintageUrl(ticker, function);
+        String key = ticker.toUpperCase(Locale.ROOT);
+        ShareDto cached = overviews.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        return requestCoalescer.execute(FUNCTION, key, () -> loadMainInfo(key, Priority.INTERACTIVE));
+    }
+
+    /**
+     * Loads the overview on the I/O executor. Cancelling the returned future withdraws the
+     * caller from the shared load, which is itself cancelled once no caller waits for it.
+     */
+    public CompletableFuture<ShareDto> getMainInfoAsync(String ticker) {
+        String key = ticker.toUpperCase(Locale.ROOT);
+        ShareDto cached = overviews.getIfPresent(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return requestCoalescer.executeAsync(FUNCTION, key,
+                () -> loadMainInfo(key, Priority.INTERACTIVE), ioExecutor);
+    }
+
+    /**
+     * Reloads the overview at background priority. Not coalesced with interactive callers,
+     * so a user never waits behind a refresh queued for quota.
+     */
+    public ShareDto refreshMainInfo(String ticker) {
+        return loadMainInfo(ticker.toUpperCase(Locale.ROOT), Priority.BACKGROUND);
+    }
+
+    private ShareDto loadMainInfo(String ticker, Priority priority) {
+        ShareDto info = fetchMainInfo(ticker, priority);
+        overviews.put(ticker, info);
+        return info;
+    }
+
+    private ShareDto fetchMainInfo(String ticker, Priority priority) {
+        String url = urlBuilder.buildAlphaVintageUrl(ticker, FUNCTION);
         ShareDto info;
         try {
-            info = restClient
+            info = upstreamGateway.execute(Upstream.ALPHA_VANTAGE, FUNCTION, priority, () -> restClient
                 .get()
                 .uri(url)
                 .retrieve()
                 .toEntity(ShareDto.class)
-                .getBody();
+                .getBody());
+        } catch (UpstreamUnavailableException ex) {
+            throw ex;
         } catch (Exception ex) {
             throw new FetchDataException(String.format("Failed to fetch share data for ticker: %s", ticker));
         }
+        // Throttling and unknown symbols are answered with 200 and an Information note or an empty object
+        if (info == null || info.ticker() == null || info.ticker().isBlank()) {
+            throw new FetchDataException(String.format("No share data for ticker: %s", ticker));
+        }
         return info;
     }
+
+    /**
+     * Fundamentals only change once a session has closed, so an overview stays valid until
+     * the next close, over a weekend or holiday too.
+     */
+    private record UntilMarketClose(MarketCalendar marketCalendar, Clock clock)
+            implements Expiry<String, ShareDto> {
+
+        @Override
+        public long expireAfterCreate(String ticker, ShareDto info, long currentTime) {
+            return Duration.between(clock.instant(), marketCalendar.nextClose()).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String ticker, ShareDto info, long currentTime, long currentDuration) {
+            return expireAfterCreate(ticker, info, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String ticker, ShareDto info, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
@@ -5,32 +5,20 @@ import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
+/**
+ * Splits an AI analysis into its sections. The headers are located in a single scan and
+ * each section is cut and whitespace-normalized in place, so the cost stays linear in the
+ * length of the response whatever the model wrote.
+ */
 @Component
 public class AnalysisParser {
 
-    Pattern OVERALL_PATTERN = Pattern.compile(
-            "Overall Assessment:\\s*(.*?)\\s*Attractiveness Rating:",
-            Pattern.DOTALL
-    );
-
-
-    Pattern RATING_PATTERN = Pattern.compile(
-            "Attractiveness Rating:\\s*(.*?)\\s*Pros: ",
-            Pattern.DOTALL
-    );
-
-    Pattern PROS_PATTERN = Pattern.compile(
-            "Pros:\\s*(.*?)\\s*Cons: ",
-            Pattern.DOTALL
-    );
-
-    Pattern CONS_PATTERN = Pattern.compile(
-            "Cons:\\s*(.*?)(?=\\n\\n|\\z)",
-            Pattern.DOTALL
-    );
+    private static final String OVERALL = "Overall Assessment:";
+    private static final String RATING = "Attractiveness Rating:";
+    private static final String PROS = "Pros:";
+    private static final String CONS = "Cons:";
+    private static final String NOT_FOUND = "Not found";
 
     public AnalyseDto parseAnalyse(String analyse) {
         if (analyse == null || analyse.trim().isEmpty()) {
@@ -38,51 +26,163 @@ public class AnalysisParser {
         }
 
         analyse = analyse.replace("\\n", "\n").trim();
-
-        String overallAssessment = extractOverallAssessment(analyse);
-        String rating = extractRating(analyse);
-        List<String> pros = getItems(analyse, PROS_PATTERN);
-        List<String> cons = getItems(analyse, CONS_PATTERN);
+        Sections sections = Sections.scan(analyse);
 
         return new AnalyseDto(
-                overallAssessment,
-                rating,
-                pros,
-                cons
+                overallAssessment(analyse, sections),
+                rating(analyse, sections),
+                items(analyse, sections.pros + PROS.length(), sections.prosEnd),
+                items(analyse, sections.cons + CONS.length(), consEnd(analyse, sections.cons))
         );
     }
 
     public String extractOverallAssessment(String analyse) {
-        Matcher matcher = OVERALL_PATTERN.matcher(analyse);
-        if (matcher.find()) {
-            return matcher.group(1).replace("\\n", " ").replaceAll("\\s+", " ").trim();
-        }
-        return "Overall assessment not found";
+        return overallAssessment(analyse, Sections.scan(analyse));
     }
 
     public String extractRating(String analyse) {
-        Matcher matcher = RATING_PATTERN.matcher(analyse);
-        if (matcher.find()) {
-            return matcher.group(1).replace("\\n", " ").replaceAll("\\s+", " ").trim();
+        return rating(analyse, Sections.scan(analyse));
+    }
+
+    private static String overallAssessment(String analyse, Sections sections) {
+        if (sections.overallEnd < 0) {
+            return "Overall assessment not found";
         }
-        return "Rating not found";
+        return normalize(analyse, sections.overall + OVERALL.length(), sections.overallEnd);
     }
 
-    List<String> getItems(String content, Pattern pattern) {
+    private static String rating(String analyse, Sections sections) {
+        if (sections.ratingEnd < 0) {
+            return "Rating not found";
+        }
+        return normalize(analyse, sections.rating + RATING.length(), sections.ratingEnd);
+    }
+
+    // The last section runs up to the first blank line, anything after it is commentary
+    private static int consEnd(String analyse, int cons) {
+        if (cons < 0) {
+            return -1;
+        }
+        int start = cons + CONS.length();
+        while (start < analyse.length() && isSpace(analyse.charAt(start))) {
+            start++;
+        }
+        int blankLine = analyse.indexOf("\n\n", start);
+        return blankLine < 0 ? analyse.length() : blankLine;
+    }
+
+    private static List<String> items(String analyse, int from, int to) {
+        if (to < 0) {
+            return List.of(NOT_FOUND);
+        }
         List<String> items = new ArrayList<>();
-        Matcher matcher = pattern.matcher(content);
-
-        if (matcher.find()) {
-            String[] pros = matcher.group(1).replace("\\n", " ").replaceAll("\\s+", " ").trim().split(",");
-            for (String item : pros) {
-                String capitalized = Character.toUpperCase(item.trim().charAt(0)) +
-                        (item.trim().length() > 1 ? item.trim().substring(1) : "");
-                items.add(capitalized);
+        for (String item : normalize(analyse, from, to).split(",")) {
+            String trimmed = item.trim();
+            if (trimmed.isEmpty()) {
+                throw new IllegalArgumentException("Analysis list has an empty item");
             }
-        } else {
-            items.add("Not found");
+            items.add(Character.toUpperCase(trimmed.charAt(0)) + trimmed.substring(1));
+        }
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("Analysis list has no items");
         }
-
         return items;
     }
-}
\ No newline at end of file
+
+    /**
+     * Collapses every run of whitespace, escaped line breaks included, into a single space.
+     */
+    private static String normalize(String analyse, int from, int to) {
+        StringBuilder normalized = new StringBuilder(to - from);
+        boolean space = false;
+        for (int i = from; i < to; i++) {
+            char c = analyse.charAt(i);
+            if (c == '\\' && i + 1 < to && analyse.charAt(i + 1) == 'n') {
+                space = true;
+                i++;
+            } else if (isSpace(c)) {
+                space = true;
+            } else {
+                if (space) {
+                    normalized.append(' ');
+                    space = false;
+                }
+                normalized.append(c);
+            }
+        }
+        if (space) {
+            normalized.append(' ');
+        }
+        return normalized.toString().trim();
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Header positions, -1 when absent. A section ends at the first header of the next
+     * section that follows it; the rating and pros sections only end at a header followed
+     * by a space, as the AI service writes them.
+     */
+    private static final class Sections {
+
+        private int overall = -1;
+        private int overallEnd = -1;
+        private int rating = -1;
+        private int ratingEnd = -1;
+        private int pros = -1;
+        private int prosEnd = -1;
+        private int cons = -1;
+
+        private static Sections scan(String analyse) {
+            Sections sections = new Sections();
+            for (int i = 0; i < analyse.length(); i++) {
+                switch (analyse.charAt(i)) {
+                    case 'O' -> {
+                        if (sections.overall < 0 && analyse.startsWith(OVERALL, i)) {
+                            sections.overall = i;
+                        }
+                    }
+                    case 'A' -> {
+                        if (analyse.startsWith(RATING, i)) {
+                            if (sections.rating < 0) {
+                                sections.rating = i;
+                            }
+                            if (sections.overall >= 0 && sections.overallEnd < 0) {
+                                sections.overallEnd = i;
+                            }
+                        }
+                    }
+                    case 'P' -> {
+                        if (analyse.startsWith(PROS, i)) {
+                            if (sections.pros < 0) {
+                                sections.pros = i;
+                            }
+                            if (sections.rating >= 0 && sections.ratingEnd < 0 && followedBySpace(analyse, i, PROS)) {
+                                sections.ratingEnd = i;
+                            }
+                        }
+                    }
+                    case 'C' -> {
+                        if (analyse.startsWith(CONS, i)) {
+                            if (sections.cons < 0) {
+                                sections.cons = i;
+                            }
+                            if (sections.pros >= 0 && sections.prosEnd < 0 && followedBySpace(analyse, i, CONS)) {
+                                sections.prosEnd = i;
+                            }
+                        }
+                    }
+                    default -> { }
+                }
+            }
+            return sections;
+        }
+
+        private static boolean followedBySpace(String analyse, int header, String name) {
+            int after = header + name.length();
+            return after < analyse.length() && analyse.charAt(after) == ' ';
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package io.github.bigpig.back.util;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public final class Digests {
+
+    private Digests() {
+    }
+
+    /**
+     * A new SHA-256 digest; every JVM has to provide the algorithm.
+     */
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+}
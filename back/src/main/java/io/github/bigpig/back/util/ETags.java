@@ -0,0 +1,83 @@
+package io.github.bigpig.back.util;
+
+import io.github.bigpig.back.dto.AnalyseDto;
+import io.github.bigpig.back.dto.ShareDto;
+import io.github.bigpig.back.models.PriceSeries;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Strong entity tags computed from response content, so the same data gets the same tag
+ * on every request, restart and instance.
+ */
+public final class ETags {
+
+    // 128 bits of SHA-256 keep the header short and collisions out of reach
+    private static final int TAG_BYTES = 16;
+
+    private ETags() {
+    }
+
+    public static String of(ShareDto share) {
+        MessageDigest digest = Digests.sha256();
+        if (share != null) {
+            update(digest, share.ticker());
+            update(digest, share.name());
+            update(digest, share.marketCap());
+            update(digest, share.eps());
+            update(digest, share.priceToEarnings());
+            update(digest, share.priceToSales());
+            update(digest, share.priceToBook());
+        }
+        return tag(digest);
+    }
+
+    public static String of(AnalyseDto analyse) {
+        MessageDigest digest = Digests.sha256();
+        if (analyse != null) {
+            update(digest, analyse.overallAssessment());
+            update(digest, analyse.rating());
+            update(digest, analyse.pros());
+            update(digest, analyse.cons());
+        }
+        return tag(digest);
+    }
+
+    public static String of(PriceSeries series) {
+        MessageDigest digest = Digests.sha256();
+        ByteBuffer bars = ByteBuffer.allocate(series.size() * (Integer.BYTES + Double.BYTES));
+        for (int i = 0; i < series.size(); i++) {
+            bars.putInt(series.epochDayAt(i)).putDouble(series.priceAt(i));
+        }
+        digest.update(bars.array());
+        return tag(digest);
+    }
+
+    private static void update(MessageDigest digest, List<String> values) {
+        if (values == null) {
+            digest.update((byte) 0);
+            return;
+        }
+        digest.update(ByteBuffer.allocate(1 + Integer.BYTES).put((byte) 1).putInt(values.size()).array());
+        values.forEach(value -> update(digest, value));
+    }
+
+    // Length-prefixed, so ("ab", "c") and ("a", "bc") hash differently
+    private static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update((byte) 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(1 + Integer.BYTES).put((byte) 1).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    private static String tag(MessageDigest digest) {
+        return '"' + HexFormat.of().formatHex(digest.digest(), 0, TAG_BYTES) + '"';
+    }
+}
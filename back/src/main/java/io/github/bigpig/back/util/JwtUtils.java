@@ -1,31 +1,68 @@
 package io.github.bigpig.back.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtils {
 
-    @Value("${app.jwtSecret}")
-    private String jwtSecret;
+    static final String CACHE_NAME = "jwtVerifications";
 
-    @Value("${app.jwtExpirationMs}")
-    private int jwtExpirationMs;
+    private final SecretKey key;
+    private final JwtParser parser;
+    private final int jwtExpirationMs;
+    private final Clock clock;
 
-    private SecretKey key() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    // Verified tokens by SHA-256 of the token, so raw bearer tokens are not kept on the heap.
+    // No token outlives the expiration we issue, a token expiring earlier is checked on every hit.
+    private final Cache<String, VerifiedToken> verified;
+
+    public JwtUtils(@Value("${app.jwtSecret}") String jwtSecret,
+                    @Value("${app.jwtExpirationMs}") int jwtExpirationMs,
+                    @Value("${app.jwt-cache.max-size:10000}") long cacheMaxSize,
+                    MeterRegistry meterRegistry,
+                    Clock clock) {
+        this.key = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.parser = Jwts.parser()
+                .verifyWith(key)
+                .clock(() -> Date.from(clock.instant()))
+                .build();
+        this.jwtExpirationMs = jwtExpirationMs;
+        this.clock = clock;
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(Duration.ofMillis(jwtExpirationMs))
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, CACHE_NAME);
     }
 
+    /**
+     * Subject and roles of a token whose signature and expiration have been checked.
+     */
+    public record VerifiedToken(String username, List<String> roles, Instant expiresAt) {}
+
     public String generateJwtToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
         List<String> rolesList = userDetails.getAuthorities().stream()
@@ -33,32 +70,52 @@ public class JwtUtils {
                 .toList();
         claims.put("roles", rolesList);
 
+        Instant now = clock.instant();
         return Jwts.builder()
                 .claims(claims)
                 .subject(userDetails.getUsername())
-                .issuedAt(new Date())
-                .expiration(new Date(System.currentTimeMillis() + jwtExpirationMs))
-                .signWith(key(), Jwts.SIG.HS256)
+                .issuedAt(Date.from(now))
+                .expiration(Date.from(now.plusMillis(jwtExpirationMs)))
+                .signWith(key, Jwts.SIG.HS256)
                 .compact();
     }
 
-    @SuppressWarnings("unchecked")
-    public List<String> getRolesFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(key())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    /**
+     * Verifies the token once and returns subject and roles together. A token seen before
+     * is served from the cache until it expires, so repeated requests skip the HMAC check
+     * and the JSON parsing.
+     */
+    public VerifiedToken verify(String token) {
+        String hash = hash(token);
+        VerifiedToken cached = verified.getIfPresent(hash);
+        if (cached != null && cached.expiresAt().isAfter(clock.instant())) {
+            return cached;
+        }
+        VerifiedToken parsed = parse(token);
+        if (parsed.expiresAt() != null) {
+            verified.put(hash, parsed);
+        }
+        return parsed;
+    }
 
-        return (List<String>) claims.get("roles", List.class);
+    public List<String> getRolesFromToken(String token) {
+        return verify(token).roles();
     }
 
     public String getUserNameFromJwtToken(String token) {
-        return Jwts.parser()
-                .verifyWith(key())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getSubject();
+        return verify(token).username();
+    }
+
+    @SuppressWarnings("unchecked")
+    private VerifiedToken parse(String token) {
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        List<String> roles = (List<String>) claims.get("roles", List.class);
+        Date expiration = claims.getExpiration();
+        return new VerifiedToken(claims.getSubject(), roles == null ? null : List.copyOf(roles),
+                expiration == null ? null : expiration.toInstant());
+    }
+
+    private static String hash(String token) {
+        return Base64.getEncoder().encodeToString(Digests.sha256().digest(token.getBytes(StandardCharsets.UTF_8)));
     }
-}
\ No newline at end of file
+}
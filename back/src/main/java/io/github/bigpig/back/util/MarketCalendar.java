@@ -0,0 +1,78 @@
+package io.github.bigpig.back.util;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * US equity trading sessions as seen by Alpha Vantage daily bars.
+ * Exchange holidays are not modelled, callers must tolerate a missing bar.
+ */
+@Component
+public class MarketCalendar {
+
+    public static final String MARKET_ZONE_ID = "America/New_York";
+    public static final ZoneId MARKET_ZONE = ZoneId.of(MARKET_ZONE_ID);
+    public static final LocalTime MARKET_CLOSE = LocalTime.of(16, 0);
+
+    private final Clock clock;
+
+    public MarketCalendar(Clock clock) {
+        this.clock = clock;
+    }
+
+    public LocalDate lastClosedSession() {
+        ZonedDateTime now = ZonedDateTime.now(clock).withZoneSameInstant(MARKET_ZONE);
+        LocalDate session = now.toLocalDate();
+        if (now.toLocalTime().isBefore(MARKET_CLOSE)) {
+            session = session.minusDays(1);
+        }
+        return previousOrSameTradingDay(session);
+    }
+
+    /**
+     * Close of the session in progress, or of the next session once today's has closed.
+     */
+    public Instant nextClose() {
+        ZonedDateTime now = ZonedDateTime.now(clock).withZoneSameInstant(MARKET_ZONE);
+        LocalDate session = now.toLocalDate();
+        if (!now.toLocalTime().isBefore(MARKET_CLOSE)) {
+            session = session.plusDays(1);
+        }
+        while (!isTradingDay(session)) {
+            session = session.plusDays(1);
+        }
+        return session.atTime(MARKET_CLOSE).atZone(MARKET_ZONE).toInstant();
+    }
+
+    public static boolean isTradingDay(LocalDate date) {
+        DayOfWeek day = date.getDayOfWeek();
+        return day != DayOfWeek.SATURDAY && day != DayOfWeek.SUNDAY;
+    }
+
+    /**
+     * Counts the trading days after {@code after} up to and including {@code upTo}.
+     */
+    public static int tradingDaysBetween(LocalDate after, LocalDate upTo) {
+        int count = 0;
+        for (LocalDate day = after.plusDays(1); !day.isAfter(upTo); day = day.plusDays(1)) {
+            if (isTradingDay(day)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static LocalDate previousOrSameTradingDay(LocalDate date) {
+        while (!isTradingDay(date)) {
+            date = date.minusDays(1);
+        }
+        return date;
+    }
+}
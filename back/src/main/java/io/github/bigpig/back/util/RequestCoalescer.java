@@ -0,0 +1,205 @@
+package io.github.bigpig.back.util;
+
+import io.github.bigpig.back.exceptions.DeadlineExceededException;
+import io.github.bigpig.back.exceptions.UpstreamUnavailableException;
+import io.github.bigpig.back.resilience.CancellationScope;
+import io.github.bigpig.back.resilience.Deadline;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution of upstream calls: while a call for a (function, ticker)
+ * pair is running, identical calls wait for it and receive its result or exception
+ * instead of starting their own. Callers may give up, asynchronous ones by cancelling and
+ * waiting ones when their {@link Deadline} passes; the call itself is only cancelled once
+ * no caller is waiting for it any more. It runs under the latest deadline of its callers,
+ * so a caller with a short deadline never cuts the call short for the others.
+ */
+@Component
+public class RequestCoalescer {
+
+    public static final String COLLAPSED_CALLS_METRIC = "upstream.calls.collapsed";
+    public static final String CANCELLED_CALLS_METRIC = "upstream.calls.cancelled";
+
+    private final Map<Key, Flight> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public RequestCoalescer(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String function, String ticker, Supplier<T> call) {
+        Key key = new Key(function, ticker.toUpperCase(Locale.ROOT));
+        Flight flight = new Flight(Deadline.current());
+        Flight boarded = board(key, flight);
+        if (boarded == flight) {
+            // The first caller runs the call on its own thread, the others only wait
+            run(key, flight, call);
+        }
+        return (T) await(key, boarded);
+    }
+
+    /**
+     * Runs the call on {@code executor}, or joins the identical call in flight. Each caller
+     * gets its own future: cancelling it withdraws only that caller, and when the last one
+     * withdraws the call is cancelled, aborting its HTTP exchange if it has started. When
+     * {@code executor} rejects the call, its callers fail with {@link UpstreamUnavailableException}.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> executeAsync(String function, String ticker, Supplier<T> call,
+                                                 Executor executor) {
+        Key key = new Key(function, ticker.toUpperCase(Locale.ROOT));
+        Flight flight = new Flight(Deadline.current());
+        Flight boarded = board(key, flight);
+        if (boarded == flight) {
+            try {
+                executor.execute(() -> run(key, flight, call));
+            } catch (RejectedExecutionException ex) {
+                flight.result.completeExceptionally(new UpstreamUnavailableException(String.format(
+                        "Too many requests in flight to load %s of %s", key.function(), key.ticker())));
+                inFlight.remove(key, flight);
+            }
+        }
+        CompletableFuture<T> caller = new CompletableFuture<>();
+        boarded.result.whenComplete((value, ex) -> {
+            if (ex == null) {
+                caller.complete((T) value);
+            } else {
+                caller.completeExceptionally(ex instanceof CompletionException ? ex.getCause() : ex);
+            }
+        });
+        caller.whenComplete((value, ex) -> {
+            if (caller.isCancelled()) {
+                giveUp(key, boarded);
+            }
+        });
+        return caller;
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Joins the identical call in flight, or registers {@code flight} for the caller to run.
+     */
+    private Flight board(Key key, Flight flight) {
+        while (true) {
+            Flight existing = inFlight.putIfAbsent(key, flight);
+            if (existing == null) {
+                return flight;
+            }
+            if (existing.acquire(Deadline.current())) {
+                collapsedCalls(key.function()).increment();
+                return existing;
+            }
+            // Every caller gave up on it, an abandoned call is not worth waiting for
+            inFlight.remove(key, existing);
+        }
+    }
+
+    private void run(Key key, Flight flight, Supplier<?> call) {
+        try {
+            // Skipped when every caller gave up before the executor got to it
+            if (!flight.result.isDone()) {
+                flight.result.complete(flight.scope.call(() -> flight.deadline.call(call)));
+            }
+        } catch (RuntimeException | Error ex) {
+            flight.result.completeExceptionally(ex);
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private Counter collapsedCalls(String function) {
+        return Counter.builder(COLLAPSED_CALLS_METRIC)
+                .description("Upstream calls served by an identical call already in flight")
+                .tag("function", function)
+                .register(meterRegistry);
+    }
+
+    private Counter cancelledCalls(String function) {
+        return Counter.builder(CANCELLED_CALLS_METRIC)
+                .description("Upstream calls cancelled because every caller gave up on them")
+                .tag("function", function)
+                .register(meterRegistry);
+    }
+
+    private Object await(Key key, Flight flight) {
+        Deadline deadline = Deadline.current();
+        CompletableFuture<Object> result = deadline == null ? flight.result
+                : flight.result.copy().orTimeout(deadline.remaining().toNanos(), TimeUnit.NANOSECONDS);
+        try {
+            return result.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof TimeoutException) {
+                giveUp(key, flight);
+                throw new DeadlineExceededException(String.format("Request deadline passed waiting for %s of %s",
+                        key.function(), key.ticker()));
+            }
+            throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+        }
+    }
+
+    private void giveUp(Key key, Flight flight) {
+        if (flight.release()) {
+            cancelledCalls(key.function()).increment();
+        }
+    }
+
+    private record Key(String function, String ticker) {
+    }
+
+    private static final class Flight {
+
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        private final CancellationScope scope = new CancellationScope();
+        private final Deadline deadline;
+        private int waiters = 1;
+
+        private Flight(Deadline starter) {
+            this.deadline = Deadline.shared(starter);
+        }
+
+        /**
+         * Adds a caller, giving the call until that caller's deadline if it is later.
+         */
+        synchronized boolean acquire(Deadline joiner) {
+            if (waiters > 0) {
+                waiters++;
+                deadline.extendTo(joiner);
+            }
+            return waiters > 0;
+        }
+
+        /**
+         * Withdraws one caller, cancelling the call when it was the last one still waiting.
+         */
+        boolean release() {
+            synchronized (this) {
+                if (--waiters > 0) {
+                    return false;
+                }
+            }
+            // Fails when the call has just finished, then there is nothing left to abort
+            boolean cancelled = result.cancel(false);
+            if (cancelled) {
+                scope.cancel();
+            }
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package io.github.bigpig.back.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized JSON bodies, and their gzip encoding, of hot responses. An entry is keyed by
+ * endpoint and parameters and holds the entity tag of the data it was rendered from, so a
+ * request whose data still has that tag is answered with a copy of the stored bytes and a
+ * change of data simply renders a new body.
+ */
+@Component
+public class ResponseBodyCache {
+
+    public static final String CACHE_NAME = "responseBodies";
+
+    private static final String GZIP = "gzip";
+
+    private final ObjectMapper objectMapper;
+    private final int minCompressSize;
+    private final Cache<String, Body> bodies;
+
+    public ResponseBodyCache(ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.response-cache.max-bytes:67108864}") long maxBytes,
+                             @Value("${app.response-cache.min-compress-size:1024}") int minCompressSize) {
+        this.objectMapper = objectMapper;
+        this.minCompressSize = minCompressSize;
+        this.bodies = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .<String, Body>weigher((key, body) -> body.size())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, bodies, CACHE_NAME);
+    }
+
+    /**
+     * Completes the response with the JSON of {@code value}, gzip encoded when the client
+     * accepts it. The encoded representation gets its own entity tag. {@code value} is only
+     * called when no body is stored for the tag.
+     *
+     * @param key  endpoint and normalized parameters the body is stored under
+     * @param eTag entity tag of {@code value}, from {@link ETags}
+     */
+    public ResponseEntity<byte[]> render(ResponseEntity.BodyBuilder response, String key, String eTag,
+                                         Supplier<?> value, String acceptEncoding) {
+        Body body = bodies.getIfPresent(key);
+        if (body == null || !body.eTag().equals(eTag)) {
+            body = serialize(eTag, value.get());
+            bodies.put(key, body);
+        }
+        response.contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (body.gzip() != null && acceptsGzip(acceptEncoding)) {
+            return response.eTag(gzipETag(eTag))
+                    .header(HttpHeaders.CONTENT_ENCODING, GZIP)
+                    .body(body.gzip());
+        }
+        return response.eTag(eTag).body(body.json());
+    }
+
+    private Body serialize(String eTag, Object value) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(value);
+            return new Body(eTag, json, json.length < minCompressSize ? null : gzip(json));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed to serialize response body", ex);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(json);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return compressed.toByteArray();
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (parts[0].trim().equalsIgnoreCase(GZIP)) {
+                return parts.length == 1 || quality(parts[1].trim()) > 0;
+            }
+        }
+        return false;
+    }
+
+    private static double quality(String parameter) {
+        if (!parameter.startsWith("q=")) {
+            return 1;
+        }
+        try {
+            return Double.parseDouble(parameter.substring(2));
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+    // A strong tag must differ between the identity and the gzip representation
+    private static String gzipETag(String eTag) {
+        return eTag.substring(0, eTag.length() - 1) + "-gzip\"";
+    }
+
+    private record Body(String eTag, byte[] json, byte[] gzip) {
+
+        int size() {
+            return json.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+}
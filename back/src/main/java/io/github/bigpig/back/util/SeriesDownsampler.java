@@ -0,0 +1,71 @@
+package io.github.bigpig.back.util;
+
+import io.github.bigpig.back.models.PriceSeries;
+import org.springframework.stereotype.Component;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling. Keeps the first and last point and,
+ * for every bucket in between, the point forming the largest triangle with the
+ * previously kept point and the average of the next bucket, which preserves the
+ * visual peaks and troughs of the chart.
+ */
+@Component
+public class SeriesDownsampler {
+
+    public static final int MIN_POINTS = 3;
+
+    public PriceSeries downsample(PriceSeries series, int maxPoints) {
+        if (maxPoints < MIN_POINTS) {
+            throw new IllegalArgumentException("maxPoints must be at least " + MIN_POINTS);
+        }
+        int size = series.size();
+        if (size <= maxPoints) {
+            return series;
+        }
+
+        int[] days = new int[maxPoints];
+        double[] prices = new double[maxPoints];
+        days[0] = series.epochDayAt(0);
+        prices[0] = series.priceAt(0);
+
+        int buckets = maxPoints - 2;
+        double bucketSize = (double) (size - 2) / buckets;
+        int selected = 0;
+
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            int start = (int) (bucket * bucketSize) + 1;
+            int end = (int) ((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, size);
+
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = end; i < nextEnd; i++) {
+                avgX += series.epochDayAt(i);
+                avgY += series.priceAt(i);
+            }
+            avgX /= nextEnd - end;
+            avgY /= nextEnd - end;
+
+            double ax = series.epochDayAt(selected);
+            double ay = series.priceAt(selected);
+            double maxArea = -1;
+            int best = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((ax - avgX) * (series.priceAt(i) - ay)
+                        - (ax - series.epochDayAt(i)) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    best = i;
+                }
+            }
+
+            days[bucket + 1] = series.epochDayAt(best);
+            prices[bucket + 1] = series.priceAt(best);
+            selected = best;
+        }
+
+        days[maxPoints - 1] = series.epochDayAt(size - 1);
+        prices[maxPoints - 1] = series.priceAt(size - 1);
+        return PriceSeries.of(days, prices);
+    }
+}
@@ -0,0 +1,52 @@
+package io.github.bigpig.back.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts successful requests per ticker so the most requested ones can be kept warm.
+ * {@link #decay()} halves every count, so the ranking follows recent demand.
+ */
+@Component
+public class TickerPopularity {
+
+    private final Map<String, AtomicLong> counts = new ConcurrentHashMap<>();
+    private final int maxTracked;
+
+    public TickerPopularity(@Value("${app.prewarm.max-tracked-tickers:10000}") int maxTracked) {
+        this.maxTracked = maxTracked;
+    }
+
+    public void record(String ticker) {
+        String key = ticker.toUpperCase(Locale.ROOT);
+        AtomicLong count = counts.get(key);
+        if (count == null) {
+            if (counts.size() >= maxTracked) {
+                return;
+            }
+            count = counts.computeIfAbsent(key, k -> new AtomicLong());
+        }
+        count.incrementAndGet();
+    }
+
+    public List<String> hottest(int limit) {
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, AtomicLong>comparingByValue(
+                        Comparator.comparingLong(AtomicLong::get)).reversed())
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    public void decay() {
+        counts.values().forEach(count -> count.updateAndGet(c -> c / 2));
+        counts.values().removeIf(count -> count.get() == 0);
+    }
+}
@@ -0,0 +1,180 @@
+package io.github.bigpig.back.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.github.bigpig.back.models.PriceBar;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Streaming decoder for the Alpha Vantage TIME_SERIES_DAILY payload.
+ * Only the high and low of every bar are read, everything else is skipped
+ * token by token without building a tree.
+ */
+@Component
+public class TimeSeriesDecoder {
+
+    public static final String TIME_SERIES_FIELD = "Time Series (Daily)";
+
+    private static final String HIGH_FIELD = "2. high";
+    private static final String LOW_FIELD = "3. low";
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    /**
+     * Decodes the bars dated strictly after {@code after} (all bars when it is null)
+     * in chronological order.
+     */
+    public List<PriceBar> decode(InputStream body, String ticker, LocalDate after, int expectedBars)
+            throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if (TIME_SERIES_FIELD.equals(field)) {
+                    return readSeries(parser, ticker, after, expectedBars);
+                }
+                parser.skipChildren();
+            }
+            throw new JsonParseException(parser, "Missing " + TIME_SERIES_FIELD);
+        }
+    }
+
+    private static List<PriceBar> readSeries(JsonParser parser, String ticker, LocalDate after,
+                                             int expectedBars) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected " + TIME_SERIES_FIELD + " object");
+        }
+        List<PriceBar> bars = new ArrayList<>(expectedBars);
+        boolean newestFirst = true;
+        LocalDate previous = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            LocalDate date = parseDate(parser);
+            parser.nextToken();
+            if (after != null && !date.isAfter(after)) {
+                parser.skipChildren();
+                continue;
+            }
+            if (previous != null && !date.isBefore(previous)) {
+                newestFirst = false;
+            }
+            previous = date;
+            bars.add(readBar(parser, ticker, date));
+        }
+
+        // Alpha Vantage lists bars newest first, reversing in place avoids a second buffer
+        if (newestFirst) {
+            Collections.reverse(bars);
+        } else {
+            bars.sort(Comparator.comparing(PriceBar::getTradeDate));
+        }
+        return bars;
+    }
+
+    private static PriceBar readBar(JsonParser parser, String ticker, LocalDate date) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected bar object for " + date);
+        }
+        double high = Double.NaN;
+        double low = Double.NaN;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (HIGH_FIELD.equals(field)) {
+                high = parseNumber(parser, value);
+            } else if (LOW_FIELD.equals(field)) {
+                low = parseNumber(parser, value);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (Double.isNaN(high) || Double.isNaN(low)) {
+            throw new JsonParseException(parser, "Missing high or low for " + date);
+        }
+        return new PriceBar(ticker, date, high, low);
+    }
+
+    private static LocalDate parseDate(JsonParser parser) throws IOException {
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int length = parser.getTextLength();
+        if (length != 10 || chars[offset + 4] != '-' || chars[offset + 7] != '-') {
+            return LocalDate.parse(parser.getText());
+        }
+        int year = digits(chars, offset, 4);
+        int month = digits(chars, offset + 5, 2);
+        int day = digits(chars, offset + 8, 2);
+        if (year < 0 || month < 0 || day < 0) {
+            return LocalDate.parse(parser.getText());
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    private static int digits(char[] chars, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    // Prices arrive as quoted decimals like "155.1234". Parsing the characters in place
+    // avoids a String per value; mantissa and scale are both exact doubles, so the
+    // division is correctly rounded exactly like Double.parseDouble.
+    private static double parseNumber(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getDoubleValue();
+        }
+        if (token != JsonToken.VALUE_STRING) {
+            throw new JsonParseException(parser, "Expected a numeric value");
+        }
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int end = offset + parser.getTextLength();
+
+        long mantissa = 0;
+        int scale = -1;
+        int significant = 0;
+        for (int i = offset; i < end; i++) {
+            char c = chars[i];
+            if (c == '.' && scale < 0) {
+                scale = 0;
+            } else if (c >= '0' && c <= '9' && significant < 15) {
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0) {
+                    significant++;
+                }
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else {
+                return Double.parseDouble(parser.getText());
+            }
+        }
+        if (end == offset || scale == 0 || scale >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(parser.getText());
+        }
+        return scale < 0 ? mantissa : mantissa / POWERS_OF_TEN[scale];
+    }
+}
@@ -0,0 +1,150 @@
+package io.github.bigpig.back.util;
+
+import io.github.bigpig.back.resilience.CancellationScope;
+import io.github.bigpig.back.resilience.Deadline;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.impl.DefaultSchemePortResolver;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.client5.http.routing.RoutingSupport;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Request factory shared by every outbound client. Connections are pooled and kept
+ * alive per upstream host, each host with its own connection limit and response
+ * timeout, and gzip responses are decompressed transparently. A request made under a
+ * {@link Deadline} waits for a connection and an answer no longer than the time left.
+ */
+@Component
+public class UpstreamHttpRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+    record HostSettings(String url, int maxConnections, Duration responseTimeout) {
+    }
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final Map<HttpHost, RequestConfig> requestConfigs = new HashMap<>();
+    private final RequestConfig defaultRequestConfig;
+
+    @Autowired
+    public UpstreamHttpRequestFactory(
+            @Value("${app.http.max-total:100}") int maxTotal,
+            @Value("${app.http.connect-timeout:PT2S}") Duration connectTimeout,
+            @Value("${app.http.response-timeout:PT10S}") Duration responseTimeout,
+            @Value("${app.http.idle-timeout:PT30S}") Duration idleTimeout,
+            @Value("${app.http.alpha-vantage.max-connections:20}") int alphaVantageConnections,
+            @Value("${app.http.alpha-vantage.response-timeout:PT10S}") Duration alphaVantageTimeout,
+            @Value("${app.http.ai-analysis.max-connections:8}") int aiAnalysisConnections,
+            @Value("${app.http.ai-analysis.response-timeout:PT90S}") Duration aiAnalysisTimeout,
+            @Value("${app.http.google.max-connections:10}") int googleConnections,
+            @Value("${app.http.google.response-timeout:PT5S}") Duration googleTimeout,
+            @Value("${app.google.token-url:https://oauth2.googleapis.com/token}") String googleTokenUrl,
+            @Value("${app.google.user-info-url:https://www.googleapis.com/oauth2/v3/userinfo}") String googleUserInfoUrl) {
+        this(maxTotal, connectTimeout, responseTimeout, idleTimeout, List.of(
+                new HostSettings(UrlBuilder.ALPHA_VANTAGE_URL, alphaVantageConnections, alphaVantageTimeout),
+                new HostSettings(UrlBuilder.AI_ANALYSE_URL, aiAnalysisConnections, aiAnalysisTimeout),
+                new HostSettings(googleTokenUrl, googleConnections, googleTimeout),
+                new HostSettings(googleUserInfoUrl, googleConnections, googleTimeout)));
+    }
+
+    UpstreamHttpRequestFactory(int maxTotal, Duration connectTimeout, Duration responseTimeout,
+                               Duration idleTimeout, List<HostSettings> hosts) {
+        this(PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotal)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(responseTimeout))
+                        // Re-check connections the server may have closed while they sat idle
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build(), responseTimeout, idleTimeout, hosts);
+    }
+
+    private UpstreamHttpRequestFactory(PoolingHttpClientConnectionManager connectionManager,
+                                       Duration responseTimeout, Duration idleTimeout, List<HostSettings> hosts) {
+        super(HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(idleTimeout))
+                .build());
+        this.connectionManager = connectionManager;
+        this.defaultRequestConfig = requestConfig(responseTimeout);
+        for (HostSettings host : hosts) {
+            HttpHost target = target(URI.create(host.url()));
+            connectionManager.setMaxPerRoute(route(target), host.maxConnections());
+            requestConfigs.put(target, requestConfig(host.responseTimeout()));
+        }
+        setHttpContextFactory((method, uri) -> {
+            HttpClientContext context = HttpClientContext.create();
+            context.setRequestConfig(withinDeadline(requestConfigs.getOrDefault(target(uri), defaultRequestConfig)));
+            return context;
+        });
+    }
+
+    // Registered with the scope of the calling thread, so a cancelled call drops its connection
+    @Override
+    protected ClassicHttpRequest createHttpUriRequest(HttpMethod httpMethod, URI uri) {
+        ClassicHttpRequest request = super.createHttpUriRequest(httpMethod, uri);
+        if (request instanceof HttpUriRequestBase cancellable) {
+            CancellationScope.register(cancellable::cancel);
+        }
+        return request;
+    }
+
+    int maxConnections(String url) {
+        return connectionManager.getMaxPerRoute(route(target(URI.create(url))));
+    }
+
+    int availableConnections(String url) {
+        return connectionManager.getStats(route(target(URI.create(url)))).getAvailable();
+    }
+
+    private static RequestConfig withinDeadline(RequestConfig config) {
+        if (Deadline.current() == null) {
+            return config;
+        }
+        return RequestConfig.copy(config)
+                .setConnectionRequestTimeout(capped(config.getConnectionRequestTimeout()))
+                .setResponseTimeout(capped(config.getResponseTimeout()))
+                .build();
+    }
+
+    // A zero timeout means no timeout to HttpClient, so an exhausted deadline still gets 1 ms
+    private static Timeout capped(Timeout timeout) {
+        Duration capped = Deadline.cap(Duration.ofMillis(timeout.toMilliseconds()));
+        return Timeout.ofMilliseconds(Math.max(1, capped.toMillis()));
+    }
+
+    private static RequestConfig requestConfig(Duration responseTimeout) {
+        return RequestConfig.custom()
+                .setResponseTimeout(Timeout.of(responseTimeout))
+                .build();
+    }
+
+    private static HttpRoute route(HttpHost target) {
+        return new HttpRoute(target, null, URIScheme.HTTPS.same(target.getSchemeName()));
+    }
+
+    private static HttpHost target(URI uri) {
+        return RoutingSupport.normalize(HttpHost.create(uri), DefaultSchemePortResolver.INSTANCE);
+    }
+}
@@ -7,6 +7,9 @@ import org.springframework.web.util.UriComponentsBuilder;
 @Component
 public class UrlBuilder {
 
+    public static final String ALPHA_VANTAGE_URL = "https://www.alphavantage.co/query";
+    public static final String AI_ANALYSE_URL = "http://ai-analysis:9000/analyze";
+
     private final String apiKey;
 
     public UrlBuilder(@Value("${alpha-vintage.apiKey}") String apiKey) {
@@ -14,16 +17,24 @@ public class UrlBuilder {
     }
 
     public String buildAlphaVintageUrl(String ticker, String function) {
-        System.out.println(apiKey);
-        return UriComponentsBuilder.fromUriString("https://www.alphavantage.co/query")
+        return alphaVantageUrl(ticker, function).toUriString();
+    }
+
+    public String buildAlphaVintageUrl(String ticker, String function, String outputSize) {
+        return alphaVantageUrl(ticker, function)
+                .queryParam("outputsize", outputSize)
+                .toUriString();
+    }
+
+    private UriComponentsBuilder alphaVantageUrl(String ticker, String function) {
+        return UriComponentsBuilder.fromUriString(ALPHA_VANTAGE_URL)
                 .queryParam("function", function)
                 .queryParam("symbol", ticker)
-                .queryParam("apikey", apiKey)
-                .toUriString();
+                .queryParam("apikey", apiKey);
     }
 
     public String buildAnalyseUrl() {
-        return UriComponentsBuilder.fromUriString("http://ai-analysis:9000/analyze")
+        return UriComponentsBuilder.fromUriString(AI_ANALYSE_URL)
                 .toUriString();
     }
 }
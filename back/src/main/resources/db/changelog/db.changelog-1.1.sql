@@ -0,0 +1,10 @@
+--liquibase formatted sql
+
+--changeset BiGPiG:7
+CREATE TABLE IF NOT EXISTS price_bars (
+    ticker        VARCHAR NOT NULL,
+    trade_date    DATE NOT NULL,
+    high          DOUBLE PRECISION NOT NULL,
+    low           DOUBLE PRECISION NOT NULL,
+    PRIMARY KEY   (ticker, trade_date)
+);
@@ -0,0 +1,10 @@
+--liquibase formatted sql
+
+--changeset BiGPiG:8
+INSERT INTO roles (name) values ('ROLE_ADMIN');
+
+--changeset BiGPiG:9
+INSERT INTO users_roles (user_id, role_id) VALUES (
+    (SELECT id FROM users WHERE username = 'admin'),
+    (SELECT id FROM roles WHERE name = 'ROLE_ADMIN')
+);
@@ -0,0 +1,99 @@
+package io.github.bigpig.back.config;
+
+import io.github.bigpig.back.exceptions.TokenExpiredException;
+import io.github.bigpig.back.util.JwtUtils;
+import io.jsonwebtoken.ExpiredJwtException;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JwtRequestFilterTest {
+
+    @Mock
+    private JwtUtils jwtUtils;
+
+    @Mock
+    private FilterChain filterChain;
+
+    @InjectMocks
+    private JwtRequestFilter jwtRequestFilter;
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private MockHttpServletRequest request(String authorization) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/bp-invest/api/v1/main-info");
+        if (authorization != null) {
+            request.addHeader("Authorization", authorization);
+        }
+        return request;
+    }
+
+    @Test
+    @DisplayName("doFilter should authenticate a bearer token with a single verification")
+    void doFilter_BearerToken_AuthenticatesWithOneVerification() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = request("Bearer token");
+        when(jwtUtils.verify("token")).thenReturn(new JwtUtils.VerifiedToken("alice",
+                List.of("ROLE_USER"), Instant.parse("2024-01-22T13:00:00Z")));
+
+        // Act
+        jwtRequestFilter.doFilter(request, response, filterChain);
+
+        // Assert
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertEquals("alice", authentication.getPrincipal());
+        assertEquals(List.of(new SimpleGrantedAuthority("ROLE_USER")), List.copyOf(authentication.getAuthorities()));
+        verify(jwtUtils, times(1)).verify("token");
+        verifyNoMoreInteractions(jwtUtils);
+        verify(filterChain).doFilter(request, response);
+    }
+
+    @Test
+    @DisplayName("doFilter should pass requests without a bearer token through unauthenticated")
+    void doFilter_NoBearerToken_PassesThrough() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = request("Basic dXNlcjpwYXNz");
+
+        // Act
+        jwtRequestFilter.doFilter(request, response, filterChain);
+
+        // Assert
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verifyNoInteractions(jwtUtils);
+        verify(filterChain).doFilter(request, response);
+    }
+
+    @Test
+    @DisplayName("doFilter should reject an expired token")
+    void doFilter_ExpiredToken_Throws() throws Exception {
+        // Arrange
+        when(jwtUtils.verify("token")).thenThrow(new ExpiredJwtException(null, null, "expired"));
+
+        // Act & Assert
+        assertThrows(TokenExpiredException.class,
+                () -> jwtRequestFilter.doFilter(request("Bearer token"), response, filterChain));
+        verifyNoInteractions(filterChain);
+    }
+}
@@ -0,0 +1,209 @@
+package io.github.bigpig.back.controllers;
+
+import io.github.bigpig.back.config.ExecutorConfig;
+import io.github.bigpig.back.dto.AnalyseDto;
+import io.github.bigpig.back.dto.ShareDto;
+import io.github.bigpig.back.services.AnalyseService;
+import io.github.bigpig.back.services.BatchService;
+import io.github.bigpig.back.services.PriceStreamService;
+import io.github.bigpig.back.services.PricesService;
+import io.github.bigpig.back.services.ShareService;
+import io.github.bigpig.back.util.ResponseBodyCache;
+import io.github.bigpig.back.util.TickerPopularity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.embedded.EmbeddedWebServerFactoryCustomizerAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Load test for slow AI analyses: fires a burst of concurrent /ai-analyse requests
+ * against a real Tomcat whose worker pool is capped at {@value #TOMCAT_THREADS}
+ * threads, measures how many of them reach the (blocking) AI call at once and checks
+ * that a fast endpoint still answers while they wait.
+ */
+@Slf4j
+class AiAnalyseConcurrencyTest {
+
+    static final int TOMCAT_THREADS = 8;
+    static final int IO_THREADS = 16;
+    static final int BURST = 64;
+
+    @SpringBootConfiguration
+    @ImportAutoConfiguration({
+            ServletWebServerFactoryAutoConfiguration.class,
+            EmbeddedWebServerFactoryCustomizerAutoConfiguration.class,
+            DispatcherServletAutoConfiguration.class,
+            WebMvcAutoConfiguration.class,
+            HttpMessageConvertersAutoConfiguration.class,
+            JacksonAutoConfiguration.class,
+            TaskExecutionAutoConfiguration.class
+    })
+    @Import({ShareController.class, ResponseBodyCache.class, ExecutorConfig.class, SimpleMeterRegistry.class})
+    static class WebLayer {
+    }
+
+    abstract static class Burst {
+
+        @LocalServerPort
+        int port;
+
+        @Autowired
+        @Qualifier(ExecutorConfig.IO_EXECUTOR)
+        Executor ioExecutor;
+
+        @MockitoBean
+        AnalyseService analyseService;
+
+        @MockitoBean
+        ShareService shareService;
+
+        @MockitoBean
+        PricesService pricesService;
+
+        @MockitoBean
+        PriceStreamService priceStreamService;
+
+        @MockitoBean
+        BatchService batchService;
+
+        @MockitoBean
+        TickerPopularity tickerPopularity;
+
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+
+        HttpClient client;
+
+        @BeforeEach
+        void stubSlowAnalyse() {
+            client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            when(analyseService.getAnalyseAsync(anyString())).thenAnswer(invocation ->
+                    CompletableFuture.supplyAsync(this::slowAnalyse, ioExecutor));
+            when(shareService.getMainInfo("FAST")).thenReturn(
+                    new ShareDto("FAST", "Fast Inc.", "1", "2", "3", "4", "5"));
+        }
+
+        AnalyseDto slowAnalyse() {
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return new AnalyseDto("Slow", "5/10", List.of("A"), List.of("B"));
+        }
+
+        @AfterEach
+        void closeClient() {
+            release.countDown();
+            client.close();
+        }
+
+        int measurePeakInFlight(int expectedPeak) throws Exception {
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < BURST; i++) {
+                HttpRequest request = HttpRequest.newBuilder(
+                                URI.create("http://localhost:" + port + "/bp-invest/api/v1/ai-analyse?ticker=T" + i))
+                        .timeout(Duration.ofSeconds(30))
+                        .build();
+                responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+            }
+
+            long waitUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (peak.get() < expectedPeak && System.nanoTime() < waitUntil) {
+                Thread.sleep(20);
+            }
+            // Give requests beyond the expected peak a chance to show up
+            Thread.sleep(300);
+            int measured = peak.get();
+            log.info("{}: {} of {} concurrent /ai-analyse requests in flight", getClass().getSimpleName(),
+                    measured, BURST);
+
+            // The waiting analyses hold no Tomcat thread, so a fast request is still served
+            HttpRequest fast = HttpRequest.newBuilder(
+                            URI.create("http://localhost:" + port + "/bp-invest/api/v1/main-info?ticker=FAST"))
+                    .timeout(Duration.ofSeconds(5))
+                    .build();
+            assertEquals(200, client.send(fast, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+            release.countDown();
+            for (CompletableFuture<HttpResponse<String>> response : responses) {
+                assertEquals(200, response.get(30, TimeUnit.SECONDS).statusCode());
+            }
+            return measured;
+        }
+    }
+
+    @Nested
+    @SpringBootTest(classes = WebLayer.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+            properties = {
+                    "server.tomcat.threads.max=" + TOMCAT_THREADS,
+                    "app.io-executor.pool-size=" + IO_THREADS,
+                    "spring.threads.virtual.enabled=false"
+            })
+    class PlatformThreads extends Burst {
+
+        @Test
+        @DisplayName("platform threads cap in-flight AI calls at the I/O pool size, not the Tomcat pool")
+        void burstIsCappedByIoPool() throws Exception {
+            assertInstanceOf(ThreadPoolTaskExecutor.class, ioExecutor);
+            assertEquals(IO_THREADS, measurePeakInFlight(IO_THREADS));
+        }
+    }
+
+    @Nested
+    @SpringBootTest(classes = WebLayer.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+            properties = {
+                    "server.tomcat.threads.max=" + TOMCAT_THREADS,
+                    "spring.threads.virtual.enabled=true"
+            })
+    class VirtualThreads extends Burst {
+
+        @Test
+        @DisplayName("virtual threads keep the whole burst in flight")
+        void wholeBurstIsInFlight() throws Exception {
+            assertInstanceOf(SimpleAsyncTaskExecutor.class, ioExecutor);
+            assertEquals(BURST, measurePeakInFlight(BURST));
+        }
+    }
+}
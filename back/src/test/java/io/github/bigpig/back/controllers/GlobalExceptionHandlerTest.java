@@ -2,9 +2,9 @@ package io.github.bigpig.back.controllers;
 
 import io.github.bigpig.back.dto.ExceptionDto;
 import io.github.bigpig.back.exceptions.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -15,8 +15,9 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 @ExtendWith(MockitoExtension.class)
 public class GlobalExceptionHandlerTest {
 
-    @InjectMocks
-    GlobalExceptionHandler globalExceptionHandler;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    GlobalExceptionHandler globalExceptionHandler = new GlobalExceptionHandler(meterRegistry);
 
     @Test
     void UserAlreadyExistsExceptionTest() {
@@ -55,6 +56,18 @@ public class GlobalExceptionHandlerTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    void InvalidRequestExceptionTest() {
+        InvalidRequestException ex = new InvalidRequestException("Test Exception");
+
+        ResponseEntity<ExceptionDto> expected = new ResponseEntity<>(new ExceptionDto(ex.getMessage(),
+                ErrorCodes.INVALID_REQUEST.toString()), HttpStatus.BAD_REQUEST);
+
+        ResponseEntity<ExceptionDto> actual = globalExceptionHandler.handleException(ex);
+
+        assertEquals(expected, actual);
+    }
+
     @Test
     void LoginNotFoundException() {
         LoginNotFoundException ex = new LoginNotFoundException("Test Exception");
@@ -78,4 +91,64 @@ public class GlobalExceptionHandlerTest {
 
         assertEquals(expected, actual);
     }
+
+    @Test
+    void EmailAlreadyExistsException() {
+        EmailAlreadyExistsException ex = new EmailAlreadyExistsException("ivan@example.com");
+
+        ResponseEntity<ExceptionDto> expected = new ResponseEntity<>(new ExceptionDto(ex.getMessage(),
+                ErrorCodes.EMAIL_ALREADY_EXISTS.toString()), HttpStatus.CONFLICT);
+
+        ResponseEntity<ExceptionDto> actual = globalExceptionHandler.handleException(ex);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void TokenExpiredException() {
+        TokenExpiredException ex = new TokenExpiredException("Test Exception");
+
+        ResponseEntity<ExceptionDto> expected = new ResponseEntity<>(new ExceptionDto(ex.getMessage(),
+                ErrorCodes.TOKEN_EXPIRED.toString()), HttpStatus.UNAUTHORIZED);
+
+        ResponseEntity<ExceptionDto> actual = globalExceptionHandler.handleException(ex);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void UpstreamUnavailableException() {
+        UpstreamUnavailableException ex = new UpstreamUnavailableException("Test Exception");
+
+        ResponseEntity<ExceptionDto> expected = new ResponseEntity<>(new ExceptionDto(ex.getMessage(),
+                ErrorCodes.UPSTREAM_UNAVAILABLE.toString()), HttpStatus.SERVICE_UNAVAILABLE);
+
+        ResponseEntity<ExceptionDto> actual = globalExceptionHandler.handleException(ex);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void DeadlineExceededException() {
+        DeadlineExceededException ex = new DeadlineExceededException("Test Exception");
+
+        ResponseEntity<ExceptionDto> expected = new ResponseEntity<>(new ExceptionDto(ex.getMessage(),
+                ErrorCodes.DEADLINE_EXCEEDED.toString()), HttpStatus.GATEWAY_TIMEOUT);
+
+        ResponseEntity<ExceptionDto> actual = globalExceptionHandler.handleException(ex);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void ErrorResponsesCountedByCode() {
+        globalExceptionHandler.handleException(new InvalidRequestException("Test Exception"));
+        globalExceptionHandler.handleException(new InvalidRequestException("Test Exception"));
+        globalExceptionHandler.handleException(new LoginNotFoundException("Test Exception"));
+
+        assertEquals(2, meterRegistry.get(GlobalExceptionHandler.ERRORS_METRIC)
+                .tag("code", ErrorCodes.INVALID_REQUEST.toString()).counter().count());
+        assertEquals(1, meterRegistry.get(GlobalExceptionHandler.ERRORS_METRIC)
+                .tag("code", ErrorCodes.USER_NOT_FOUND.toString()).counter().count());
+    }
 }
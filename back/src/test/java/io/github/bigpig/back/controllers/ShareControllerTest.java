@@ -1,25 +1,60 @@
 package io.github.bigpig.back.controllers;
 
 import io.github.bigpig.back.dto.AnalyseDto;
-import io.github.bigpig.back.dto.PointDto;
 import io.github.bigpig.back.dto.ShareDto;
+import io.github.bigpig.back.models.PriceSeries;
+import io.github.bigpig.back.resilience.DeadlineFilter;
+import io.github.bigpig.back.dto.BatchSection;
+import io.github.bigpig.back.dto.TickerInfoDto;
 import io.github.bigpig.back.services.AnalyseService;
+import io.github.bigpig.back.services.BatchService;
+import io.github.bigpig.back.services.PriceStreamService;
 import io.github.bigpig.back.services.PricesService;
 import io.github.bigpig.back.services.ShareService;
+import io.github.bigpig.back.util.ETags;
+import io.github.bigpig.back.util.ResponseBodyCache;
+import io.github.bigpig.back.util.TickerPopularity;
+import io.github.bigpig.back.dto.ExceptionDto;
+import io.github.bigpig.back.exceptions.ErrorCodes;
+import io.github.bigpig.back.exceptions.FetchDataException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockAsyncContext;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
 
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -36,12 +71,36 @@ class ShareControllerTest {
     @Mock
     private AnalyseService analyseService;
 
+    @Mock
+    private BatchService batchService;
+
+    @Mock
+    private TickerPopularity tickerPopularity;
+
+    @Mock
+    private PriceStreamService priceStreamService;
+
+    @Spy
+    private ResponseBodyCache responseBodyCache = new ResponseBodyCache(Jackson2ObjectMapperBuilder.json().build(),
+            new SimpleMeterRegistry(), 1 << 20, 1024);
+
     @InjectMocks
     private ShareController shareController;
 
     @BeforeEach
     void setUp() {
-        mockMvc = MockMvcBuilders.standaloneSetup(shareController).build();
+        mockMvc = MockMvcBuilders.standaloneSetup(shareController)
+                .setControllerAdvice(new GlobalExceptionHandler(new SimpleMeterRegistry()))
+                .addFilters(new DeadlineFilter(Duration.ofSeconds(20), Duration.ofSeconds(30),
+                        Duration.ofSeconds(60), Duration.ofSeconds(60)))
+                .build();
+    }
+
+    private ResultActions performAsync(MockHttpServletRequestBuilder builder) throws Exception {
+        MvcResult started = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started));
     }
 
     @Test
@@ -62,27 +121,79 @@ class ShareControllerTest {
 
         verify(shareService, times(1)).getMainInfo(ticker);
         verifyNoMoreInteractions(shareService);
+        verify(tickerPopularity).record(ticker);
     }
 
     @Test
     void getCharInfoTest() throws Exception {
         // Arrange
         String ticker = "TSLA";
-        List<PointDto> mockPoints = List.of(new PointDto("10.09.2025", 150.5),
-                new PointDto("11.09.2025", 151.5));
-        when(pointService.getPrices(ticker)).thenReturn(mockPoints);
+        PriceSeries mockSeries = PriceSeries.of(new int[] {20341, 20342}, new double[] {150.5, 151.5});
+        when(pointService.getPricesAsync(ticker, null, null, null)).thenReturn(CompletableFuture.completedFuture(mockSeries));
 
         // Act & Assert
-        mockMvc.perform(get("/bp-invest/api/v1/chart-info")
+        performAsync(get("/bp-invest/api/v1/chart-info")
                         .param("ticker", ticker)
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$").isArray())
-                .andExpect(jsonPath("$.length()").value(2));
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].day").value("2025-09-10"))
+                .andExpect(jsonPath("$[1].val").value(151.5));
 
-        verify(pointService, times(1)).getPrices(ticker);
+        verify(pointService, times(1)).getPricesAsync(ticker, null, null, null);
         verifyNoMoreInteractions(pointService);
+        verify(tickerPopularity).record(ticker);
+    }
+
+    @Test
+    void getCharInfoWithRangeTest() throws Exception {
+        // Arrange
+        String ticker = "TSLA";
+        LocalDate from = LocalDate.parse("2025-01-01");
+        LocalDate to = LocalDate.parse("2025-06-30");
+        PriceSeries mockSeries = PriceSeries.of(new int[] {20089}, new double[] {150.5});
+        when(pointService.getPricesAsync(ticker, from, to, 100)).thenReturn(CompletableFuture.completedFuture(mockSeries));
+
+        // Act & Assert
+        performAsync(get("/bp-invest/api/v1/chart-info")
+                        .param("ticker", ticker)
+                        .param("from", "2025-01-01")
+                        .param("to", "2025-06-30")
+                        .param("maxPoints", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+
+        verify(pointService, times(1)).getPricesAsync(ticker, from, to, 100);
+    }
+
+    @Test
+    void repairChartInfoTest() throws Exception {
+        // Arrange
+        PriceSeries repaired = PriceSeries.of(new int[] {20341, 20342}, new double[] {150.5, 152.0});
+        when(pointService.repairPrices("TSLA")).thenReturn(repaired);
+
+        // Act & Assert
+        mockMvc.perform(post("/bp-invest/api/v1/chart-info/repair").param("ticker", "TSLA"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].val").value(152.0));
+
+        verify(pointService, times(1)).repairPrices("TSLA");
+    }
+
+    @Test
+    void streamChartInfoTest() throws Exception {
+        // Arrange
+        SseEmitter emitter = new SseEmitter();
+        when(priceStreamService.subscribe(List.of("AAPL", "MSFT"))).thenReturn(emitter);
+
+        // Act & Assert
+        mockMvc.perform(get("/bp-invest/api/v1/chart-stream").param("tickers", "AAPL,MSFT"))
+                .andExpect(request().asyncStarted());
+
+        verify(priceStreamService).subscribe(List.of("AAPL", "MSFT"));
     }
 
     @Test
@@ -93,17 +204,233 @@ class ShareControllerTest {
                 "Apple inc. has a strong market position and solid financials. making it an attractive investment.",
                 "7/10 - moderately attractive",
                 List.of("Pros1", "Pros2"), List.of("Cons1", "Cons2"));
-        when(analyseService.getAnalyse(ticker)).thenReturn(mockAnalyseDto);
+        when(analyseService.getAnalyseAsync(ticker)).thenReturn(CompletableFuture.completedFuture(mockAnalyseDto));
 
         // Act & Assert
-        mockMvc.perform(get("/bp-invest/api/v1/ai-analyse")
+        MvcResult result = mockMvc.perform(get("/bp-invest/api/v1/ai-analyse")
                         .param("ticker", ticker)
                         .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$").exists());
 
-        verify(analyseService, times(1)).getAnalyse(ticker);
+        verify(analyseService, times(1)).getAnalyseAsync(ticker);
         verifyNoMoreInteractions(analyseService);
+        verify(tickerPopularity).record(ticker);
+    }
+
+    @Test
+    void getBatchInfoTest() throws Exception {
+        // Arrange
+        ShareDto mockShareDto = new ShareDto("AAPL", "Apple Inc.", "20",
+                "20", "20", "20", "20");
+        List<TickerInfoDto> mockBatch = List.of(
+                new TickerInfoDto("AAPL", mockShareDto, null, null, Map.of()),
+                new TickerInfoDto("MSFT", null, null, null, Map.of()));
+        when(batchService.getBatch(List.of("AAPL", "MSFT"), Set.of(BatchSection.MAIN_INFO), null))
+                .thenReturn(mockBatch);
+
+        // Act & Assert
+        mockMvc.perform(get("/bp-invest/api/v1/batch-info")
+                        .param("tickers", "AAPL,MSFT")
+                        .param("sections", "MAIN_INFO"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].mainInfo.name").value("Apple Inc."))
+                .andExpect(jsonPath("$[1].errors").doesNotExist());
+
+        verify(batchService, times(1)).getBatch(List.of("AAPL", "MSFT"), Set.of(BatchSection.MAIN_INFO), null);
+    }
+
+    @Test
+    void getBatchInfo_RecordsOnlyLoadedTickersTest() throws Exception {
+        // Arrange
+        List<TickerInfoDto> mockBatch = List.of(
+                new TickerInfoDto("AAPL", null, List.of(), null, Map.of()),
+                new TickerInfoDto("XXXX", null, null, null, Map.of(BatchSection.CHART_INFO, new ExceptionDto(
+                        "Failed to fetch prices data for ticker: XXXX", ErrorCodes.DATA_NOT_FETCHED.toString()))));
+        when(batchService.getBatch(List.of("AAPL", "XXXX"), null, null)).thenReturn(mockBatch);
+
+        // Act & Assert
+        mockMvc.perform(get("/bp-invest/api/v1/batch-info")
+                        .param("tickers", "AAPL,XXXX"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].errors.CHART_INFO.errorCode").value("DATA_NOT_FETCHED"));
+
+        verify(tickerPopularity).record("AAPL");
+        verifyNoMoreInteractions(tickerPopularity);
+    }
+
+    @Test
+    void getMainMultipliers_SendsETagAndCacheControlTest() throws Exception {
+        // Arrange
+        ShareDto mockShareDto = new ShareDto("AAPL", "Apple Inc.", "20", "20", "20", "20", "20");
+        when(shareService.getMainInfo("AAPL")).thenReturn(mockShareDto);
+
+        // Act & Assert
+        mockMvc.perform(get("/bp-invest/api/v1/main-info").param("ticker", "AAPL"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", ETags.of(mockShareDto)))
+                .andExpect(header().string("Cache-Control", "max-age=300, private"));
+    }
+
+    @Test
+    void getMainMultipliers_MatchingETag_NotModifiedTest() throws Exception {
+        // Arrange
+        ShareDto mockShareDto = new ShareDto("AAPL", "Apple Inc.", "20", "20", "20", "20", "20");
+        when(shareService.getMainInfo("AAPL")).thenReturn(mockShareDto);
+
+        // Act & Assert
+        mockMvc.perform(get("/bp-invest/api/v1/main-info")
+                        .param("ticker", "AAPL")
+                        .header("If-None-Match", ETags.of(mockShareDto)))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void getCharInfo_ChangedSeries_FullResponseTest() throws Exception {
+        // Arrange
+        PriceSeries cached = PriceSeries.of(new int[] {20341}, new double[] {150.5});
+        PriceSeries updated = PriceSeries.of(new int[] {20341, 20342}, new double[] {150.5, 151.5});
+        when(pointService.getPricesAsync("TSLA", null, null, null)).thenReturn(CompletableFuture.completedFuture(updated));
+
+        // Act & Assert
+        performAsync(get("/bp-invest/api/v1/chart-info")
+                        .param("ticker", "TSLA")
+                        .header("If-None-Match", ETags.of(cached)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(header().string("ETag", ETags.of(updated)))
+                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                .andExpect(header().string("Last-Modified", "Thu, 11 Sep 2025 20:00:00 GMT"));
+    }
+
+    @Test
+    void getAiAnalyse_MatchingETag_NotModifiedTest() throws Exception {
+        // Arrange
+        AnalyseDto mockAnalyseDto = new AnalyseDto("Strong.", "8/10", List.of("Pros1"), List.of("Cons1"));
+        when(analyseService.getAnalyseAsync("GOOGL")).thenReturn(CompletableFuture.completedFuture(mockAnalyseDto));
+
+        // Act & Assert
+        MvcResult result = mockMvc.perform(get("/bp-invest/api/v1/ai-analyse")
+                        .param("ticker", "GOOGL")
+                        .header("If-None-Match", ETags.of(mockAnalyseDto)))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void getAiAnalyse_Failure_ErrorResponseTest() throws Exception {
+        // Arrange
+        when(analyseService.getAnalyseAsync("GOOGL")).thenReturn(CompletableFuture.supplyAsync(() -> {
+            throw new FetchDataException("Failed to fetch analyse: GOOGL");
+        }, Runnable::run));
+
+        // Act & Assert
+        MvcResult result = mockMvc.perform(get("/bp-invest/api/v1/ai-analyse").param("ticker", "GOOGL"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.errorCode").value(ErrorCodes.DATA_NOT_FETCHED.toString()));
+        verifyNoInteractions(tickerPopularity);
+    }
+
+    @Test
+    void getAiAnalyse_Timeout_CancelsAnalyseTest() throws Exception {
+        // Arrange
+        CompletableFuture<AnalyseDto> pending = new CompletableFuture<>();
+        when(analyseService.getAnalyseAsync("GOOGL")).thenReturn(pending);
+        MvcResult result = mockMvc.perform(get("/bp-invest/api/v1/ai-analyse").param("ticker", "GOOGL"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+
+        // Act
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isGatewayTimeout())
+                .andExpect(jsonPath("$.errorCode").value(ErrorCodes.DEADLINE_EXCEEDED.toString()));
+        assertTrue(pending.isCancelled());
+    }
+
+    @Test
+    void getAiAnalyse_RequestTimeoutHeader_BoundsAsyncTimeoutTest() throws Exception {
+        // Arrange
+        when(analyseService.getAnalyseAsync("GOOGL")).thenReturn(new CompletableFuture<>());
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/bp-invest/api/v1/ai-analyse")
+                        .param("ticker", "GOOGL")
+                        .header(DeadlineFilter.TIMEOUT_HEADER, "1500"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        long timeout = result.getRequest().getAsyncContext().getTimeout();
+        assertTrue(timeout > 0 && timeout <= 1500, "async timeout " + timeout);
+    }
+
+    @Test
+    void getCharInfo_ClientDisconnect_CancelsLoadTest() throws Exception {
+        // Arrange
+        CompletableFuture<PriceSeries> pending = new CompletableFuture<>();
+        when(pointService.getPricesAsync("TSLA", null, null, null)).thenReturn(pending);
+        MvcResult result = mockMvc.perform(get("/bp-invest/api/v1/chart-info").param("ticker", "TSLA"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+
+        // Act
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onError(new AsyncEvent(asyncContext, new IOException("Connection reset by peer")));
+        }
+
+        // Assert
+        assertTrue(pending.isCancelled());
+        verifyNoInteractions(tickerPopularity);
+    }
+
+    @Test
+    void getCharInfo_AcceptsGzip_CompressedResponseTest() throws Exception {
+        // Arrange
+        int[] days = IntStream.range(20000, 20100).toArray();
+        double[] prices = IntStream.range(0, 100).mapToDouble(i -> 150 + i * 0.25).toArray();
+        PriceSeries series = PriceSeries.of(days, prices);
+        when(pointService.getPricesAsync("TSLA", null, null, null)).thenReturn(CompletableFuture.completedFuture(series));
+        String plain = performAsync(get("/bp-invest/api/v1/chart-info").param("ticker", "TSLA"))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andReturn().getResponse().getContentAsString();
+        String gzipETag = ETags.of(series).replaceFirst("\"$", "-gzip\"");
+
+        // Act
+        MvcResult result = performAsync(get("/bp-invest/api/v1/chart-info")
+                        .param("ticker", "TSLA")
+                        .header("Accept-Encoding", "gzip, deflate, br"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().stringValues("Vary", hasItem("Accept-Encoding")))
+                .andExpect(header().string("ETag", gzipETag))
+                .andReturn();
+
+        // Assert
+        byte[] compressed = result.getResponse().getContentAsByteArray();
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertEquals(plain, new String(gzip.readAllBytes()));
+        }
+        performAsync(get("/bp-invest/api/v1/chart-info")
+                        .param("ticker", "TSLA")
+                        .header("Accept-Encoding", "gzip")
+                        .header("If-None-Match", gzipETag))
+                .andExpect(status().isNotModified());
     }
-}
\ No newline at end of file
+}
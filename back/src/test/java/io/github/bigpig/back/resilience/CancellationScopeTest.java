@@ -0,0 +1,84 @@
+package io.github.bigpig.back.resilience;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CancellationScopeTest {
+
+    @Test
+    @DisplayName("cancel should abort every request started in the scope exactly once")
+    void cancel_AbortsRegisteredRequests() {
+        // Arrange
+        CancellationScope scope = new CancellationScope();
+        AtomicInteger aborted = new AtomicInteger();
+        scope.call(() -> {
+            CancellationScope.register(aborted::incrementAndGet);
+            CancellationScope.register(aborted::incrementAndGet);
+            return null;
+        });
+
+        // Act
+        scope.cancel();
+        scope.cancel();
+
+        // Assert
+        assertEquals(2, aborted.get());
+        assertTrue(scope.isCancelled());
+    }
+
+    @Test
+    @DisplayName("register should abort a request started after the scope was cancelled")
+    void register_AfterCancel_AbortsImmediately() {
+        // Arrange
+        CancellationScope scope = new CancellationScope();
+        AtomicInteger aborted = new AtomicInteger();
+        scope.cancel();
+
+        // Act
+        boolean cancelled = scope.call(() -> {
+            CancellationScope.register(aborted::incrementAndGet);
+            return CancellationScope.isCurrentCancelled();
+        });
+
+        // Assert
+        assertEquals(1, aborted.get());
+        assertTrue(cancelled);
+    }
+
+    @Test
+    @DisplayName("register should ignore requests started outside any scope")
+    void register_OutsideScope_Ignored() {
+        // Arrange
+        AtomicInteger aborted = new AtomicInteger();
+
+        // Act
+        CancellationScope.register(aborted::incrementAndGet);
+
+        // Assert
+        assertEquals(0, aborted.get());
+        assertFalse(CancellationScope.isCurrentCancelled());
+    }
+
+    @Test
+    @DisplayName("call should restore the enclosing scope when a nested call returns")
+    void call_Nested_RestoresEnclosingScope() {
+        // Arrange
+        CancellationScope outer = new CancellationScope();
+        CancellationScope inner = new CancellationScope();
+        inner.cancel();
+
+        // Act
+        boolean[] cancelled = outer.call(() -> new boolean[] {
+                inner.call(CancellationScope::isCurrentCancelled),
+                CancellationScope.isCurrentCancelled()
+        });
+
+        // Assert
+        assertTrue(cancelled[0]);
+        assertFalse(cancelled[1]);
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.bigpig.back.resilience;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlineFilterTest {
+
+    private final DeadlineFilter deadlineFilter = new DeadlineFilter(Duration.ofSeconds(20),
+            Duration.ofSeconds(30), Duration.ofSeconds(60), Duration.ofSeconds(60));
+
+    private MockHttpServletRequest request(String path, String timeout) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/bp-invest/api/v1" + path);
+        if (timeout != null) {
+            request.addHeader(DeadlineFilter.TIMEOUT_HEADER, timeout);
+        }
+        return request;
+    }
+
+    @Test
+    @DisplayName("budget should default per endpoint")
+    void budget_EndpointDefaults() {
+        assertEquals(Duration.ofSeconds(60), deadlineFilter.budget(request("/ai-analyse", null)));
+        assertEquals(Duration.ofSeconds(30), deadlineFilter.budget(request("/chart-info", null)));
+        assertEquals(Duration.ofSeconds(20), deadlineFilter.budget(request("/chart-info/repair", null)));
+        assertEquals(Duration.ofSeconds(20), deadlineFilter.budget(request("/main-info", null)));
+    }
+
+    @Test
+    @DisplayName("budget should only let the timeout header shorten the endpoint default")
+    void budget_TimeoutHeader_OnlyShortens() {
+        assertEquals(Duration.ofMillis(1500), deadlineFilter.budget(request("/ai-analyse", "1500")));
+        assertEquals(Duration.ofSeconds(20), deadlineFilter.budget(request("/main-info", "600000")));
+        assertEquals(Duration.ofSeconds(20), deadlineFilter.budget(request("/main-info", "0")));
+        assertEquals(Duration.ofSeconds(20), deadlineFilter.budget(request("/main-info", "soon")));
+    }
+
+    @Test
+    @DisplayName("doFilter should run the request under its deadline and unbind it afterwards")
+    void doFilter_BindsDeadline() throws Exception {
+        // Arrange
+        AtomicReference<Duration> remaining = new AtomicReference<>();
+
+        // Act
+        deadlineFilter.doFilter(request("/main-info", "1500"), new MockHttpServletResponse(),
+                (request, response) -> remaining.set(Deadline.current().remaining()));
+
+        // Assert
+        assertTrue(remaining.get().compareTo(Duration.ofMillis(1500)) <= 0);
+        assertTrue(remaining.get().compareTo(Duration.ZERO) > 0);
+        assertNull(Deadline.current());
+    }
+
+    @Test
+    @DisplayName("doFilter should leave price streams without a deadline")
+    void doFilter_ChartStream_NoDeadline() throws Exception {
+        // Arrange
+        AtomicReference<Deadline> deadline = new AtomicReference<>();
+
+        // Act
+        deadlineFilter.doFilter(request("/chart-stream", null), new MockHttpServletResponse(),
+                (request, response) -> deadline.set(Deadline.current()));
+
+        // Assert
+        assertNull(deadline.get());
+    }
+}
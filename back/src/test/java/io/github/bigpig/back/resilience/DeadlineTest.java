@@ -0,0 +1,76 @@
+package io.github.bigpig.back.resilience;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlineTest {
+
+    @Test
+    @DisplayName("a deadline should count down its budget and expire once it is spent")
+    void after_Budget_CountsDown() {
+        // Arrange
+        Deadline open = Deadline.after(Duration.ofMinutes(1));
+        Deadline spent = Deadline.after(Duration.ZERO);
+
+        // Act & Assert
+        assertFalse(open.isExpired());
+        assertTrue(open.remaining().compareTo(Duration.ofSeconds(59)) > 0);
+        assertTrue(spent.isExpired());
+        assertEquals(Duration.ZERO, spent.remaining());
+    }
+
+    @Test
+    @DisplayName("call should bind the deadline to the thread and restore the enclosing one")
+    void call_Nested_RestoresEnclosingDeadline() {
+        // Arrange
+        Deadline outer = Deadline.after(Duration.ofMinutes(1));
+        Deadline inner = Deadline.after(Duration.ZERO);
+
+        // Act
+        boolean[] expired = outer.call(() -> new boolean[] {
+                inner.call(Deadline::isCurrentExpired),
+                Deadline.isCurrentExpired()
+        });
+
+        // Assert
+        assertTrue(expired[0]);
+        assertFalse(expired[1]);
+        assertNull(Deadline.current());
+    }
+
+    @Test
+    @DisplayName("cap should shorten a timeout to the time left, and keep it outside requests")
+    void cap_ShortensToRemaining() {
+        // Arrange
+        Deadline deadline = Deadline.after(Duration.ofSeconds(2));
+
+        // Act
+        Duration capped = deadline.call(() -> Deadline.cap(Duration.ofSeconds(10)));
+        Duration shorter = deadline.call(() -> Deadline.cap(Duration.ofMillis(100)));
+
+        // Assert
+        assertTrue(capped.compareTo(Duration.ofSeconds(2)) <= 0);
+        assertEquals(Duration.ofMillis(100), shorter);
+        assertEquals(Duration.ofSeconds(10), Deadline.cap(Duration.ofSeconds(10)));
+    }
+
+    @Test
+    @DisplayName("a shared deadline should only move out, and a caller without a deadline should lift it")
+    void shared_ExtendTo_OnlyMovesOut() {
+        // Arrange
+        Deadline shared = Deadline.shared(Deadline.after(Duration.ofSeconds(2)));
+
+        // Act & Assert
+        shared.extendTo(Deadline.after(Duration.ZERO));
+        assertTrue(shared.remaining().compareTo(Duration.ofSeconds(1)) > 0);
+        shared.extendTo(Deadline.after(Duration.ofMinutes(1)));
+        assertTrue(shared.remaining().compareTo(Duration.ofSeconds(59)) > 0);
+        shared.extendTo(null);
+        assertTrue(shared.remaining().compareTo(Duration.ofDays(365)) > 0);
+        assertFalse(Deadline.shared(null).isExpired());
+    }
+}
@@ -0,0 +1,465 @@
+package io.github.bigpig.back.resilience;
+
+import io.github.bigpig.back.exceptions.DeadlineExceededException;
+import io.github.bigpig.back.exceptions.UpstreamUnavailableException;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamGatewayTest {
+
+    private static final String OPERATION = "OVERVIEW";
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final Duration OPEN_DURATION = Duration.ofSeconds(30);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-22T15:00:00Z"));
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    // One attempt per call so every failure reaches the breaker exactly once
+    private final UpstreamGateway gateway = gateway(1000, 1000);
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private final Supplier<String> failing = () -> {
+        upstreamCalls.incrementAndGet();
+        throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+    };
+
+    private final Supplier<String> succeeding = () -> {
+        upstreamCalls.incrementAndGet();
+        return "ok";
+    };
+
+    private UpstreamGateway gateway(int burst, int callsPerDay) {
+        return new UpstreamGateway(new UpstreamRetrier(meterRegistry, 1, Duration.ZERO, Duration.ZERO, 0.2, 10),
+                new UpstreamRateLimiter(meterRegistry, clock, burst, 60, callsPerDay, Duration.ZERO, Duration.ZERO),
+                new UpstreamMetrics(meterRegistry), meterRegistry, clock, FAILURE_THRESHOLD, OPEN_DURATION,
+                2, 1, Duration.ZERO);
+    }
+
+    private void openCircuit(Upstream upstream) {
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            assertThrows(HttpServerErrorException.class, () -> gateway.execute(upstream, OPERATION, failing));
+        }
+        upstreamCalls.set(0);
+    }
+
+    private double rejected(Upstream upstream, String reason) {
+        return meterRegistry.counter(UpstreamGateway.REJECTED_CALLS_METRIC,
+                "upstream", upstream.name(), "reason", reason).count();
+    }
+
+    @Test
+    @DisplayName("execute should fail fast once consecutive failures open the circuit")
+    void execute_ConsecutiveFailures_OpenCircuit() {
+        // Arrange
+        openCircuit(Upstream.ALPHA_VANTAGE);
+
+        // Act & Assert
+        UpstreamUnavailableException ex = assertThrows(UpstreamUnavailableException.class,
+                () -> gateway.execute(Upstream.ALPHA_VANTAGE, OPERATION, succeeding));
+
+        assertEquals("ALPHA_VANTAGE is unavailable, circuit is open", ex.getMessage());
+        assertEquals(0, upstreamCalls.get());
+        assertEquals(CircuitBreaker.State.OPEN, gateway.circuitState(Upstream.ALPHA_VANTAGE));
+        assertEquals(1, rejected(Upstream.ALPHA_VANTAGE, "circuit_open"));
+        assertEquals(1, meterRegistry.get(UpstreamGateway.CIRCUIT_STATE_METRIC)
+                .tag("upstream", "ALPHA_VANTAGE").gauge().value());
+    }
+
+    @Test
+    @DisplayName("execute should keep other upstreams working while one circuit is open")
+    void execute_OpenCircuit_IsolatedPerUpstream() {
+        // Arrange
+        openCircuit(Upstream.AI_ANALYSIS);
+
+        // Act & Assert
+        assertEquals("ok", gateway.execute(Upstream.ALPHA_VANTAGE, OPERATION, succeeding));
+        assertThrows(UpstreamUnavailableException.class,
+                () -> gateway.execute(Upstream.AI_ANALYSIS, OPERATION, succeeding));
+    }
+
+    @Test
+    @DisplayName("execute should close the circuit when the half-open probe succeeds")
+    void execute_ProbeSucceeds_ClosesCircuit() {
+        // Arrange
+        openCircuit(Upstream.ALPHA_VANTAGE);
+        clock.advance(OPEN_DURATION);
+
+        // Act
+        String probe = gateway.execute(Upstream.ALPHA_VANTAGE, OPERATION, succeeding);
+
+        // Assert
+        assertEquals("ok", probe);
+        assertEquals(CircuitBreaker.State.CLOSED, gateway.circuitState(Upstream.ALPHA_VANTAGE));
+        assertEquals("ok", gateway.execute(Upstream.ALPHA_VANTAGE, OPERATION, succeeding));
+    }
+
+    @Test
+    @DisplayName("execute should reopen the circuit when the half-open probe fails")
+    void execute_ProbeFails_ReopensCircuit() {
+        // Arrange
+        openCircuit(Upstream.ALPHA_VANTAGE);
+        clock.advance(OPEN_DURATION);
+
+        // Act
+        assertThrows(HttpServerErrorException.class, () -> gateway.execute(Upstream.ALPHA_VANTAGE, OPERATION, failing));
+
+        // Assert
+        assertEquals(CircuitBreaker.State.OPEN, gateway.circuitState(Upstream.ALPHA_VANTAGE));
+        assertThrows(UpstreamUnavailableException.class,
+                () -> gateway.execute(Upstream.ALPHA_VANTAGE, OPERATION, succeeding));
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    @DisplayName("execute should let a single probe through while the circuit is half-open")
+    void execute_HalfOpen_AllowsSingleProbe() throws Exception {
+        // Arrange
+        openCircuit(Upstream.ALPHA_VANTAGE);
+        clock.advance(OPEN_DURATION);
+        CountDownLatch probeStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> probe = executor.submit(() -> gateway.execute(Upstream.ALPHA_VANTAGE, OPERATION, () -> {
+            probeStarted.countDown();
+            await(release);
+            return "probe";
+        }));
+        assertTrue(probeStarted.await(5, TimeUnit.SECONDS));
+
+        // Act & Assert
+        assertThrows(UpstreamUnavailableException.class,
+                () -> gateway.execute(Upstream.ALPHA_VANTAGE, OPERATION, succeeding));
+        release.countDown();
+        assertEquals("probe", probe.get(5, TimeUnit.SECONDS));
+        assertEquals(CircuitBreaker.State.CLOSED, gateway.circuitState(Upstream.ALPHA_VANTAGE));
+    }
+
+    @Test
+    @DisplayName("execute should not count client errors against the upstream")
+    void execute_ClientErrors_KeepCircuitClosed() {
+        // Arrange
+        Supplier<String> notFound = () -> {
+            throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+        };
+
+        // Act
+        for (int i = 0; i < FAILURE_THRESHOLD * 2; i++) {
+            assertThrows(HttpClientErrorException.class,
+                    () -> gateway.execute(Upstream.ALPHA_VANTAGE, OPERATION, notFound));
+        }
+
+        // Assert
+        assertEquals(CircuitBreaker.State.CLOSED, gateway.circuitState(Upstream.ALPHA_VANTAGE));
+    }
+
+    @Test
+    @DisplayName("execute should not count calls aborted by cancellation against the upstream")
+    void execute_CancelledCalls_KeepCircuitClosed() {
+        // Act
+        for (int i = 0; i < FAILURE_THRESHOLD * 2; i++) {
+            CancellationScope scope = new CancellationScope();
+            Supplier<String> aborted = () -> {
+                scope.cancel();
+                return failing.get();
+            };
+            assertThrows(HttpServerErrorException.class,
+                    () -> scope.call(() -> gateway.execute(Upstream.AI_ANALYSIS, OPERATION, aborted)));
+        }
+
+        // Assert
+        assertEquals(CircuitBreaker.State.CLOSED, gateway.circuitState(Upstream.AI_ANALYSIS));
+    }
+
+    @Test
+    @DisplayName("execute should not spend a rate limit token on a call that is already cancelled")
+    void execute_AlreadyCancelled_TakesNoToken() {
+        // Arrange
+        UpstreamGateway limited = gateway(1, 1000);
+        CancellationScope scope = new CancellationScope();
+        scope.cancel();
+
+        // Act
+        UpstreamUnavailableException ex = assertThrows(UpstreamUnavailableException.class,
+                () -> scope.call(() -> limited.execute(Upstream.ALPHA_VANTAGE, OPERATION, succeeding)));
+
+        // Assert
+        assertEquals("Call to ALPHA_VANTAGE was cancelled", ex.getMessage());
+        assertEquals(1, rejected(Upstream.ALPHA_VANTAGE, "cancelled"));
+        assertEquals("ok", limited.execute(Upstream.ALPHA_VANTAGE, OPERATION, succeeding));
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    @DisplayName("execute should give up waiting for a rate limit token once the call is cancelled")
+    void execute_CancelledWhileThrottled_TakesNoToken() throws Exception {
+        // Arrange - the next token is a second away, the caller would wait up to a minute
+        SimpleMeterRegistry quotaRegistry = new SimpleMeterRegistry();
+        UpstreamGateway limited = new UpstreamGateway(
+                new UpstreamRetrier(meterRegistry, 1, Duration.ZERO, Duration.ZERO, 0.2, 10),
+                new UpstreamRateLimiter(quotaRegistry, clock, 1, 60, 1000, Duration.ofMinutes(1), Duration.ZERO),
+                new UpstreamMetrics(meterRegistry), meterRegistry, clock, FAILURE_THRESHOLD, OPEN_DURATION,
+                2, 1, Duration.ZERO);
+        assertEquals("ok", limited.execute(Upstream.ALPHA_VANTAGE, OPERATION, succeeding));
+        CancellationScope scope = new CancellationScope();
+        Future<String> waiting = executor.submit(
+                () -> scope.call(() -> limited.execute(Upstream.ALPHA_VANTAGE, OPERATION, succeeding)));
+        while (quotaRegistry.get(UpstreamRateLimiter.QUEUED_CALLS_METRIC)
+                .tag("upstream", Upstream.ALPHA_VANTAGE.name()).gauge().value() < 1) {
+            Thread.sleep(5);
+        }
+
+        // Act
+        scope.cancel();
+
+        // Assert
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> waiting.get(5, TimeUnit.SECONDS));
+        assertEquals("Call to ALPHA_VANTAGE was cancelled", ex.getCause().getMessage());
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(1, rejected(Upstream.ALPHA_VANTAGE, "cancelled"));
+    }
+
+    @Test
+    @DisplayName("execute should fail fast without calling the upstream once the deadline has passed")
+    void execute_DeadlinePassed_FailsFast() {
+        // Act & Assert
+        DeadlineExceededException ex = assertThrows(DeadlineExceededException.class, () -> Deadline.after(Duration.ZERO)
+                .call(() -> gateway.execute(Upstream.ALPHA_VANTAGE, OPERATION, succeeding)));
+        assertEquals("Request deadline passed waiting for ALPHA_VANTAGE", ex.getMessage());
+        assertEquals(0, upstreamCalls.get());
+        assertEquals(1, rejected(Upstream.ALPHA_VANTAGE, "deadline_exceeded"));
+    }
+
+    @Test
+    @DisplayName("execute should not count calls cut short by the deadline against the upstream")
+    void execute_CallOutlivesDeadline_KeepsCircuitClosed() {
+        // Arrange
+        Supplier<String> outlivesDeadline = () -> {
+            upstreamCalls.incrementAndGet();
+            while (!Deadline.isCurrentExpired()) {
+                Thread.onSpinWait();
+            }
+            throw new HttpServerErrorException(HttpStatus.GATEWAY_TIMEOUT);
+        };
+
+        // Act
+        for (int i = 0; i < FAILURE_THRESHOLD * 2; i++) {
+            assertThrows(DeadlineExceededException.class, () -> Deadline.after(Duration.ofMillis(50))
+                    .call(() -> gateway.execute(Upstream.AI_ANALYSIS, OPERATION, outlivesDeadline)));
+        }
+
+        // Assert
+        assertEquals(FAILURE_THRESHOLD * 2, upstreamCalls.get());
+        assertEquals(CircuitBreaker.State.CLOSED, gateway.circuitState(Upstream.AI_ANALYSIS));
+    }
+
+    @Test
+    @DisplayName("execute should wait for a rate limit token no longer than the deadline")
+    void execute_RateLimitWait_CutToDeadline() {
+        // Arrange - the next token is a second away, the caller would wait up to a minute
+        UpstreamGateway limited = new UpstreamGateway(
+                new UpstreamRetrier(meterRegistry, 1, Duration.ZERO, Duration.ZERO, 0.2, 10),
+                new UpstreamRateLimiter(meterRegistry, clock, 1, 60, 1000, Duration.ofMinutes(1), Duration.ZERO),
+                new UpstreamMetrics(meterRegistry), meterRegistry, clock, FAILURE_THRESHOLD, OPEN_DURATION,
+                2, 1, Duration.ZERO);
+        assertEquals("ok", limited.execute(Upstream.ALPHA_VANTAGE, OPERATION, succeeding));
+
+        // Act & Assert
+        long start = System.nanoTime();
+        assertThrows(DeadlineExceededException.class, () -> Deadline.after(Duration.ofMillis(50))
+                .call(() -> limited.execute(Upstream.ALPHA_VANTAGE, OPERATION, succeeding)));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(CircuitBreaker.State.CLOSED, limited.circuitState(Upstream.ALPHA_VANTAGE));
+    }
+
+    @Test
+    @DisplayName("execute should reject calls beyond the upstream's concurrency limit")
+    void execute_BulkheadFull_RejectsCall() throws Exception {
+        // Arrange - the AI upstream allows one call in flight
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> slowCall = executor.submit(() -> gateway.execute(Upstream.AI_ANALYSIS, OPERATION, () -> {
+            started.countDown();
+            await(release);
+            return "slow";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Act & Assert
+        UpstreamUnavailableException ex = assertThrows(UpstreamUnavailableException.class,
+                () -> gateway.execute(Upstream.AI_ANALYSIS, OPERATION, succeeding));
+        assertEquals("AI_ANALYSIS is at its concurrency limit", ex.getMessage());
+        assertEquals("ok", gateway.execute(Upstream.ALPHA_VANTAGE, OPERATION, succeeding));
+        assertEquals(1, rejected(Upstream.AI_ANALYSIS, "bulkhead_full"));
+
+        release.countDown();
+        assertEquals("slow", slowCall.get(5, TimeUnit.SECONDS));
+        assertEquals("ok", gateway.execute(Upstream.AI_ANALYSIS, OPERATION, succeeding));
+    }
+
+    @Test
+    @DisplayName("execute should not spend daily quota on a call the bulkhead rejects")
+    void execute_BulkheadFull_KeepsQuota() throws Exception {
+        // Arrange - Alpha Vantage allows one call in flight and ten a day
+        UpstreamRateLimiter rateLimiter = new UpstreamRateLimiter(new SimpleMeterRegistry(), clock, 1000, 60, 10,
+                Duration.ZERO, Duration.ZERO);
+        UpstreamGateway narrow = new UpstreamGateway(
+                new UpstreamRetrier(meterRegistry, 1, Duration.ZERO, Duration.ZERO, 0.2, 10), rateLimiter,
+                new UpstreamMetrics(meterRegistry), meterRegistry, clock, FAILURE_THRESHOLD, OPEN_DURATION,
+                1, 1, Duration.ZERO);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> slowCall = executor.submit(() -> narrow.execute(Upstream.ALPHA_VANTAGE, OPERATION, () -> {
+            started.countDown();
+            await(release);
+            return "slow";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        int remaining = rateLimiter.remainingToday(Upstream.ALPHA_VANTAGE);
+
+        // Act
+        assertThrows(UpstreamUnavailableException.class,
+                () -> narrow.execute(Upstream.ALPHA_VANTAGE, OPERATION, succeeding));
+
+        // Assert
+        assertEquals(remaining, rateLimiter.remainingToday(Upstream.ALPHA_VANTAGE));
+        assertEquals(1, rejected(Upstream.ALPHA_VANTAGE, "bulkhead_full"));
+        release.countDown();
+        assertEquals("slow", slowCall.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("execute should reject an interrupted caller instead of waiting for the bulkhead")
+    void execute_InterruptedCaller_Rejected() {
+        // Arrange
+        Thread.currentThread().interrupt();
+
+        // Act & Assert
+        try {
+            assertThrows(UpstreamUnavailableException.class,
+                    () -> gateway.execute(Upstream.AI_ANALYSIS, OPERATION, succeeding));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+        assertEquals(0, upstreamCalls.get());
+        assertEquals(CircuitBreaker.State.CLOSED, gateway.circuitState(Upstream.AI_ANALYSIS));
+    }
+
+    @Test
+    @DisplayName("execute should reject calls once the upstream's rate limit is reached")
+    void execute_RateLimitReached_RejectsCall() {
+        // Arrange
+        UpstreamGateway limited = gateway(1, 1000);
+        assertEquals("ok", limited.execute(Upstream.ALPHA_VANTAGE, OPERATION, succeeding));
+
+        // Act & Assert
+        UpstreamUnavailableException ex = assertThrows(UpstreamUnavailableException.class,
+                () -> limited.execute(Upstream.ALPHA_VANTAGE, OPERATION, Priority.BACKGROUND, succeeding));
+        assertEquals("ALPHA_VANTAGE rate limit reached, try again shortly", ex.getMessage());
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(1, rejected(Upstream.ALPHA_VANTAGE, "rate_limited"));
+        assertEquals(CircuitBreaker.State.CLOSED, limited.circuitState(Upstream.ALPHA_VANTAGE));
+
+        clock.advance(Duration.ofSeconds(1));
+        assertEquals("ok", limited.execute(Upstream.ALPHA_VANTAGE, OPERATION, succeeding));
+    }
+
+    @Test
+    @DisplayName("execute should reject calls once the upstream's daily quota is spent")
+    void execute_DailyQuotaSpent_RejectsCall() {
+        // Arrange
+        UpstreamGateway limited = gateway(5, 1);
+        assertEquals("ok", limited.execute(Upstream.ALPHA_VANTAGE, OPERATION, succeeding));
+
+        // Act & Assert
+        UpstreamUnavailableException ex = assertThrows(UpstreamUnavailableException.class,
+                () -> limited.execute(Upstream.ALPHA_VANTAGE, OPERATION, succeeding));
+        assertEquals("ALPHA_VANTAGE daily quota is exhausted", ex.getMessage());
+        assertEquals(1, rejected(Upstream.ALPHA_VANTAGE, "quota_exhausted"));
+        assertEquals("ok", limited.execute(Upstream.AI_ANALYSIS, OPERATION, succeeding));
+    }
+
+    @Test
+    @DisplayName("execute should time admitted calls by operation and outcome but not rejected ones")
+    void execute_RecordsLatencyOfAdmittedCalls() {
+        // Arrange
+        openCircuit(Upstream.AI_ANALYSIS);
+
+        // Act
+        assertEquals("ok", gateway.execute(Upstream.ALPHA_VANTAGE, OPERATION, succeeding));
+        assertThrows(UpstreamUnavailableException.class,
+                () -> gateway.execute(Upstream.AI_ANALYSIS, OPERATION, succeeding));
+
+        // Assert
+        assertEquals(1, meterRegistry.get(UpstreamMetrics.CALLS_METRIC)
+                .tags("upstream", "ALPHA_VANTAGE", "operation", OPERATION, "outcome", "SUCCESS")
+                .timer().count());
+        assertEquals(FAILURE_THRESHOLD, meterRegistry.get(UpstreamMetrics.CALLS_METRIC)
+                .tags("upstream", "AI_ANALYSIS").timers().stream().mapToLong(Timer::count).sum());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private volatile Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package io.github.bigpig.back.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UpstreamMetrics upstreamMetrics = new UpstreamMetrics(meterRegistry);
+
+    private long calls(String outcome, String exception) {
+        return meterRegistry.get(UpstreamMetrics.CALLS_METRIC)
+                .tags("upstream", "ALPHA_VANTAGE", "operation", "OVERVIEW",
+                        "outcome", outcome, "exception", exception)
+                .timer().count();
+    }
+
+    @Test
+    @DisplayName("record should time a successful call and count it as in flight while it runs")
+    void record_Success_TimesCall() {
+        // Act
+        String result = upstreamMetrics.record("ALPHA_VANTAGE", "OVERVIEW", () -> {
+            assertEquals(1, meterRegistry.get(UpstreamMetrics.ACTIVE_CALLS_METRIC).longTaskTimer().activeTasks());
+            return "ok";
+        });
+
+        // Assert
+        assertEquals("ok", result);
+        assertEquals(1, calls("SUCCESS", "none"));
+        assertEquals(0, meterRegistry.get(UpstreamMetrics.ACTIVE_CALLS_METRIC).longTaskTimer().activeTasks());
+    }
+
+    @Test
+    @DisplayName("record should tag failed calls with their outcome and exception")
+    void record_Failures_TaggedByOutcome() {
+        // Act
+        assertThrows(HttpClientErrorException.class, () -> upstreamMetrics.record("ALPHA_VANTAGE", "OVERVIEW",
+                () -> { throw new HttpClientErrorException(HttpStatus.NOT_FOUND); }));
+        assertThrows(HttpServerErrorException.class, () -> upstreamMetrics.record("ALPHA_VANTAGE", "OVERVIEW",
+                () -> { throw new HttpServerErrorException(HttpStatus.BAD_GATEWAY); }));
+        assertThrows(ResourceAccessException.class, () -> upstreamMetrics.record("ALPHA_VANTAGE", "OVERVIEW",
+                () -> { throw new ResourceAccessException("Read timed out"); }));
+
+        // Assert
+        assertEquals(1, calls("CLIENT_ERROR", "HttpClientErrorException"));
+        assertEquals(1, calls("SERVER_ERROR", "HttpServerErrorException"));
+        assertEquals(1, calls("ERROR", "ResourceAccessException"));
+    }
+}
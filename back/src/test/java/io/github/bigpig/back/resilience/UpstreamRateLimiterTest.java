@@ -0,0 +1,190 @@
+package io.github.bigpig.back.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamRateLimiterTest {
+
+    // 600 calls per minute refill one token every 100 ms of clock time
+    private static final Duration TOKEN_INTERVAL = Duration.ofMillis(100);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-22T15:00:00Z"));
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private UpstreamRateLimiter limiter(int burst, int callsPerDay, Duration maxWait) {
+        return new UpstreamRateLimiter(meterRegistry, clock, burst, 600, callsPerDay, maxWait, maxWait);
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).tag("upstream", Upstream.ALPHA_VANTAGE.name()).gauge().value();
+    }
+
+    private void awaitQueued(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (gauge(UpstreamRateLimiter.QUEUED_CALLS_METRIC) < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, gauge(UpstreamRateLimiter.QUEUED_CALLS_METRIC));
+    }
+
+    @Test
+    @DisplayName("acquire should grant a burst and then throttle until the bucket refills")
+    void acquire_BurstSpent_ThrottlesUntilRefill() {
+        // Arrange
+        UpstreamRateLimiter limiter = limiter(2, 100, Duration.ZERO);
+
+        // Act & Assert
+        assertEquals(RateLimiter.Result.GRANTED, limiter.acquire(Upstream.ALPHA_VANTAGE, Priority.INTERACTIVE));
+        assertEquals(RateLimiter.Result.GRANTED, limiter.acquire(Upstream.ALPHA_VANTAGE, Priority.INTERACTIVE));
+        assertEquals(RateLimiter.Result.THROTTLED, limiter.acquire(Upstream.ALPHA_VANTAGE, Priority.INTERACTIVE));
+
+        clock.advance(TOKEN_INTERVAL);
+        assertEquals(RateLimiter.Result.GRANTED, limiter.acquire(Upstream.ALPHA_VANTAGE, Priority.INTERACTIVE));
+        assertEquals(3, gauge(UpstreamRateLimiter.QUOTA_USED_METRIC));
+        assertEquals(97, gauge(UpstreamRateLimiter.QUOTA_REMAINING_METRIC));
+    }
+
+    @Test
+    @DisplayName("acquire should leave the line without a token once the waiting call is cancelled")
+    void acquire_CancelledWhileWaiting_TakesNoToken() throws Exception {
+        // Arrange
+        UpstreamRateLimiter limiter = limiter(1, 100, Duration.ofMinutes(1));
+        limiter.acquire(Upstream.ALPHA_VANTAGE, Priority.INTERACTIVE);
+        CancellationScope scope = new CancellationScope();
+        Future<RateLimiter.Result> waiting = executor.submit(() -> scope.call(
+                () -> limiter.acquire(Upstream.ALPHA_VANTAGE, Priority.BACKGROUND)));
+        awaitQueued(1);
+
+        // Act
+        scope.cancel();
+        clock.advance(TOKEN_INTERVAL);
+
+        // Assert
+        assertEquals(RateLimiter.Result.CANCELLED, waiting.get(5, TimeUnit.SECONDS));
+        assertEquals(RateLimiter.Result.GRANTED, limiter.acquire(Upstream.ALPHA_VANTAGE, Priority.INTERACTIVE));
+        assertEquals(2, gauge(UpstreamRateLimiter.QUOTA_USED_METRIC));
+    }
+
+    @Test
+    @DisplayName("acquire should refuse calls once the daily quota is spent until the next day")
+    void acquire_DailyQuotaSpent_RefusesUntilNextDay() {
+        // Arrange
+        UpstreamRateLimiter limiter = limiter(5, 2, Duration.ZERO);
+        limiter.acquire(Upstream.ALPHA_VANTAGE, Priority.INTERACTIVE);
+        limiter.acquire(Upstream.ALPHA_VANTAGE, Priority.INTERACTIVE);
+
+        // Act & Assert
+        assertEquals(RateLimiter.Result.QUOTA_EXHAUSTED,
+                limiter.acquire(Upstream.ALPHA_VANTAGE, Priority.INTERACTIVE));
+        assertEquals(0, gauge(UpstreamRateLimiter.QUOTA_REMAINING_METRIC));
+        assertEquals(0, limiter.remainingToday(Upstream.ALPHA_VANTAGE));
+
+        clock.advance(Duration.ofDays(1));
+        assertEquals(2, gauge(UpstreamRateLimiter.QUOTA_REMAINING_METRIC));
+        assertEquals(RateLimiter.Result.GRANTED, limiter.acquire(Upstream.ALPHA_VANTAGE, Priority.INTERACTIVE));
+    }
+
+    @Test
+    @DisplayName("acquire should let queued interactive calls through before earlier background ones")
+    void acquire_Queued_InteractiveBeforeBackground() throws Exception {
+        // Arrange
+        UpstreamRateLimiter limiter = limiter(1, 100, Duration.ofSeconds(10));
+        limiter.acquire(Upstream.ALPHA_VANTAGE, Priority.INTERACTIVE);
+        Future<RateLimiter.Result> background =
+                executor.submit(() -> limiter.acquire(Upstream.ALPHA_VANTAGE, Priority.BACKGROUND));
+        awaitQueued(1);
+        Future<RateLimiter.Result> interactive =
+                executor.submit(() -> limiter.acquire(Upstream.ALPHA_VANTAGE, Priority.INTERACTIVE));
+        awaitQueued(2);
+
+        // Act
+        clock.advance(TOKEN_INTERVAL);
+
+        // Assert
+        assertEquals(RateLimiter.Result.GRANTED, interactive.get(5, TimeUnit.SECONDS));
+        assertFalse(background.isDone());
+
+        clock.advance(TOKEN_INTERVAL);
+        assertEquals(RateLimiter.Result.GRANTED, background.get(5, TimeUnit.SECONDS));
+        assertEquals(0, gauge(UpstreamRateLimiter.QUEUED_CALLS_METRIC));
+    }
+
+    @Test
+    @DisplayName("acquire should give up waiting when the caller is interrupted")
+    void acquire_Interrupted_Throttled() {
+        // Arrange
+        UpstreamRateLimiter limiter = limiter(1, 100, Duration.ofSeconds(10));
+        limiter.acquire(Upstream.ALPHA_VANTAGE, Priority.INTERACTIVE);
+        Thread.currentThread().interrupt();
+
+        // Act & Assert
+        try {
+            assertEquals(RateLimiter.Result.THROTTLED,
+                    limiter.acquire(Upstream.ALPHA_VANTAGE, Priority.INTERACTIVE));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    @DisplayName("acquire should always grant upstreams without a published limit")
+    void acquire_UnlimitedUpstream_Granted() {
+        // Arrange
+        UpstreamRateLimiter limiter = limiter(1, 1, Duration.ZERO);
+
+        // Act & Assert
+        for (int i = 0; i < 3; i++) {
+            assertEquals(RateLimiter.Result.GRANTED, limiter.acquire(Upstream.AI_ANALYSIS, Priority.BACKGROUND));
+        }
+        assertEquals(Integer.MAX_VALUE, limiter.remainingToday(Upstream.AI_ANALYSIS));
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private volatile Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package io.github.bigpig.back.resilience;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import io.github.bigpig.back.exceptions.DeadlineExceededException;
+import io.github.bigpig.back.exceptions.MalformedResponseException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamRetrierTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final UpstreamRetrier retrier =
+            new UpstreamRetrier(meterRegistry, 3, Duration.ZERO, Duration.ZERO, 0.5, 2);
+
+    private static Supplier<String> failing(AtomicInteger calls, RuntimeException... failures) {
+        return () -> {
+            int call = calls.getAndIncrement();
+            if (call < failures.length) {
+                throw failures[call];
+            }
+            return "ok";
+        };
+    }
+
+    private double retries(Upstream upstream) {
+        return meterRegistry.counter(UpstreamRetrier.RETRIES_METRIC, "upstream", upstream.name()).count();
+    }
+
+    @Test
+    @DisplayName("execute should retry transient failures until the call succeeds")
+    void execute_TransientFailures_Retries() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<String> call = failing(calls,
+                new ResourceAccessException("timeout", new SocketTimeoutException()),
+                new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+        // Act
+        String result = retrier.execute(Upstream.ALPHA_VANTAGE, call);
+
+        // Assert
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+        assertEquals(2, retries(Upstream.ALPHA_VANTAGE));
+    }
+
+    @Test
+    @DisplayName("execute should rethrow the last failure after the maximum number of attempts")
+    void execute_PersistentFailure_StopsAtMaxAttempts() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        MalformedResponseException last = new MalformedResponseException("bad", null);
+        Supplier<String> call = failing(calls, new MalformedResponseException("bad", null),
+                new MalformedResponseException("bad", null), last, new MalformedResponseException("bad", null));
+
+        // Act & Assert
+        assertSame(last, assertThrows(MalformedResponseException.class,
+                () -> retrier.execute(Upstream.AI_ANALYSIS, call)));
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    @DisplayName("execute should not retry a call whose exchange was aborted by cancellation")
+    void execute_CancelledCall_NotRetried() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        CancellationScope scope = new CancellationScope();
+        Supplier<String> call = failing(calls, new ResourceAccessException("aborted", new SocketTimeoutException()));
+        scope.cancel();
+
+        // Act & Assert
+        assertThrows(ResourceAccessException.class,
+                () -> scope.call(() -> retrier.execute(Upstream.AI_ANALYSIS, call)));
+        assertEquals(1, calls.get());
+        assertEquals(0, retries(Upstream.AI_ANALYSIS));
+    }
+
+    @Test
+    @DisplayName("execute should fail with the deadline instead of retrying when no time is left")
+    void execute_DeadlinePassed_NotRetried() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<String> call = failing(calls, new HttpServerErrorException(HttpStatus.BAD_GATEWAY));
+
+        // Act & Assert
+        assertThrows(DeadlineExceededException.class,
+                () -> Deadline.after(Duration.ZERO).call(() -> retrier.execute(Upstream.ALPHA_VANTAGE, call)));
+        assertEquals(1, calls.get());
+        assertEquals(0, retries(Upstream.ALPHA_VANTAGE));
+    }
+
+    @Test
+    @DisplayName("execute should not retry failures that would repeat")
+    void execute_PermanentFailure_NotRetried() {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<String> call = failing(calls, new HttpClientErrorException(HttpStatus.NOT_FOUND));
+
+        // Act & Assert
+        assertThrows(HttpClientErrorException.class, () -> retrier.execute(Upstream.ALPHA_VANTAGE, call));
+        assertEquals(1, calls.get());
+        assertEquals(0, retries(Upstream.ALPHA_VANTAGE));
+    }
+
+    @Test
+    @DisplayName("execute should stop retrying an upstream once its budget is spent")
+    void execute_BudgetExhausted_StopsRetrying() {
+        // Arrange - the budget starts with two retries and earns half a retry per call
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<String> alwaysFailing = () -> {
+            calls.incrementAndGet();
+            throw new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+        };
+
+        // Act
+        for (int i = 0; i < 4; i++) {
+            assertThrows(HttpServerErrorException.class, () -> retrier.execute(Upstream.AI_ANALYSIS, alwaysFailing));
+        }
+
+        // Assert - two retries from the reserve plus one earned by the four calls
+        assertEquals(4 + 3, calls.get());
+        assertEquals(3, retries(Upstream.AI_ANALYSIS));
+        assertEquals("ok", retrier.execute(Upstream.ALPHA_VANTAGE,
+                failing(new AtomicInteger(), new HttpServerErrorException(HttpStatus.BAD_GATEWAY))));
+    }
+
+    @Test
+    @DisplayName("execute should give up without sleeping when the thread is interrupted")
+    void execute_Interrupted_RethrowsFailure() {
+        // Arrange
+        UpstreamRetrier slowRetrier =
+                new UpstreamRetrier(meterRegistry, 3, Duration.ofSeconds(10), Duration.ofSeconds(10), 0.5, 2);
+        AtomicInteger calls = new AtomicInteger();
+        Supplier<String> call = failing(calls, new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+        Thread.currentThread().interrupt();
+
+        // Act & Assert
+        try {
+            assertThrows(HttpServerErrorException.class, () -> slowRetrier.execute(Upstream.ALPHA_VANTAGE, call));
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    @DisplayName("isRetryable should classify failures by their cause")
+    void isRetryable_ClassifiesByCause() {
+        assertTrue(UpstreamRetrier.isRetryable(new ResourceAccessException("reset", new SocketTimeoutException())));
+        assertTrue(UpstreamRetrier.isRetryable(new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS)));
+        assertTrue(UpstreamRetrier.isRetryable(new MalformedResponseException("bad", null)));
+        assertFalse(UpstreamRetrier.isRetryable(new HttpClientErrorException(HttpStatus.UNAUTHORIZED)));
+        assertFalse(UpstreamRetrier.isRetryable(
+                new ResourceAccessException("bad payload", new JsonParseException(null, "Missing series"))));
+        assertFalse(UpstreamRetrier.isRetryable(new IllegalStateException("bug")));
+    }
+
+    @Test
+    @DisplayName("backoffNanos should grow exponentially up to the maximum with jitter below it")
+    void backoffNanos_IsJitteredAndCapped() {
+        // Arrange
+        UpstreamRetrier backoffRetrier =
+                new UpstreamRetrier(meterRegistry, 5, Duration.ofMillis(100), Duration.ofMillis(300), 0.5, 2);
+
+        // Act & Assert
+        for (int i = 0; i < 100; i++) {
+            assertTrue(backoffRetrier.backoffNanos(1) <= Duration.ofMillis(100).toNanos());
+            assertTrue(backoffRetrier.backoffNanos(2) <= Duration.ofMillis(200).toNanos());
+            assertTrue(backoffRetrier.backoffNanos(10) <= Duration.ofMillis(300).toNanos());
+        }
+    }
+}
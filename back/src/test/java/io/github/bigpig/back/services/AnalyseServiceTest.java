@@ -0,0 +1,371 @@
+package io.github.bigpig.back.services;
+
+import io.github.bigpig.back.dto.AnalyseDto;
+import io.github.bigpig.back.dto.AnalyseResponseDto;
+import io.github.bigpig.back.exceptions.FetchDataException;
+import io.github.bigpig.back.resilience.UpstreamGateway;
+import io.github.bigpig.back.resilience.UpstreamMetrics;
+import io.github.bigpig.back.resilience.UpstreamRateLimiter;
+import io.github.bigpig.back.resilience.UpstreamRetrier;
+import io.github.bigpig.back.util.AnalysisParser;
+import io.github.bigpig.back.util.RequestCoalescer;
+import io.github.bigpig.back.util.UrlBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestClient;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AnalyseServiceTest {
+
+    @Mock
+    private RestClient restClient;
+
+    @Mock
+    private UrlBuilder urlBuilder;
+
+    @Mock
+    private RestClient.RequestBodyUriSpec requestBodyUriSpec;
+
+    @Mock
+    private RestClient.RequestBodySpec requestBodySpec;
+
+    @Mock
+    private RestClient.ResponseSpec responseSpec;
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-22T15:00:00Z"));
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final Deque<Runnable> backgroundTasks = new ArrayDeque<>();
+    private boolean deferBackgroundTasks;
+
+    private AnalyseService analyseService;
+
+    private static final String TICKER = "AAPL";
+    private static final String URL = "http://ai-analysis:9000/analyze";
+    private static final String ANALYSIS = """
+            Overall Assessment: Strong company.
+            Attractiveness Rating: 8/10
+            Pros: brand, cash
+            Cons: valuation
+            """;
+
+    @BeforeEach
+    void setUp() {
+        // Cache maintenance and refreshes run on the calling thread unless a test defers them
+        Executor executor = task -> {
+            if (deferBackgroundTasks) {
+                backgroundTasks.add(task);
+            } else {
+                task.run();
+            }
+        };
+        analyseService = new AnalyseService(restClient, urlBuilder, new AnalysisParser(),
+                new RequestCoalescer(meterRegistry),
+                new UpstreamGateway(new UpstreamRetrier(meterRegistry, 3, Duration.ZERO, Duration.ZERO, 0.2, 10),
+                        new UpstreamRateLimiter(meterRegistry, clock, 1000, 1000, 1000, Duration.ZERO, Duration.ZERO),
+                        new UpstreamMetrics(meterRegistry), meterRegistry, clock, 5, Duration.ofSeconds(30), 20, 4, Duration.ZERO),
+                executor, meterRegistry, clock,
+                Duration.ofHours(6), Duration.ofHours(24), 2);
+    }
+
+    private static AnalyseResponseDto response(String rating) {
+        return new AnalyseResponseDto(ANALYSIS.replace("8/10", rating), TICKER);
+    }
+
+    private double cacheMeter(String name, String... tags) {
+        return meterRegistry.get(name).tag("cache", AnalyseService.CACHE_NAME).tags(tags)
+                .functionCounter().count();
+    }
+
+    private void stubAnalyseCall() {
+        when(urlBuilder.buildAnalyseUrl()).thenReturn(URL);
+        when(restClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri(URL)).thenReturn(requestBodySpec);
+        when(requestBodySpec.contentType(MediaType.APPLICATION_JSON)).thenReturn(requestBodySpec);
+        when(requestBodySpec.body(any(Object.class))).thenReturn(requestBodySpec);
+        when(requestBodySpec.retrieve()).thenReturn(responseSpec);
+    }
+
+    @Test
+    @DisplayName("getAnalyse should parse the analysis returned by the AI service")
+    void getAnalyse_Success() {
+        // Arrange
+        stubAnalyseCall();
+        when(responseSpec.toEntity(AnalyseResponseDto.class))
+                .thenReturn(new ResponseEntity<>(new AnalyseResponseDto(ANALYSIS, TICKER), HttpStatus.OK));
+
+        // Act
+        AnalyseDto result = analyseService.getAnalyse(TICKER);
+
+        // Assert
+        assertEquals(new AnalyseDto("Strong company.", "8/10", List.of("Brand", "Cash"), List.of("Valuation")),
+                result);
+        verify(requestBodySpec).body(Map.of("symbol", TICKER));
+    }
+
+    @Test
+    @DisplayName("getAnalyse should throw FetchDataException when the AI service returns no body")
+    void getAnalyse_EmptyResponse_ThrowsFetchDataException() {
+        // Arrange
+        stubAnalyseCall();
+        when(responseSpec.toEntity(AnalyseResponseDto.class)).thenReturn(new ResponseEntity<>(HttpStatus.OK));
+
+        // Act & Assert
+        FetchDataException exception = assertThrows(FetchDataException.class,
+                () -> analyseService.getAnalyse(TICKER));
+
+        assertEquals("Failed to fetch analyse: AAPL", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("getAnalyse should ask again when the AI answer cannot be parsed")
+    void getAnalyse_MalformedAnswer_Retries() {
+        // Arrange
+        stubAnalyseCall();
+        when(responseSpec.toEntity(AnalyseResponseDto.class))
+                .thenReturn(new ResponseEntity<>(new AnalyseResponseDto(ANALYSIS.replace("brand, cash", "brand, , cash"), TICKER),
+                        HttpStatus.OK))
+                .thenReturn(new ResponseEntity<>(response("8/10"), HttpStatus.OK));
+
+        // Act
+        AnalyseDto result = analyseService.getAnalyse(TICKER);
+
+        // Assert
+        assertEquals(List.of("Brand", "Cash"), result.pros());
+        verify(responseSpec, times(2)).toEntity(AnalyseResponseDto.class);
+    }
+
+    @Test
+    @DisplayName("getAnalyse should give up after the maximum number of attempts")
+    void getAnalyse_AlwaysMalformed_FailsAfterMaxAttempts() {
+        // Arrange
+        stubAnalyseCall();
+        when(responseSpec.toEntity(AnalyseResponseDto.class)).thenReturn(
+                new ResponseEntity<>(new AnalyseResponseDto(ANALYSIS.replace("brand, cash", "brand, , cash"), TICKER), HttpStatus.OK));
+
+        // Act & Assert
+        FetchDataException exception = assertThrows(FetchDataException.class,
+                () -> analyseService.getAnalyse(TICKER));
+
+        assertEquals("Failed to fetch analyse: AAPL", exception.getMessage());
+        verify(responseSpec, times(3)).toEntity(AnalyseResponseDto.class);
+    }
+
+    @Test
+    @DisplayName("getAnalyse should serve repeated requests from the cache")
+    void getAnalyse_RepeatedTicker_CallsAiServiceOnce() {
+        // Arrange
+        stubAnalyseCall();
+        when(responseSpec.toEntity(AnalyseResponseDto.class))
+                .thenReturn(new ResponseEntity<>(response("8/10"), HttpStatus.OK));
+
+        // Act
+        AnalyseDto first = analyseService.getAnalyse(TICKER);
+        AnalyseDto second = analyseService.getAnalyse("aapl");
+
+        // Assert
+        assertSame(first, second);
+        verify(responseSpec, times(1)).toEntity(AnalyseResponseDto.class);
+        assertEquals(1, cacheMeter("cache.gets", "result", "hit"));
+        assertEquals(1, cacheMeter("cache.gets", "result", "miss"));
+    }
+
+    @Test
+    @DisplayName("getAnalyse should serve a stale analysis while a single refresh runs")
+    void getAnalyse_AfterTtl_ServesStaleAndRefreshesOnce() {
+        // Arrange
+        stubAnalyseCall();
+        when(responseSpec.toEntity(AnalyseResponseDto.class))
+                .thenReturn(new ResponseEntity<>(response("8/10"), HttpStatus.OK))
+                .thenReturn(new ResponseEntity<>(response("6/10"), HttpStatus.OK));
+        analyseService.getAnalyse(TICKER);
+        clock.advance(Duration.ofHours(7));
+        deferBackgroundTasks = true;
+
+        // Act
+        List<AnalyseDto> stale = List.of(analyseService.getAnalyse(TICKER), analyseService.getAnalyse(TICKER),
+                analyseService.getAnalyse(TICKER));
+        deferBackgroundTasks = false;
+        while (!backgroundTasks.isEmpty()) {
+            backgroundTasks.poll().run();
+        }
+        AnalyseDto refreshed = analyseService.getAnalyse(TICKER);
+
+        // Assert
+        stale.forEach(analyse -> assertEquals("8/10", analyse.rating()));
+        assertEquals("6/10", refreshed.rating());
+        verify(responseSpec, times(2)).toEntity(AnalyseResponseDto.class);
+    }
+
+    @Test
+    @DisplayName("getAnalyseAsync should load on the upstream executor and complete cached analyses right away")
+    void getAnalyseAsync_LoadsOnExecutor_CachedCompletesImmediately() {
+        // Arrange
+        stubAnalyseCall();
+        when(responseSpec.toEntity(AnalyseResponseDto.class))
+                .thenReturn(new ResponseEntity<>(response("8/10"), HttpStatus.OK));
+        deferBackgroundTasks = true;
+
+        // Act
+        CompletableFuture<AnalyseDto> first = analyseService.getAnalyseAsync(TICKER);
+        boolean doneBeforeExecutorRan = first.isDone();
+        deferBackgroundTasks = false;
+        while (!backgroundTasks.isEmpty()) {
+            backgroundTasks.poll().run();
+        }
+        CompletableFuture<AnalyseDto> second = analyseService.getAnalyseAsync("aapl");
+
+        // Assert
+        assertFalse(doneBeforeExecutorRan);
+        assertEquals("8/10", first.join().rating());
+        assertTrue(second.isDone());
+        assertSame(first.join(), second.join());
+        verify(responseSpec, times(1)).toEntity(AnalyseResponseDto.class);
+        assertEquals(1, cacheMeter("cache.gets", "result", "hit"));
+        assertEquals(1, cacheMeter("cache.gets", "result", "miss"));
+    }
+
+    @Test
+    @DisplayName("getAnalyseAsync should skip the AI call when cancelled before the load starts")
+    void getAnalyseAsync_CancelledBeforeStart_SkipsCall() {
+        // Arrange
+        deferBackgroundTasks = true;
+        CompletableFuture<AnalyseDto> analyse = analyseService.getAnalyseAsync(TICKER);
+
+        // Act
+        analyse.cancel(false);
+        deferBackgroundTasks = false;
+        while (!backgroundTasks.isEmpty()) {
+            backgroundTasks.poll().run();
+        }
+
+        // Assert
+        assertTrue(analyse.isCancelled());
+        verifyNoInteractions(restClient);
+    }
+
+    @Test
+    @DisplayName("refreshAnalyse should replace the cached analysis before it goes stale")
+    void refreshAnalyse_ReplacesCachedAnalyse() {
+        // Arrange
+        stubAnalyseCall();
+        when(responseSpec.toEntity(AnalyseResponseDto.class))
+                .thenReturn(new ResponseEntity<>(response("8/10"), HttpStatus.OK))
+                .thenReturn(new ResponseEntity<>(response("6/10"), HttpStatus.OK));
+        analyseService.getAnalyse(TICKER);
+
+        // Act
+        AnalyseDto refreshed = analyseService.refreshAnalyse(TICKER.toLowerCase()).join();
+
+        // Assert
+        assertEquals("6/10", refreshed.rating());
+        assertEquals("6/10", analyseService.getAnalyse(TICKER).rating());
+        verify(responseSpec, times(2)).toEntity(AnalyseResponseDto.class);
+    }
+
+    @Test
+    @DisplayName("getAnalyse should keep the stale analysis when the refresh fails")
+    void getAnalyse_RefreshFails_KeepsStaleEntry() {
+        // Arrange
+        stubAnalyseCall();
+        when(responseSpec.toEntity(AnalyseResponseDto.class))
+                .thenReturn(new ResponseEntity<>(response("8/10"), HttpStatus.OK))
+                .thenReturn(new ResponseEntity<>(HttpStatus.OK));
+        analyseService.getAnalyse(TICKER);
+        clock.advance(Duration.ofHours(7));
+
+        // Act
+        analyseService.getAnalyse(TICKER);
+        AnalyseDto afterFailedRefresh = analyseService.getAnalyse(TICKER);
+
+        // Assert
+        assertEquals("8/10", afterFailedRefresh.rating());
+    }
+
+    @Test
+    @DisplayName("getAnalyse should load a fresh analysis once the entry is past its maximum staleness")
+    void getAnalyse_AfterMaxStale_LoadsFresh() {
+        // Arrange
+        stubAnalyseCall();
+        when(responseSpec.toEntity(AnalyseResponseDto.class))
+                .thenReturn(new ResponseEntity<>(response("8/10"), HttpStatus.OK))
+                .thenReturn(new ResponseEntity<>(response("6/10"), HttpStatus.OK));
+        analyseService.getAnalyse(TICKER);
+        clock.advance(Duration.ofHours(25));
+
+        // Act
+        AnalyseDto result = analyseService.getAnalyse(TICKER);
+
+        // Assert
+        assertEquals("6/10", result.rating());
+    }
+
+    @Test
+    @DisplayName("getAnalyse should evict entries beyond the maximum size")
+    void getAnalyse_OverMaxSize_Evicts() {
+        // Arrange
+        stubAnalyseCall();
+        when(responseSpec.toEntity(AnalyseResponseDto.class))
+                .thenReturn(new ResponseEntity<>(response("8/10"), HttpStatus.OK));
+
+        // Act
+        for (String ticker : List.of("AAPL", "MSFT", "NVDA", "TSLA")) {
+            analyseService.getAnalyse(ticker);
+        }
+
+        // Assert
+        assertTrue(cacheMeter("cache.evictions") >= 1);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
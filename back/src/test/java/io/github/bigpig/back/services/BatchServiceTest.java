@@ -0,0 +1,196 @@
+package io.github.bigpig.back.services;
+
+import io.github.bigpig.back.dto.AnalyseDto;
+import io.github.bigpig.back.dto.BatchSection;
+import io.github.bigpig.back.dto.ShareDto;
+import io.github.bigpig.back.dto.TickerInfoDto;
+import io.github.bigpig.back.exceptions.DeadlineExceededException;
+import io.github.bigpig.back.exceptions.ErrorCodes;
+import io.github.bigpig.back.exceptions.FetchDataException;
+import io.github.bigpig.back.exceptions.InvalidRequestException;
+import io.github.bigpig.back.exceptions.UpstreamUnavailableException;
+import io.github.bigpig.back.models.PriceSeries;
+import io.github.bigpig.back.resilience.Deadline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchServiceTest {
+
+    @Mock
+    private ShareService shareService;
+
+    @Mock
+    private PricesService pricesService;
+
+    @Mock
+    private AnalyseService analyseService;
+
+    private BatchService batchService;
+
+    private final ShareDto APPLE = new ShareDto("AAPL", "Apple Inc.", "2,4T", "20", "20", "20", "20");
+    private final AnalyseDto ANALYSE = new AnalyseDto("Good", "8/10", List.of("Pros"), List.of("Cons"));
+    private final PriceSeries SERIES = PriceSeries.of(new int[] {19740, 19741}, new double[] {150.5, 151.5});
+
+    @BeforeEach
+    void setUp() {
+        batchService = new BatchService(shareService, pricesService, analyseService, 3, Duration.ofSeconds(5));
+    }
+
+    @Test
+    @DisplayName("getBatch should load every section of every ticker")
+    void getBatch_AllSections_Success() {
+        // Arrange
+        when(shareService.getMainInfoAsync("AAPL")).thenReturn(CompletableFuture.completedFuture(APPLE));
+        when(pricesService.getPricesAsync("AAPL", null, null, null))
+                .thenReturn(CompletableFuture.completedFuture(SERIES));
+        when(analyseService.getAnalyseAsync("AAPL")).thenReturn(CompletableFuture.completedFuture(ANALYSE));
+
+        // Act
+        List<TickerInfoDto> result = batchService.getBatch(List.of("aapl"), null, null);
+
+        // Assert
+        assertEquals(1, result.size());
+        TickerInfoDto info = result.get(0);
+        assertEquals("AAPL", info.ticker());
+        assertEquals(APPLE, info.mainInfo());
+        assertEquals(2, info.chart().size());
+        assertEquals(ANALYSE, info.analyse());
+        assertTrue(info.errors().isEmpty());
+    }
+
+    @Test
+    @DisplayName("getBatch should start every upstream call before waiting for any of them")
+    void getBatch_RunsCallsConcurrently() {
+        // Arrange - every call completes only once all three have started
+        CountDownLatch started = new CountDownLatch(3);
+        CompletableFuture<Void> allStarted = CompletableFuture.runAsync(() -> {
+            try {
+                assertTrue(started.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        when(shareService.getMainInfoAsync(anyString())).thenAnswer(invocation -> {
+            started.countDown();
+            return allStarted.thenApply(ignored -> APPLE);
+        });
+
+        // Act
+        List<TickerInfoDto> result = batchService.getBatch(List.of("AAPL", "MSFT", "GOOGL"),
+                Set.of(BatchSection.MAIN_INFO), null);
+
+        // Assert
+        assertEquals(3, result.size());
+        result.forEach(info -> assertTrue(info.errors().isEmpty()));
+        verifyNoInteractions(pricesService, analyseService);
+    }
+
+    @Test
+    @DisplayName("getBatch should report a failing section without failing the whole batch")
+    void getBatch_PartialFailure_ReportsError() {
+        // Arrange
+        when(shareService.getMainInfoAsync("AAPL")).thenReturn(CompletableFuture.completedFuture(APPLE));
+        when(shareService.getMainInfoAsync("MSFT")).thenReturn(CompletableFuture.failedFuture(
+                new FetchDataException("Failed to fetch share data for ticker: MSFT")));
+        when(pricesService.getPricesAsync(anyString(), isNull(), isNull(), eq(10)))
+                .thenReturn(CompletableFuture.completedFuture(SERIES));
+
+        // Act
+        List<TickerInfoDto> result = batchService.getBatch(List.of("AAPL", "MSFT"),
+                Set.of(BatchSection.MAIN_INFO, BatchSection.CHART_INFO), 10);
+
+        // Assert
+        assertEquals(APPLE, result.get(0).mainInfo());
+        assertTrue(result.get(0).errors().isEmpty());
+        assertNull(result.get(1).mainInfo());
+        assertEquals(2, result.get(1).chart().size());
+        assertEquals(ErrorCodes.DATA_NOT_FETCHED.toString(),
+                result.get(1).errors().get(BatchSection.MAIN_INFO).errorCode());
+    }
+
+    @Test
+    @DisplayName("getBatch should report an unavailable upstream with its own error code")
+    void getBatch_UpstreamUnavailable_ReportsError() {
+        // Arrange
+        when(analyseService.getAnalyseAsync("AAPL")).thenReturn(CompletableFuture.failedFuture(
+                new UpstreamUnavailableException("AI_ANALYSIS is unavailable, circuit is open")));
+
+        // Act
+        List<TickerInfoDto> result = batchService.getBatch(List.of("AAPL"), Set.of(BatchSection.AI_ANALYSE), null);
+
+        // Assert
+        assertEquals(ErrorCodes.UPSTREAM_UNAVAILABLE.toString(),
+                result.get(0).errors().get(BatchSection.AI_ANALYSE).errorCode());
+    }
+
+    @Test
+    @DisplayName("getBatch should start loads under the request deadline and report when it passes")
+    void getBatch_DeadlinePropagated_ReportsExceeded() {
+        // Arrange
+        Deadline deadline = Deadline.after(Duration.ofMinutes(1));
+        when(shareService.getMainInfoAsync("AAPL")).thenAnswer(invocation -> {
+            assertSame(deadline, Deadline.current());
+            return CompletableFuture.completedFuture(APPLE);
+        });
+        when(analyseService.getAnalyseAsync("AAPL")).thenReturn(CompletableFuture.failedFuture(
+                new DeadlineExceededException("Request deadline passed waiting for AI_ANALYSIS")));
+
+        // Act
+        List<TickerInfoDto> result = deadline.call(() -> batchService.getBatch(List.of("AAPL"),
+                Set.of(BatchSection.MAIN_INFO, BatchSection.AI_ANALYSE), null));
+
+        // Assert
+        assertEquals(APPLE, result.get(0).mainInfo());
+        assertEquals(ErrorCodes.DEADLINE_EXCEEDED.toString(),
+                result.get(0).errors().get(BatchSection.AI_ANALYSE).errorCode());
+    }
+
+    @Test
+    @DisplayName("getBatch should report sections that exceed the batch timeout and withdraw from them")
+    void getBatch_SlowSection_TimesOut() {
+        // Arrange
+        batchService = new BatchService(shareService, pricesService, analyseService, 3, Duration.ofMillis(100));
+        CompletableFuture<AnalyseDto> slow = new CompletableFuture<>();
+        when(analyseService.getAnalyseAsync("AAPL")).thenReturn(slow);
+        when(shareService.getMainInfoAsync("AAPL")).thenReturn(CompletableFuture.completedFuture(APPLE));
+
+        // Act
+        List<TickerInfoDto> result = batchService.getBatch(List.of("AAPL"),
+                Set.of(BatchSection.MAIN_INFO, BatchSection.AI_ANALYSE), null);
+
+        // Assert
+        assertEquals(APPLE, result.get(0).mainInfo());
+        assertNull(result.get(0).analyse());
+        assertEquals("Timed out loading AI_ANALYSE for ticker: AAPL",
+                result.get(0).errors().get(BatchSection.AI_ANALYSE).message());
+        assertTrue(slow.isCancelled());
+    }
+
+    @Test
+    @DisplayName("getBatch should reject empty and oversized ticker lists")
+    void getBatch_InvalidTickers_Throws() {
+        assertThrows(InvalidRequestException.class,
+                () -> batchService.getBatch(Collections.emptyList(), null, null));
+        assertThrows(InvalidRequestException.class,
+                () -> batchService.getBatch(List.of("A", "B", "C", "D"), null, null));
+        assertThrows(InvalidRequestException.class,
+                () -> batchService.getBatch(List.of("A"), null, 1));
+        verifyNoInteractions(shareService, pricesService, analyseService);
+    }
+}
@@ -0,0 +1,130 @@
+package io.github.bigpig.back.services;
+
+import io.github.bigpig.back.dto.AnalyseDto;
+import io.github.bigpig.back.exceptions.FetchDataException;
+import io.github.bigpig.back.resilience.Upstream;
+import io.github.bigpig.back.resilience.UpstreamRateLimiter;
+import io.github.bigpig.back.util.TickerPopularity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheWarmerTest {
+
+    @Mock
+    private ShareService shareService;
+
+    @Mock
+    private PricesService pricesService;
+
+    @Mock
+    private AnalyseService analyseService;
+
+    @Mock
+    private TickerPopularity tickerPopularity;
+
+    @Mock
+    private UpstreamRateLimiter upstreamRateLimiter;
+
+    private CacheWarmer cacheWarmer;
+
+    @BeforeEach
+    void setUp() {
+        cacheWarmer = new CacheWarmer(shareService, pricesService, analyseService, tickerPopularity,
+                upstreamRateLimiter, List.of("aapl", " MSFT", ""), 2, 10);
+    }
+
+    @Test
+    @DisplayName("hotTickers should list configured tickers first, then the most requested ones")
+    void hotTickers_ConfiguredThenLearned() {
+        // Arrange
+        when(tickerPopularity.hottest(2)).thenReturn(List.of("MSFT", "NVDA"));
+
+        // Act & Assert
+        assertEquals(List.of("AAPL", "MSFT", "NVDA"), cacheWarmer.hotTickers());
+    }
+
+    @Test
+    @DisplayName("warmMarketData should refresh overview and prices for every hot ticker and decay popularity")
+    void warmMarketData_RefreshesEveryTicker() {
+        // Arrange
+        when(tickerPopularity.hottest(2)).thenReturn(List.of("NVDA"));
+        when(upstreamRateLimiter.remainingToday(Upstream.ALPHA_VANTAGE)).thenReturn(100);
+
+        // Act
+        cacheWarmer.warmMarketData();
+
+        // Assert
+        InOrder inOrder = inOrder(shareService, pricesService, tickerPopularity);
+        for (String ticker : List.of("AAPL", "MSFT", "NVDA")) {
+            inOrder.verify(shareService).refreshMainInfo(ticker);
+            inOrder.verify(pricesService).refreshPrices(ticker);
+        }
+        inOrder.verify(tickerPopularity).decay();
+    }
+
+    @Test
+    @DisplayName("warmMarketData should stop before it eats into the quota kept for users")
+    void warmMarketData_QuotaReserveReached_Stops() {
+        // Arrange
+        when(tickerPopularity.hottest(2)).thenReturn(List.of());
+        when(upstreamRateLimiter.remainingToday(Upstream.ALPHA_VANTAGE)).thenReturn(12, 11);
+
+        // Act
+        cacheWarmer.warmMarketData();
+
+        // Assert
+        verify(shareService).refreshMainInfo("AAPL");
+        verify(shareService, never()).refreshMainInfo("MSFT");
+        verify(tickerPopularity).decay();
+    }
+
+    @Test
+    @DisplayName("warmMarketData should carry on with the next ticker when one fails")
+    void warmMarketData_TickerFails_ContinuesWithNext() {
+        // Arrange
+        when(tickerPopularity.hottest(2)).thenReturn(List.of());
+        when(upstreamRateLimiter.remainingToday(Upstream.ALPHA_VANTAGE)).thenReturn(100);
+        when(shareService.refreshMainInfo("AAPL"))
+                .thenThrow(new FetchDataException("Failed to fetch share data for ticker: AAPL"));
+
+        // Act
+        cacheWarmer.warmMarketData();
+
+        // Assert
+        verify(pricesService, never()).refreshPrices("AAPL");
+        verify(pricesService).refreshPrices("MSFT");
+    }
+
+    @Test
+    @DisplayName("warmAnalyses should refresh the analyse of every hot ticker even when one fails")
+    void warmAnalyses_RefreshesEveryTicker() {
+        // Arrange
+        when(tickerPopularity.hottest(2)).thenReturn(List.of());
+        CompletableFuture<AnalyseDto> failed =
+                CompletableFuture.failedFuture(new FetchDataException("Failed to fetch analyse: AAPL"));
+        CompletableFuture<AnalyseDto> refreshed =
+                CompletableFuture.completedFuture(new AnalyseDto("Strong.", "8/10", List.of(), List.of()));
+        when(analyseService.refreshAnalyse(anyString())).thenReturn(failed).thenReturn(refreshed);
+
+        // Act
+        cacheWarmer.warmAnalyses();
+
+        // Assert
+        verify(analyseService).refreshAnalyse("AAPL");
+        verify(analyseService).refreshAnalyse("MSFT");
+        verifyNoInteractions(upstreamRateLimiter);
+    }
+}
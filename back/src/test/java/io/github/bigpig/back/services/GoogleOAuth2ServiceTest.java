@@ -3,7 +3,9 @@ package io.github.bigpig.back.services;
 import io.github.bigpig.back.models.Role;
 import io.github.bigpig.back.models.User;
 import io.github.bigpig.back.repositories.RoleRepository;
+import io.github.bigpig.back.resilience.UpstreamMetrics;
 import io.github.bigpig.back.util.JwtUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -37,6 +39,8 @@ class GoogleOAuth2ServiceTest {
     @Mock
     private RestTemplate restTemplate;
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     private GoogleOAuth2Service googleOAuth2Service;
 
     private final String CLIENT_ID = "test-client-id";
@@ -52,15 +56,15 @@ class GoogleOAuth2ServiceTest {
     @BeforeEach
     void setUp() {
         // Используем рефлексию для установки значений полей
-        googleOAuth2Service = new GoogleOAuth2Service(userService, jwtUtils, roleRepository);
+        googleOAuth2Service = new GoogleOAuth2Service(userService, jwtUtils, roleRepository, restTemplate,
+                new UpstreamMetrics(meterRegistry));
 
         // Устанавливаем значения через рефлексию
         setField(googleOAuth2Service, "clientId", CLIENT_ID);
         String CLIENT_SECRET = "test-client-secret";
         setField(googleOAuth2Service, "clientSecret", CLIENT_SECRET);
-
-        // Заменяем RestTemplate на мок
-        setField(googleOAuth2Service, "restTemplate", restTemplate);
+        setField(googleOAuth2Service, "tokenUrl", "https://oauth2.googleapis.com/token");
+        setField(googleOAuth2Service, "userInfoUrl", "https://www.googleapis.com/oauth2/v3/userinfo");
     }
 
     private void setField(Object target, String fieldName, Object value) {
@@ -88,6 +92,8 @@ class GoogleOAuth2ServiceTest {
 
         // Assert
         assertEquals(ACCESS_TOKEN, result);
+        assertEquals(1, meterRegistry.get(UpstreamMetrics.CALLS_METRIC)
+                .tags("upstream", GoogleOAuth2Service.UPSTREAM, "operation", "token").timer().count());
         verify(restTemplate).postForObject(eq(tokenUrl), argThat(entity -> {
             HttpEntity<?> httpEntity = (HttpEntity<?>) entity;
             return httpEntity.getHeaders().getContentType().equals(MediaType.APPLICATION_FORM_URLENCODED) &&
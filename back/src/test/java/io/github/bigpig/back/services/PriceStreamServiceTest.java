@@ -0,0 +1,265 @@
+package io.github.bigpig.back.services;
+
+import io.github.bigpig.back.controllers.ShareController;
+import io.github.bigpig.back.dto.PointDto;
+import io.github.bigpig.back.dto.PriceUpdateDto;
+import io.github.bigpig.back.exceptions.FetchDataException;
+import io.github.bigpig.back.exceptions.InvalidRequestException;
+import io.github.bigpig.back.models.PriceSeries;
+import io.github.bigpig.back.resilience.Upstream;
+import io.github.bigpig.back.resilience.UpstreamRateLimiter;
+import io.github.bigpig.back.util.ResponseBodyCache;
+import io.github.bigpig.back.util.TickerPopularity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@ExtendWith(MockitoExtension.class)
+class PriceStreamServiceTest {
+
+    @Mock
+    private PricesService pricesService;
+
+    @Mock
+    private UpstreamRateLimiter upstreamRateLimiter;
+
+    private final List<Runnable> sends = new ArrayList<>();
+    private boolean saturated;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private PriceStreamService priceStreamService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        Executor streamExecutor = task -> {
+            if (saturated) {
+                throw new RejectedExecutionException("saturated");
+            }
+            sends.add(task);
+        };
+        priceStreamService = new PriceStreamService(pricesService, streamExecutor, upstreamRateLimiter,
+                meterRegistry, 2, 3, Duration.ofMinutes(30), 10);
+        // The emitters need a real async request to write events to
+        mockMvc = MockMvcBuilders.standaloneSetup(new ShareController(mock(ShareService.class), pricesService,
+                mock(AnalyseService.class), mock(BatchService.class), priceStreamService,
+                mock(TickerPopularity.class), mock(ResponseBodyCache.class))).build();
+    }
+
+    private MockHttpServletResponse subscribe(String tickers) throws Exception {
+        return connect(tickers).getResponse();
+    }
+
+    private MvcResult connect(String tickers) throws Exception {
+        return mockMvc.perform(get("/bp-invest/api/v1/chart-stream").param("tickers", tickers))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private void runSends() {
+        List<Runnable> pending = List.copyOf(sends);
+        sends.clear();
+        pending.forEach(Runnable::run);
+    }
+
+    @Test
+    @DisplayName("onPricesUpdated should push the points to the subscribers of that ticker only")
+    void onPricesUpdated_PushesToTickerSubscribers() throws Exception {
+        // Arrange
+        MockHttpServletResponse apple = subscribe("aapl, MSFT");
+        MockHttpServletResponse nvidia = subscribe("NVDA");
+
+        // Act
+        priceStreamService.onPricesUpdated(new PriceUpdateDto("AAPL", List.of(new PointDto("2024-01-22", 155.0))));
+        runSends();
+
+        // Assert
+        assertEquals("event:prices\ndata:{\"ticker\":\"AAPL\",\"points\":[{\"day\":\"2024-01-22\",\"val\":155.0}]}\n\n",
+                apple.getContentAsString());
+        assertEquals("", nvidia.getContentAsString());
+        assertEquals(Set.of("AAPL", "MSFT", "NVDA"), priceStreamService.streamedTickers());
+        assertEquals(2.0, meterRegistry.get(PriceStreamService.SUBSCRIBERS_METRIC).gauge().value());
+    }
+
+    @Test
+    @DisplayName("onPricesUpdated should conflate points of the same day while a send is pending")
+    void onPricesUpdated_SendPending_ConflatesByDay() throws Exception {
+        // Arrange
+        MockHttpServletResponse response = subscribe("AAPL");
+
+        // Act
+        priceStreamService.onPricesUpdated(new PriceUpdateDto("AAPL", List.of(new PointDto("2024-01-22", 155.0))));
+        priceStreamService.onPricesUpdated(new PriceUpdateDto("AAPL", List.of(new PointDto("2024-01-22", 156.0))));
+        runSends();
+
+        // Assert
+        assertEquals("event:prices\ndata:{\"ticker\":\"AAPL\",\"points\":[{\"day\":\"2024-01-22\",\"val\":156.0}]}\n\n",
+                response.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("onPricesUpdated should disconnect a subscriber that falls behind the pending limit")
+    void onPricesUpdated_SlowSubscriber_Disconnects() throws Exception {
+        // Arrange
+        subscribe("AAPL");
+        priceStreamService.onPricesUpdated(new PriceUpdateDto("AAPL", List.of(
+                new PointDto("2024-01-18", 150.0), new PointDto("2024-01-19", 151.0))));
+
+        // Act
+        priceStreamService.onPricesUpdated(new PriceUpdateDto("AAPL", List.of(
+                new PointDto("2024-01-22", 152.0), new PointDto("2024-01-23", 153.0))));
+
+        // Assert
+        assertTrue(priceStreamService.streamedTickers().isEmpty());
+        assertEquals(0.0, meterRegistry.get(PriceStreamService.SUBSCRIBERS_METRIC).gauge().value());
+    }
+
+    @Test
+    @DisplayName("onPricesUpdated should disconnect a subscriber whose send the saturated executor rejects")
+    void onPricesUpdated_ExecutorSaturated_Disconnects() throws Exception {
+        // Arrange
+        MockHttpServletResponse response = subscribe("AAPL");
+        saturated = true;
+
+        // Act
+        priceStreamService.onPricesUpdated(new PriceUpdateDto("AAPL", List.of(new PointDto("2024-01-22", 155.0))));
+
+        // Assert
+        assertEquals("", response.getContentAsString());
+        assertTrue(priceStreamService.streamedTickers().isEmpty());
+        assertEquals(0.0, meterRegistry.get(PriceStreamService.SUBSCRIBERS_METRIC).gauge().value());
+    }
+
+    @Test
+    @DisplayName("subscribe should drop the subscriber once its connection completes or times out")
+    void subscribe_ConnectionEnds_Unsubscribes() throws Exception {
+        // Arrange
+        MvcResult completed = connect("AAPL");
+        MvcResult timedOut = connect("AAPL,MSFT");
+        MockAsyncContext timedOutContext = (MockAsyncContext) timedOut.getRequest().getAsyncContext();
+
+        // Act
+        completed.getRequest().getAsyncContext().complete();
+        for (AsyncListener listener : timedOutContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(timedOutContext));
+        }
+        priceStreamService.onPricesUpdated(new PriceUpdateDto("AAPL", List.of(new PointDto("2024-01-22", 155.0))));
+
+        // Assert
+        assertTrue(priceStreamService.streamedTickers().isEmpty());
+        assertTrue(sends.isEmpty());
+        assertEquals(0.0, meterRegistry.get(PriceStreamService.SUBSCRIBERS_METRIC).gauge().value());
+    }
+
+    @Test
+    @DisplayName("onPricesUpdated should drop a subscriber whose connection is broken")
+    void onPricesUpdated_BrokenConnection_Unsubscribes() throws Exception {
+        // Arrange
+        mockMvc = MockMvcBuilders.standaloneSetup(new ShareController(mock(ShareService.class), pricesService,
+                        mock(AnalyseService.class), mock(BatchService.class), priceStreamService,
+                        mock(TickerPopularity.class), mock(ResponseBodyCache.class)))
+                .addFilters((request, response, chain) -> chain.doFilter(request,
+                        new HttpServletResponseWrapper((HttpServletResponse) response) {
+                            @Override
+                            public ServletOutputStream getOutputStream() throws IOException {
+                                throw new IOException("Broken pipe");
+                            }
+                        }))
+                .build();
+        subscribe("AAPL");
+
+        // Act
+        priceStreamService.onPricesUpdated(new PriceUpdateDto("AAPL", List.of(new PointDto("2024-01-22", 155.0))));
+        runSends();
+
+        // Assert
+        assertTrue(priceStreamService.streamedTickers().isEmpty());
+    }
+
+    @Test
+    @DisplayName("subscribe should reject an empty or too large ticker list")
+    void subscribe_InvalidTickers_Throws() {
+        assertThrows(InvalidRequestException.class, () -> priceStreamService.subscribe(List.of(" ")));
+        assertThrows(InvalidRequestException.class,
+                () -> priceStreamService.subscribe(List.of("AAPL", "MSFT", "NVDA")));
+        assertTrue(priceStreamService.streamedTickers().isEmpty());
+    }
+
+    @Test
+    @DisplayName("refreshSubscribed should sync every streamed ticker even when one fails")
+    void refreshSubscribed_SyncsEveryTicker() {
+        // Arrange
+        priceStreamService.subscribe(List.of("AAPL", "MSFT"));
+        when(pricesService.hasPrices(anyString())).thenReturn(true);
+        when(upstreamRateLimiter.remainingToday(Upstream.ALPHA_VANTAGE)).thenReturn(100);
+        when(pricesService.refreshPrices("AAPL"))
+                .thenThrow(new FetchDataException("Failed to fetch prices data for ticker: AAPL"));
+        when(pricesService.refreshPrices("MSFT")).thenReturn(PriceSeries.of(new int[0], new double[0]));
+
+        // Act
+        priceStreamService.refreshSubscribed();
+
+        // Assert
+        verify(pricesService).refreshPrices("AAPL");
+        verify(pricesService).refreshPrices("MSFT");
+    }
+
+    @Test
+    @DisplayName("refreshSubscribed should skip tickers no chart has loaded")
+    void refreshSubscribed_NotLoaded_Skipped() {
+        // Arrange
+        priceStreamService.subscribe(List.of("AAPL", "JUNK"));
+        when(pricesService.hasPrices("AAPL")).thenReturn(true);
+        when(pricesService.hasPrices("JUNK")).thenReturn(false);
+        when(upstreamRateLimiter.remainingToday(Upstream.ALPHA_VANTAGE)).thenReturn(100);
+
+        // Act
+        priceStreamService.refreshSubscribed();
+
+        // Assert
+        verify(pricesService).refreshPrices("AAPL");
+        verify(pricesService, never()).refreshPrices("JUNK");
+    }
+
+    @Test
+    @DisplayName("refreshSubscribed should stop before dipping into the quota reserve")
+    void refreshSubscribed_QuotaReserveReached_Stops() {
+        // Arrange
+        priceStreamService.subscribe(List.of("AAPL", "MSFT"));
+        when(pricesService.hasPrices(anyString())).thenReturn(true);
+        when(upstreamRateLimiter.remainingToday(Upstream.ALPHA_VANTAGE)).thenReturn(11, 10);
+
+        // Act
+        priceStreamService.refreshSubscribed();
+
+        // Assert
+        verify(pricesService, times(1)).refreshPrices(anyString());
+    }
+}
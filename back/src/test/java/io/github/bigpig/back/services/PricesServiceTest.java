@@ -1,19 +1,53 @@
 package io.github.bigpig.back.services;
 
 import io.github.bigpig.back.dto.PointDto;
+import io.github.bigpig.back.dto.PriceUpdateDto;
 import io.github.bigpig.back.exceptions.FetchDataException;
+import io.github.bigpig.back.exceptions.InvalidRequestException;
+import io.github.bigpig.back.exceptions.UpstreamUnavailableException;
+import io.github.bigpig.back.models.PriceBar;
+import io.github.bigpig.back.models.PriceSeries;
+import io.github.bigpig.back.repositories.PriceBarRepository;
+import io.github.bigpig.back.resilience.Priority;
+import io.github.bigpig.back.resilience.Upstream;
+import io.github.bigpig.back.resilience.UpstreamGateway;
+import io.github.bigpig.back.resilience.UpstreamMetrics;
+import io.github.bigpig.back.resilience.UpstreamRateLimiter;
+import io.github.bigpig.back.resilience.UpstreamRetrier;
+import io.github.bigpig.back.util.MarketCalendar;
+import io.github.bigpig.back.util.RequestCoalescer;
+import io.github.bigpig.back.util.SeriesDownsampler;
+import io.github.bigpig.back.util.TimeSeriesDecoder;
 import io.github.bigpig.back.util.UrlBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.mockito.stubbing.Answer;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.client.RestClient;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,7 +68,10 @@ class PricesServiceTest {
     private RestClient.RequestHeadersSpec requestHeadersSpec;
 
     @Mock
-    private RestClient.ResponseSpec responseSpec;
+    private PriceBarRepository priceBarRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     private PricesService pricesService;
 
@@ -42,9 +79,34 @@ class PricesServiceTest {
     private final String FUNCTION = "TIME_SERIES_DAILY";
     private final String URL = "https://www.alphavantage.co/query?function=TIME_SERIES_DAILY&symbol=AAPL&apikey=demo";
 
+    // Monday evening in New York, the 2024-01-22 session is closed
+    private final Clock clock = Clock.fixed(Instant.parse("2024-01-22T23:00:00Z"), ZoneOffset.UTC);
+
     @BeforeEach
     void setUp() {
-        pricesService = new PricesService(urlBuilder, restClient);
+        pricesService = new PricesService(urlBuilder, restClient, new TimeSeriesDecoder(), new SeriesDownsampler(),
+                priceBarRepository, new RequestCoalescer(new SimpleMeterRegistry()),
+                new UpstreamGateway(new UpstreamRetrier(new SimpleMeterRegistry(), 3, Duration.ZERO, Duration.ZERO,
+                        0.2, 10), new UpstreamRateLimiter(new SimpleMeterRegistry(), clock, 1000, 1000, 1000,
+                        Duration.ZERO, Duration.ZERO), new UpstreamMetrics(new SimpleMeterRegistry()), new SimpleMeterRegistry(), clock, 5, Duration.ofSeconds(30), 20, 4, Duration.ZERO),
+                Runnable::run, new MarketCalendar(clock), eventPublisher, new SimpleMeterRegistry(), clock, Duration.ofHours(1), true, 1000);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubResponse(String json) {
+        when(requestHeadersSpec.exchange(any())).thenAnswer(respond(HttpStatus.OK, json));
+    }
+
+    private static Answer<Object> respond(HttpStatus status, String json) {
+        return invocation -> {
+            RestClient.RequestHeadersSpec.ExchangeFunction<?> exchange = invocation.getArgument(0);
+            RestClient.RequestHeadersSpec.ConvertibleClientHttpResponse response =
+                    mock(RestClient.RequestHeadersSpec.ConvertibleClientHttpResponse.class);
+            when(response.getStatusCode()).thenReturn(status);
+            lenient().when(response.getBody())
+                    .thenReturn(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+            return exchange.exchange(null, response);
+        };
     }
 
     @Test
@@ -80,12 +142,10 @@ class PricesServiceTest {
             }
             """;
 
-        when(urlBuilder.buildAlphaVintageUrl(TICKER, FUNCTION)).thenReturn(URL);
+        when(urlBuilder.buildAlphaVintageUrl(TICKER, FUNCTION, "full")).thenReturn(URL);
         when(restClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(URL)).thenReturn(requestHeadersSpec);
-        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
-        when(responseSpec.toEntity(String.class))
-                .thenReturn(new org.springframework.http.ResponseEntity<>(jsonResponse, org.springframework.http.HttpStatus.OK));
+        stubResponse(jsonResponse);
 
         // Expected results: avg_price = (high + low) / 2
         // 2024-01-19: (155.0 + 148.0) / 2 = 151.50
@@ -95,7 +155,7 @@ class PricesServiceTest {
 
 
         // Act
-        List<PointDto> result = pricesService.getPrices(TICKER);
+        List<PointDto> result = PointDto.fromSeries(pricesService.getPrices(TICKER));
 
         // Assert
         assertNotNull(result);
@@ -110,11 +170,10 @@ class PricesServiceTest {
         assertEquals(expectedPoint2.price(), result.get(1).price(), 0.001);
 
         // Verify interactions
-        verify(urlBuilder).buildAlphaVintageUrl(TICKER, FUNCTION);
+        verify(urlBuilder).buildAlphaVintageUrl(TICKER, FUNCTION, "full");
         verify(restClient).get();
         verify(requestHeadersUriSpec).uri(URL);
-        verify(requestHeadersSpec).retrieve();
-        verify(responseSpec).toEntity(String.class);
+        verify(requestHeadersSpec).exchange(any());
     }
 
     @Test
@@ -122,12 +181,10 @@ class PricesServiceTest {
     @DisplayName("getPrices should throw FetchDataException when API call fails")
     void getPrices_ApiCallFails_ThrowsFetchDataException() {
         // Arrange
-        when(urlBuilder.buildAlphaVintageUrl(TICKER, FUNCTION)).thenReturn(URL);
+        when(urlBuilder.buildAlphaVintageUrl(TICKER, FUNCTION, "full")).thenReturn(URL);
         when(restClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(URL)).thenReturn(requestHeadersSpec);
-        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
-        when(responseSpec.toEntity(String.class))
-                .thenThrow(new RuntimeException("Network error"));
+        when(requestHeadersSpec.exchange(any())).thenThrow(new RuntimeException("Network error"));
 
         // Act & Assert
         FetchDataException exception = assertThrows(FetchDataException.class,
@@ -135,8 +192,8 @@ class PricesServiceTest {
 
         assertEquals("Failed to fetch prices data for ticker: AAPL", exception.getMessage());
 
-        verify(urlBuilder).buildAlphaVintageUrl(TICKER, FUNCTION);
-        verify(responseSpec).toEntity(String.class);
+        verify(urlBuilder).buildAlphaVintageUrl(TICKER, FUNCTION, "full");
+        verify(requestHeadersSpec).exchange(any());
     }
 
     @Test
@@ -146,12 +203,10 @@ class PricesServiceTest {
         // Arrange
         String invalidJson = "invalid json";
 
-        when(urlBuilder.buildAlphaVintageUrl(TICKER, FUNCTION)).thenReturn(URL);
+        when(urlBuilder.buildAlphaVintageUrl(TICKER, FUNCTION, "full")).thenReturn(URL);
         when(restClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(URL)).thenReturn(requestHeadersSpec);
-        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
-        when(responseSpec.toEntity(String.class))
-                .thenReturn(new org.springframework.http.ResponseEntity<>(invalidJson, org.springframework.http.HttpStatus.OK));
+        stubResponse(invalidJson);
 
         // Act & Assert
         FetchDataException exception = assertThrows(FetchDataException.class,
@@ -175,12 +230,10 @@ class PricesServiceTest {
             }
             """;
 
-        when(urlBuilder.buildAlphaVintageUrl(TICKER, FUNCTION)).thenReturn(URL);
+        when(urlBuilder.buildAlphaVintageUrl(TICKER, FUNCTION, "full")).thenReturn(URL);
         when(restClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(URL)).thenReturn(requestHeadersSpec);
-        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
-        when(responseSpec.toEntity(String.class))
-                .thenReturn(new org.springframework.http.ResponseEntity<>(jsonWithoutTimeSeries, org.springframework.http.HttpStatus.OK));
+        stubResponse(jsonWithoutTimeSeries);
 
         // Act & Assert
         FetchDataException exception = assertThrows(FetchDataException.class,
@@ -205,15 +258,13 @@ class PricesServiceTest {
             }
             """;
 
-        when(urlBuilder.buildAlphaVintageUrl(TICKER, FUNCTION)).thenReturn(URL);
+        when(urlBuilder.buildAlphaVintageUrl(TICKER, FUNCTION, "full")).thenReturn(URL);
         when(restClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(URL)).thenReturn(requestHeadersSpec);
-        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
-        when(responseSpec.toEntity(String.class))
-                .thenReturn(new org.springframework.http.ResponseEntity<>(jsonWithEmptyTimeSeries, org.springframework.http.HttpStatus.OK));
+        stubResponse(jsonWithEmptyTimeSeries);
 
         // Act
-        List<PointDto> result = pricesService.getPrices(TICKER);
+        List<PointDto> result = PointDto.fromSeries(pricesService.getPrices(TICKER));
 
         // Assert
         assertNotNull(result);
@@ -236,22 +287,479 @@ class PricesServiceTest {
             }
             """;
 
-        when(urlBuilder.buildAlphaVintageUrl(TICKER, FUNCTION)).thenReturn(URL);
+        when(urlBuilder.buildAlphaVintageUrl(TICKER, FUNCTION, "full")).thenReturn(URL);
         when(restClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(URL)).thenReturn(requestHeadersSpec);
-        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
-        when(responseSpec.toEntity(String.class))
-                .thenReturn(new org.springframework.http.ResponseEntity<>(jsonResponse, org.springframework.http.HttpStatus.OK));
+        stubResponse(jsonResponse);
 
         // Expected: (155.1234 + 148.5678) / 2 = 151.8456 → rounded to 151.85
         double expectedPrice = 151.85;
 
         // Act
-        List<PointDto> result = pricesService.getPrices(TICKER);
+        List<PointDto> result = PointDto.fromSeries(pricesService.getPrices(TICKER));
 
         // Assert
         assertEquals(1, result.size());
         assertEquals(expectedPrice, result.get(0).price(), 0.001);
         assertEquals("2024-01-19", result.get(0).date());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("getPrices should serve stored history without calling the API when it is up to date")
+    void getPrices_StoredHistoryUpToDate_SkipsApi() {
+        // Arrange
+        when(priceBarRepository.findByTickerOrderByTradeDateAsc(TICKER)).thenReturn(List.of(
+                new PriceBar(TICKER, LocalDate.parse("2024-01-19"), 155.0, 148.0),
+                new PriceBar(TICKER, LocalDate.parse("2024-01-22"), 152.0, 147.0)
+        ));
+
+        // Act
+        List<PointDto> result = PointDto.fromSeries(pricesService.getPrices(TICKER));
+
+        // Assert
+        assertEquals(List.of(new PointDto("2024-01-19", 151.5), new PointDto("2024-01-22", 149.5)), result);
+        verifyNoInteractions(urlBuilder, restClient);
+        verify(priceBarRepository, never()).saveAll(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("getPrices should merge a compact response, storing new bars and corrected ones only")
+    void getPrices_StaleHistory_MergesCompactResponse() {
+        // Arrange
+        String jsonResponse = """
+            {
+                "Time Series (Daily)": {
+                    "2024-01-22": { "2. high": "160.0000", "3. low": "150.0000" },
+                    "2024-01-19": { "2. high": "158.0000", "3. low": "148.0000" },
+                    "2024-01-18": { "2. high": "152.0000", "3. low": "147.0000" }
+                }
+            }
+            """;
+        when(priceBarRepository.findByTickerOrderByTradeDateAsc(TICKER)).thenReturn(List.of(
+                new PriceBar(TICKER, LocalDate.parse("2024-01-18"), 152.0, 147.0),
+                new PriceBar(TICKER, LocalDate.parse("2024-01-19"), 155.0, 148.0)
+        ));
+        when(urlBuilder.buildAlphaVintageUrl(TICKER, FUNCTION, "compact")).thenReturn(URL);
+        when(restClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(URL)).thenReturn(requestHeadersSpec);
+        stubResponse(jsonResponse);
+
+        // Act
+        List<PointDto> result = PointDto.fromSeries(pricesService.getPrices(TICKER));
+
+        // Assert
+        assertEquals(List.of(new PointDto("2024-01-18", 149.5), new PointDto("2024-01-19", 153.0),
+                new PointDto("2024-01-22", 155.0)), result);
+        ArgumentCaptor<List<PriceBar>> saved = ArgumentCaptor.forClass(List.class);
+        verify(priceBarRepository).saveAll(saved.capture());
+        assertEquals(List.of(new PriceBar(TICKER, LocalDate.parse("2024-01-19"), 158.0, 148.0),
+                new PriceBar(TICKER, LocalDate.parse("2024-01-22"), 160.0, 150.0)), saved.getValue());
+        assertFalse(saved.getValue().get(0).isNew());
+        assertTrue(saved.getValue().get(1).isNew());
+        verify(eventPublisher).publishEvent(new PriceUpdateDto(TICKER,
+                List.of(new PointDto("2024-01-19", 153.0), new PointDto("2024-01-22", 155.0))));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("getPrices should refetch the full history when the gap is older than a compact response")
+    void getPrices_GapBeyondCompactWindow_FetchesFullHistory() {
+        // Arrange
+        String jsonResponse = """
+            { "Time Series (Daily)": { "2024-01-22": { "2. high": "160.0000", "3. low": "150.0000" } } }
+            """;
+        when(priceBarRepository.findByTickerOrderByTradeDateAsc(TICKER)).thenReturn(List.of(
+                new PriceBar(TICKER, LocalDate.parse("2023-08-01"), 155.0, 148.0)
+        ));
+        when(urlBuilder.buildAlphaVintageUrl(TICKER, FUNCTION, "full")).thenReturn(URL);
+        when(restClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(URL)).thenReturn(requestHeadersSpec);
+        stubResponse(jsonResponse);
+
+        // Act
+        PriceSeries result = pricesService.getPrices(TICKER);
+
+        // Assert
+        assertEquals(2, result.size());
+        verify(urlBuilder, never()).buildAlphaVintageUrl(TICKER, FUNCTION, "compact");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("getPrices should stay with compact responses when full history is disabled")
+    void getPrices_FullHistoryDisabled_FetchesCompact() {
+        // Arrange
+        String jsonResponse = """
+            { "Time Series (Daily)": { "2024-01-22": { "2. high": "160.0000", "3. low": "150.0000" } } }
+            """;
+        pricesService = new PricesService(urlBuilder, restClient, new TimeSeriesDecoder(), new SeriesDownsampler(),
+                priceBarRepository, new RequestCoalescer(new SimpleMeterRegistry()), new UpstreamGateway(
+                new UpstreamRetrier(new SimpleMeterRegistry(), 3, Duration.ZERO, Duration.ZERO, 0.2, 10),
+                new UpstreamRateLimiter(new SimpleMeterRegistry(), clock, 1000, 1000, 1000, Duration.ZERO,
+                        Duration.ZERO), new UpstreamMetrics(new SimpleMeterRegistry()), new SimpleMeterRegistry(),
+                clock, 5, Duration.ofSeconds(30), 20, 4, Duration.ZERO),
+                Runnable::run, new MarketCalendar(clock), eventPublisher, new SimpleMeterRegistry(), clock, Duration.ofHours(1), false, 1000);
+        when(urlBuilder.buildAlphaVintageUrl(TICKER, FUNCTION, "compact")).thenReturn(URL);
+        when(restClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(URL)).thenReturn(requestHeadersSpec);
+        stubResponse(jsonResponse);
+
+        // Act
+        PriceSeries result = pricesService.getPrices(TICKER);
+        pricesService.repairPrices(TICKER);
+
+        // Assert
+        assertEquals(1, result.size());
+        verify(urlBuilder, never()).buildAlphaVintageUrl(TICKER, FUNCTION, "full");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("repairPrices should refetch the full history of an up-to-date ticker and correct it")
+    void repairPrices_FetchesFullHistoryAndCorrects() {
+        // Arrange
+        String jsonResponse = """
+            {
+                "Time Series (Daily)": {
+                    "2024-01-22": { "2. high": "152.0000", "3. low": "147.0000" },
+                    "2024-01-19": { "2. high": "155.0000", "3. low": "149.0000" }
+                }
+            }
+            """;
+        when(priceBarRepository.findByTickerOrderByTradeDateAsc(TICKER)).thenReturn(List.of(
+                new PriceBar(TICKER, LocalDate.parse("2024-01-22"), 152.0, 147.0)
+        ));
+        when(urlBuilder.buildAlphaVintageUrl(TICKER, FUNCTION, "full")).thenReturn(URL);
+        when(restClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(URL)).thenReturn(requestHeadersSpec);
+        stubResponse(jsonResponse);
+
+        // Act
+        PriceSeries repaired = pricesService.repairPrices("aapl");
+
+        // Assert
+        assertEquals(List.of(new PointDto("2024-01-19", 152.0), new PointDto("2024-01-22", 149.5)),
+                PointDto.fromSeries(repaired));
+        verify(priceBarRepository).saveAll(List.of(new PriceBar(TICKER, LocalDate.parse("2024-01-19"), 155.0, 149.0)));
+        assertSame(repaired, pricesService.getPrices(TICKER));
+    }
+
+    @Test
+    @DisplayName("repairPrices should refetch even while a plain load of the ticker is in flight")
+    void repairPrices_LoadInFlight_StillRefetches() throws Exception {
+        // Arrange
+        when(priceBarRepository.findByTickerOrderByTradeDateAsc(TICKER)).thenReturn(List.of(
+                new PriceBar(TICKER, LocalDate.parse("2024-01-19"), 155.0, 148.0)
+        ));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        UpstreamGateway gateway = mock(UpstreamGateway.class);
+        when(gateway.execute(eq(Upstream.ALPHA_VANTAGE), eq(FUNCTION), eq(Priority.INTERACTIVE), any()))
+                .thenAnswer(invocation -> {
+                    loading.countDown();
+                    release.await();
+                    return List.of();
+                })
+                .thenReturn(List.of());
+        pricesService = new PricesService(urlBuilder, restClient, new TimeSeriesDecoder(), new SeriesDownsampler(),
+                priceBarRepository, new RequestCoalescer(new SimpleMeterRegistry()), gateway, Runnable::run,
+                new MarketCalendar(clock), eventPublisher, new SimpleMeterRegistry(), clock, Duration.ofHours(1), true, 1000);
+        CompletableFuture<PriceSeries> load = CompletableFuture.supplyAsync(() -> pricesService.getPrices(TICKER));
+        loading.await();
+
+        // Act - joining the load would wait for it, and it only finishes once released
+        PriceSeries repaired = CompletableFuture.supplyAsync(() -> pricesService.repairPrices(TICKER))
+                .get(5, TimeUnit.SECONDS);
+        release.countDown();
+
+        // Assert
+        assertEquals(1, repaired.size());
+        assertEquals(1, load.join().size());
+        verify(urlBuilder).buildAlphaVintageUrl(TICKER, FUNCTION, "full");
+        verify(gateway, times(2)).execute(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("repairPrices should report a failed refetch instead of serving stored history")
+    void repairPrices_ApiCallFails_Throws() {
+        // Arrange
+        when(priceBarRepository.findByTickerOrderByTradeDateAsc(TICKER)).thenReturn(List.of(
+                new PriceBar(TICKER, LocalDate.parse("2024-01-22"), 152.0, 147.0)
+        ));
+        when(urlBuilder.buildAlphaVintageUrl(TICKER, FUNCTION, "full")).thenReturn(URL);
+        when(restClient.get()).thenThrow(new RuntimeException("Network error"));
+
+        // Act & Assert
+        assertThrows(FetchDataException.class, () -> pricesService.repairPrices(TICKER));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("getPrices should re-check a stale ticker only once per sync interval")
+    void getPrices_StaleHistory_ChecksApiOncePerInterval() {
+        // Arrange
+        String jsonResponse = """
+            { "Time Series (Daily)": { "2024-01-19": { "2. high": "155.0000", "3. low": "148.0000" } } }
+            """;
+        when(priceBarRepository.findByTickerOrderByTradeDateAsc(TICKER)).thenReturn(List.of(
+                new PriceBar(TICKER, LocalDate.parse("2024-01-19"), 155.0, 148.0)
+        ));
+        when(urlBuilder.buildAlphaVintageUrl(TICKER, FUNCTION, "compact")).thenReturn(URL);
+        when(restClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(URL)).thenReturn(requestHeadersSpec);
+        stubResponse(jsonResponse);
+
+        // Act
+        pricesService.getPrices(TICKER);
+        List<PointDto> result = PointDto.fromSeries(pricesService.getPrices(TICKER));
+
+        // Assert
+        assertEquals(List.of(new PointDto("2024-01-19", 151.5)), result);
+        verify(restClient, times(1)).get();
+        verify(priceBarRepository, never()).saveAll(any());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("getPrices should not re-check a ticker without bars within the sync interval")
+    void getPrices_UnknownTicker_ChecksApiOncePerInterval() {
+        // Arrange
+        when(urlBuilder.buildAlphaVintageUrl(TICKER, FUNCTION, "full")).thenReturn(URL);
+        when(restClient.get()).thenThrow(new RuntimeException("Network error"));
+
+        // Act
+        assertThrows(FetchDataException.class, () -> pricesService.getPrices(TICKER));
+        FetchDataException exception = assertThrows(FetchDataException.class, () -> pricesService.getPrices(TICKER));
+
+        // Assert
+        assertEquals("No prices data for ticker AAPL, retry later", exception.getMessage());
+        verify(restClient, times(1)).get();
+        assertFalse(pricesService.hasPrices(TICKER));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("getPrices should retry when the API is temporarily unavailable")
+    void getPrices_ServiceUnavailable_Retries() {
+        // Arrange
+        String jsonResponse = """
+            { "Time Series (Daily)": { "2024-01-22": { "2. high": "160.0000", "3. low": "150.0000" } } }
+            """;
+        when(urlBuilder.buildAlphaVintageUrl(TICKER, FUNCTION, "full")).thenReturn(URL);
+        when(restClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(URL)).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.exchange(any()))
+                .thenAnswer(respond(HttpStatus.SERVICE_UNAVAILABLE, ""))
+                .thenAnswer(respond(HttpStatus.OK, jsonResponse));
+
+        // Act
+        List<PointDto> result = PointDto.fromSeries(pricesService.getPrices(TICKER));
+
+        // Assert
+        assertEquals(List.of(new PointDto("2024-01-22", 155.0)), result);
+        verify(requestHeadersSpec, times(2)).exchange(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("getPrices should not retry a client error from the API")
+    void getPrices_ClientError_NotRetried() {
+        // Arrange
+        when(urlBuilder.buildAlphaVintageUrl(TICKER, FUNCTION, "full")).thenReturn(URL);
+        when(restClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(URL)).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.exchange(any())).thenAnswer(respond(HttpStatus.BAD_REQUEST, ""));
+
+        // Act & Assert
+        assertThrows(FetchDataException.class, () -> pricesService.getPrices(TICKER));
+        verify(requestHeadersSpec, times(1)).exchange(any());
+    }
+
+    @Test
+    @DisplayName("getPrices should pass on a fast failure when Alpha Vantage is unavailable and nothing is stored")
+    void getPrices_UpstreamUnavailable_Rethrows() {
+        // Arrange
+        UpstreamGateway openCircuit = mock(UpstreamGateway.class);
+        when(openCircuit.execute(eq(Upstream.ALPHA_VANTAGE), eq(FUNCTION), eq(Priority.INTERACTIVE), any()))
+                .thenThrow(new UpstreamUnavailableException("ALPHA_VANTAGE is unavailable, circuit is open"));
+        pricesService = new PricesService(urlBuilder, restClient, new TimeSeriesDecoder(), new SeriesDownsampler(),
+                priceBarRepository, new RequestCoalescer(new SimpleMeterRegistry()), openCircuit, Runnable::run,
+                new MarketCalendar(clock), eventPublisher, new SimpleMeterRegistry(), clock, Duration.ofHours(1), true, 1000);
+
+        // Act & Assert
+        assertThrows(UpstreamUnavailableException.class, () -> pricesService.getPrices(TICKER));
+        verifyNoInteractions(restClient);
+    }
+
+    @Test
+    @DisplayName("getPricesAsync should sync a stale series on the upstream executor and serve a current one at once")
+    void getPricesAsync_StaleLoadsOnExecutor_CurrentServedAtOnce() {
+        // Arrange
+        List<PriceBar> fresh = List.of(new PriceBar(TICKER, LocalDate.parse("2024-01-19"), 150.0, 140.0),
+                new PriceBar(TICKER, LocalDate.parse("2024-01-22"), 160.0, 150.0));
+        UpstreamGateway gateway = mock(UpstreamGateway.class);
+        when(gateway.execute(eq(Upstream.ALPHA_VANTAGE), eq(FUNCTION), eq(Priority.INTERACTIVE), any())).thenReturn(fresh);
+        List<Runnable> queued = new ArrayList<>();
+        pricesService = new PricesService(urlBuilder, restClient, new TimeSeriesDecoder(), new SeriesDownsampler(),
+                priceBarRepository, new RequestCoalescer(new SimpleMeterRegistry()), gateway, queued::add,
+                new MarketCalendar(clock), eventPublisher, new SimpleMeterRegistry(), clock, Duration.ofHours(1), true, 1000);
+
+        // Act
+        CompletableFuture<PriceSeries> stale = pricesService.getPricesAsync(TICKER, LocalDate.parse("2024-01-20"),
+                null, null);
+        boolean doneBeforeExecutorRan = stale.isDone();
+        queued.forEach(Runnable::run);
+        CompletableFuture<PriceSeries> current = pricesService.getPricesAsync("aapl", null, null, null);
+
+        // Assert
+        assertFalse(doneBeforeExecutorRan);
+        assertEquals(1, stale.join().size());
+        assertTrue(current.isDone());
+        assertEquals(2, current.join().size());
+        verify(gateway, times(1)).execute(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("getPricesAsync should skip the sync when the caller gives up before it starts")
+    void getPricesAsync_CancelledBeforeStart_SkipsSync() {
+        // Arrange
+        UpstreamGateway gateway = mock(UpstreamGateway.class);
+        List<Runnable> queued = new ArrayList<>();
+        pricesService = new PricesService(urlBuilder, restClient, new TimeSeriesDecoder(), new SeriesDownsampler(),
+                priceBarRepository, new RequestCoalescer(new SimpleMeterRegistry()), gateway, queued::add,
+                new MarketCalendar(clock), eventPublisher, new SimpleMeterRegistry(), clock, Duration.ofHours(1), true, 1000);
+        CompletableFuture<PriceSeries> chart = pricesService.getPricesAsync(TICKER, null, null, 100);
+
+        // Act
+        chart.cancel(false);
+        queued.forEach(Runnable::run);
+
+        // Assert
+        assertTrue(chart.isCancelled());
+        verifyNoInteractions(gateway, priceBarRepository);
+    }
+
+    @Test
+    @DisplayName("refreshPrices should sync the series at background priority")
+    void refreshPrices_SyncsAtBackgroundPriority() {
+        // Arrange
+        List<PriceBar> fresh = List.of(new PriceBar(TICKER, LocalDate.parse("2024-01-22"), 160.0, 150.0));
+        UpstreamGateway gateway = mock(UpstreamGateway.class);
+        when(gateway.execute(eq(Upstream.ALPHA_VANTAGE), eq(FUNCTION), eq(Priority.BACKGROUND), any())).thenReturn(fresh);
+        pricesService = new PricesService(urlBuilder, restClient, new TimeSeriesDecoder(), new SeriesDownsampler(),
+                priceBarRepository, new RequestCoalescer(new SimpleMeterRegistry()), gateway, Runnable::run,
+                new MarketCalendar(clock), eventPublisher, new SimpleMeterRegistry(), clock, Duration.ofHours(1), true, 1000);
+
+        // Act
+        PriceSeries series = pricesService.refreshPrices(TICKER.toLowerCase());
+
+        // Assert
+        assertEquals(1, series.size());
+        verify(priceBarRepository).saveAll(fresh);
+        assertSame(series, pricesService.getPrices(TICKER));
+        verify(gateway, times(1)).execute(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("refreshPrices should not make users wait behind a refresh queued for quota")
+    void refreshPrices_InFlight_UsersServedStoredHistory() throws Exception {
+        // Arrange
+        when(priceBarRepository.findByTickerOrderByTradeDateAsc(TICKER)).thenReturn(List.of(
+                new PriceBar(TICKER, LocalDate.parse("2024-01-19"), 155.0, 148.0)
+        ));
+        CountDownLatch queued = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        UpstreamGateway gateway = mock(UpstreamGateway.class);
+        when(gateway.execute(eq(Upstream.ALPHA_VANTAGE), eq(FUNCTION), eq(Priority.BACKGROUND), any()))
+                .thenAnswer(invocation -> {
+                    queued.countDown();
+                    release.await();
+                    return List.of();
+                });
+        pricesService = new PricesService(urlBuilder, restClient, new TimeSeriesDecoder(), new SeriesDownsampler(),
+                priceBarRepository, new RequestCoalescer(new SimpleMeterRegistry()), gateway, Runnable::run,
+                new MarketCalendar(clock), eventPublisher, new SimpleMeterRegistry(), clock, Duration.ofHours(1), true, 1000);
+        CompletableFuture<PriceSeries> refresh = CompletableFuture.supplyAsync(() -> pricesService.refreshPrices(TICKER));
+        queued.await();
+
+        // Act
+        List<PointDto> result = PointDto.fromSeries(pricesService.getPrices(TICKER));
+        release.countDown();
+
+        // Assert
+        assertEquals(List.of(new PointDto("2024-01-19", 151.5)), result);
+        assertEquals(1, refresh.join().size());
+        verify(gateway, times(1)).execute(any(), any(), any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("getPrices should fall back to stored history when API call fails")
+    void getPrices_ApiCallFails_ServesStoredHistory() {
+        // Arrange
+        when(priceBarRepository.findByTickerOrderByTradeDateAsc(TICKER)).thenReturn(List.of(
+                new PriceBar(TICKER, LocalDate.parse("2024-01-19"), 155.0, 148.0)
+        ));
+        when(urlBuilder.buildAlphaVintageUrl(TICKER, FUNCTION, "compact")).thenReturn(URL);
+        when(restClient.get()).thenThrow(new RuntimeException("Network error"));
+
+        // Act
+        List<PointDto> result = PointDto.fromSeries(pricesService.getPrices(TICKER));
+
+        // Assert
+        assertEquals(List.of(new PointDto("2024-01-19", 151.5)), result);
+    }
+
+    @Test
+    @DisplayName("getPrices should keep the series in memory and not reload stored history")
+    void getPrices_SecondCall_ServedFromMemory() {
+        // Arrange
+        when(priceBarRepository.findByTickerOrderByTradeDateAsc(TICKER)).thenReturn(List.of(
+                new PriceBar(TICKER, LocalDate.parse("2024-01-22"), 152.0, 147.0)
+        ));
+
+        // Act
+        PriceSeries first = pricesService.getPrices(TICKER);
+        PriceSeries second = pricesService.getPrices("aapl");
+
+        // Assert
+        assertSame(first, second);
+        assertEquals(1, second.size());
+        assertEquals(LocalDate.parse("2024-01-22"), second.lastDate());
+        assertEquals(149.5, second.priceAt(0));
+        verify(priceBarRepository, times(1)).findByTickerOrderByTradeDateAsc(TICKER);
+    }
+
+    @Test
+    @DisplayName("getPrices should slice the cached series to the range and downsample it")
+    void getPrices_RangeAndMaxPoints_SlicesAndDownsamples() {
+        // Arrange
+        List<PriceBar> stored = new java.util.ArrayList<>();
+        for (LocalDate day = LocalDate.parse("2023-01-02"); !day.isAfter(LocalDate.parse("2024-01-22")); day = day.plusDays(1)) {
+            stored.add(new PriceBar(TICKER, day, 110.0, 100.0));
+        }
+        when(priceBarRepository.findByTickerOrderByTradeDateAsc(TICKER)).thenReturn(stored);
+
+        // Act
+        PriceSeries result = pricesService.getPrices(TICKER, LocalDate.parse("2023-06-01"),
+                LocalDate.parse("2023-12-31"), 20);
+
+        // Assert
+        assertEquals(20, result.size());
+        assertEquals(LocalDate.parse("2023-06-01"), result.dateAt(0));
+        assertEquals(LocalDate.parse("2023-12-31"), result.lastDate());
+        verifyNoInteractions(restClient);
+    }
+
+    @Test
+    @DisplayName("getPrices should reject an inverted range and too small maxPoints")
+    void getPrices_InvalidParameters_Throws() {
+        LocalDate from = LocalDate.parse("2024-01-19");
+        LocalDate to = LocalDate.parse("2024-01-01");
+
+        assertThrows(InvalidRequestException.class, () -> pricesService.getPrices(TICKER, from, to, null));
+        assertThrows(InvalidRequestException.class, () -> pricesService.getPrices(TICKER, null, null, 2));
+        verifyNoInteractions(priceBarRepository, restClient);
+    }
+}
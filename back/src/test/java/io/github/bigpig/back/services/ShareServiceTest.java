@@ -2,20 +2,41 @@ package io.github.bigpig.back.services;
 
 import io.github.bigpig.back.dto.ShareDto;
 import io.github.bigpig.back.exceptions.FetchDataException;
+import io.github.bigpig.back.exceptions.UpstreamUnavailableException;
+import io.github.bigpig.back.resilience.Priority;
+import io.github.bigpig.back.resilience.Upstream;
+import io.github.bigpig.back.resilience.UpstreamGateway;
+import io.github.bigpig.back.resilience.UpstreamMetrics;
+import io.github.bigpig.back.resilience.UpstreamRateLimiter;
+import io.github.bigpig.back.resilience.UpstreamRetrier;
+import io.github.bigpig.back.util.MarketCalendar;
+import io.github.bigpig.back.util.RequestCoalescer;
 import io.github.bigpig.back.util.UrlBuilder;
-import org.junit.jupiter.api.BeforeAll;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.OngoingStubbing;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.RestClient;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -36,13 +57,45 @@ class ShareServiceTest {
     @Mock
     private RestClient.ResponseSpec responseSpec;
 
-    @InjectMocks
+    @Spy
+    private RequestCoalescer requestCoalescer = new RequestCoalescer(new SimpleMeterRegistry());
+
+    @Spy
+    private UpstreamGateway upstreamGateway = new UpstreamGateway(
+            new UpstreamRetrier(new SimpleMeterRegistry(), 3, Duration.ZERO, Duration.ZERO, 0.2, 10),
+            new UpstreamRateLimiter(new SimpleMeterRegistry(), Clock.systemUTC(), 1000, 1000, 1000,
+                    Duration.ZERO, Duration.ZERO),
+            new UpstreamMetrics(new SimpleMeterRegistry()), new SimpleMeterRegistry(), Clock.systemUTC(), 5, Duration.ofSeconds(30), 20, 4, Duration.ZERO);
+
     private ShareService shareService;
 
+    // Monday 2024-01-22 10:00 in New York, the session closes at 21:00 UTC
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-22T15:00:00Z"));
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     private static final String TICKER = "AAPL";
     private static final String FUNCTION = "OVERVIEW";
     private static final String URL = "https://www.alphavantage.co/query?function=OVERVIEW&symbol=AAPL&apikey=demo";
 
+    @BeforeEach
+    void setUp() {
+        shareService = new ShareService(urlBuilder, restClient, requestCoalescer, upstreamGateway, Runnable::run,
+                new MarketCalendar(clock), meterRegistry, clock, 100);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubOverview(ShareDto response, ShareDto... next) {
+        when(urlBuilder.buildAlphaVintageUrl(TICKER, FUNCTION)).thenReturn(URL);
+        when(restClient.get()).thenReturn(requestHeadersUriSpec);
+        when(requestHeadersUriSpec.uri(URL)).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        OngoingStubbing<ResponseEntity<ShareDto>> stubbing = when(responseSpec.toEntity(ShareDto.class))
+                .thenReturn(new ResponseEntity<>(response, HttpStatus.OK));
+        for (ShareDto dto : next) {
+            stubbing = stubbing.thenReturn(new ResponseEntity<>(dto, HttpStatus.OK));
+        }
+    }
+
     @Test
     @DisplayName("getMainInfo should return ShareDto when API call succeeds")
     void getMainInfo_Success() {
@@ -92,4 +145,161 @@ class ShareServiceTest {
 
         verify(urlBuilder).buildAlphaVintageUrl(TICKER, FUNCTION);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("getMainInfo should pass on a fast failure when Alpha Vantage is unavailable")
+    void getMainInfo_UpstreamUnavailable_Rethrows() {
+        // Arrange
+        when(urlBuilder.buildAlphaVintageUrl(TICKER, FUNCTION)).thenReturn(URL);
+        doThrow(new UpstreamUnavailableException("ALPHA_VANTAGE is unavailable, circuit is open"))
+                .when(upstreamGateway).execute(eq(Upstream.ALPHA_VANTAGE), eq("OVERVIEW"), eq(Priority.INTERACTIVE), any());
+
+        // Act & Assert
+        assertThrows(UpstreamUnavailableException.class, () -> shareService.getMainInfo(TICKER));
+        verifyNoInteractions(restClient);
+    }
+
+    @Test
+    @DisplayName("getMainInfo should neither serve nor cache a throttled or unknown-symbol answer")
+    void getMainInfo_NoSymbol_ThrowsAndSkipsCache() {
+        // Arrange - Alpha Vantage answers throttling with 200 and an Information note
+        ShareDto throttled = new ShareDto(null, null, null, null, null, null, null);
+        ShareDto expectedDto = new ShareDto(TICKER, "Apple Inc.", "2,4T", "20", "20", "20", "20");
+        stubOverview(throttled, expectedDto);
+
+        // Act & Assert
+        FetchDataException exception = assertThrows(FetchDataException.class,
+                () -> shareService.getMainInfo(TICKER));
+        assertEquals("No share data for ticker: AAPL", exception.getMessage());
+        assertEquals(expectedDto, shareService.getMainInfo(TICKER));
+        verify(requestHeadersSpec, times(2)).retrieve();
+    }
+
+    @Test
+    @DisplayName("getMainInfoAsync should load an overview once and then complete from the cache")
+    void getMainInfoAsync_LoadsThenServesCached() throws Exception {
+        // Arrange
+        ShareDto expectedDto = new ShareDto(TICKER, "Apple Inc.", "2,4T", "20", "20", "20", "20");
+        stubOverview(expectedDto);
+
+        // Act
+        ShareDto loaded = shareService.getMainInfoAsync(TICKER).get(5, TimeUnit.SECONDS);
+        CompletableFuture<ShareDto> cached = shareService.getMainInfoAsync(TICKER.toLowerCase());
+
+        // Assert
+        assertEquals(expectedDto, loaded);
+        assertTrue(cached.isDone());
+        assertEquals(expectedDto, cached.join());
+        verify(requestHeadersSpec, times(1)).retrieve();
+    }
+
+    @Test
+    @DisplayName("getMainInfo should serve a cached overview without calling the API again")
+    void getMainInfo_Cached_NoSecondCall() {
+        // Arrange
+        ShareDto expectedDto = new ShareDto(TICKER, "Apple Inc.", "2,4T", "20", "20", "20", "20");
+        stubOverview(expectedDto);
+
+        // Act
+        shareService.getMainInfo(TICKER);
+        ShareDto cached = shareService.getMainInfo(TICKER.toLowerCase());
+
+        // Assert
+        assertEquals(expectedDto, cached);
+        verify(requestHeadersSpec, times(1)).retrieve();
+    }
+
+    @Test
+    @DisplayName("refreshMainInfo should reload the overview at background priority and cache it")
+    void refreshMainInfo_ReloadsAtBackgroundPriority() {
+        // Arrange
+        ShareDto stale = new ShareDto(TICKER, "Apple Inc.", "2,4T", "20", "20", "20", "20");
+        ShareDto fresh = new ShareDto(TICKER, "Apple Inc.", "2,5T", "21", "20", "20", "20");
+        stubOverview(stale, fresh);
+        shareService.getMainInfo(TICKER);
+
+        // Act
+        ShareDto refreshed = shareService.refreshMainInfo(TICKER);
+
+        // Assert
+        assertEquals(fresh, refreshed);
+        assertEquals(fresh, shareService.getMainInfo(TICKER));
+        verify(upstreamGateway).execute(eq(Upstream.ALPHA_VANTAGE), eq("OVERVIEW"), eq(Priority.BACKGROUND), any());
+        verify(requestHeadersSpec, times(2)).retrieve();
+    }
+
+    @Test
+    @DisplayName("getMainInfo should keep an overview until the market closes")
+    void getMainInfo_CachedUntilMarketClose() {
+        // Arrange
+        ShareDto morning = new ShareDto(TICKER, "Apple Inc.", "2,4T", "20", "20", "20", "20");
+        ShareDto afterClose = new ShareDto(TICKER, "Apple Inc.", "2,5T", "21", "20", "20", "20");
+        stubOverview(morning, afterClose);
+        shareService.getMainInfo(TICKER);
+
+        // Act
+        clock.advance(Duration.ofHours(6).minusMinutes(1));
+        ShareDto beforeClose = shareService.getMainInfo(TICKER);
+        clock.advance(Duration.ofMinutes(1));
+        ShareDto atClose = shareService.getMainInfo(TICKER);
+
+        // Assert
+        assertEquals(morning, beforeClose);
+        assertEquals(afterClose, atClose);
+        verify(requestHeadersSpec, times(2)).retrieve();
+        assertEquals(1, meterRegistry.get("cache.gets").tags("cache", ShareService.CACHE_NAME, "result", "hit")
+                .functionCounter().count());
+        assertEquals(2, meterRegistry.get("cache.gets").tags("cache", ShareService.CACHE_NAME, "result", "miss")
+                .functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("getMainInfo should keep an overview over the weekend until Monday's close")
+    void getMainInfo_WeekendClose_CachedUntilMonday() {
+        // Arrange - Friday 2024-01-19 17:00 in New York, the next close is on Monday at 16:00
+        clock.advance(Duration.ofDays(-3).plusHours(7));
+        ShareDto friday = new ShareDto(TICKER, "Apple Inc.", "2,4T", "20", "20", "20", "20");
+        ShareDto monday = new ShareDto(TICKER, "Apple Inc.", "2,5T", "21", "20", "20", "20");
+        stubOverview(friday, monday);
+        shareService.getMainInfo(TICKER);
+
+        // Act
+        clock.advance(Duration.ofHours(71).minusMinutes(1));
+        ShareDto beforeClose = shareService.getMainInfo(TICKER);
+        clock.advance(Duration.ofMinutes(1));
+        ShareDto atClose = shareService.getMainInfo(TICKER);
+
+        // Assert
+        assertEquals(friday, beforeClose);
+        assertEquals(monday, atClose);
+        verify(requestHeadersSpec, times(2)).retrieve();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private volatile Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
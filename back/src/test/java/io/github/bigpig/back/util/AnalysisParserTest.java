@@ -8,6 +8,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -301,4 +302,61 @@ class AnalysisParserTest {
         // Assert
         assertEquals("This is line one. This is line two. And this is line three.", result);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("extractRating should treat escaped line breaks as whitespace")
+    void extractRating_EscapedLineBreaks() {
+        // Act
+        String result = analysisParser.extractRating("Attractiveness Rating: 8/10\\n- Good\\n Pros: brand");
+
+        // Assert
+        assertEquals("8/10 - Good", result);
+    }
+
+    @Test
+    @DisplayName("parseAnalyse should agree with the regex parser on generated analyses")
+    void parseAnalyse_GeneratedText_MatchesRegexParser() {
+        // Arrange
+        String[] fragments = {"Overall Assessment:", "Attractiveness Rating:", "Pros:", "Pros: ", "Cons:", "Cons: ",
+                "Overall", "Rating", "Pro", "Con", " ", "  ", "\t", "\n", "\n\n", "\r\n", "\\n", "\\",
+                ",", ", ", ",,", "strong brand", "high valuation", "8/10", "- good", "a", "\u000B", "\u0001", "é"};
+        RegexAnalysisParser regexParser = new RegexAnalysisParser();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(30);
+            for (int j = 0; j < length; j++) {
+                text.append(fragments[random.nextInt(fragments.length)]);
+            }
+            String analyse = text.toString();
+            if (analyse.trim().isEmpty()) {
+                continue;
+            }
+
+            // Act & Assert - answers the regex parser could not split are rejected as malformed
+            AnalyseDto expected;
+            try {
+                expected = regexParser.parseAnalyse(analyse);
+            } catch (StringIndexOutOfBoundsException ex) {
+                expected = null;
+            }
+            if (expected == null || expected.pros().isEmpty() || expected.cons().isEmpty()) {
+                assertThrows(IllegalArgumentException.class, () -> analysisParser.parseAnalyse(analyse), analyse);
+            } else {
+                assertEquals(expected, analysisParser.parseAnalyse(analyse), analyse);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("parseAnalyse should reject lists with empty items")
+    void parseAnalyse_EmptyListItems_ThrowsException() {
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> analysisParser.parseAnalyse("Overall Assessment: A Attractiveness Rating: 1 Pros: a,, b Cons: c"));
+        assertEquals("Analysis list has an empty item", exception.getMessage());
+        assertThrows(IllegalArgumentException.class,
+                () -> analysisParser.parseAnalyse("Overall Assessment: A Attractiveness Rating: 1 Pros: a Cons: ,,"));
+    }
+}
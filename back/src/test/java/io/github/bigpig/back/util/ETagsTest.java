@@ -0,0 +1,57 @@
+package io.github.bigpig.back.util;
+
+import io.github.bigpig.back.dto.AnalyseDto;
+import io.github.bigpig.back.dto.ShareDto;
+import io.github.bigpig.back.models.PriceSeries;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ETagsTest {
+
+    private static final ShareDto SHARE = new ShareDto("AAPL", "Apple Inc.", "2,4T", "6.21", "28.7", "7.5", "40.1");
+    private static final AnalyseDto ANALYSE =
+            new AnalyseDto("Strong company.", "8/10", List.of("Brand", "Cash"), List.of("Valuation"));
+
+    @Test
+    @DisplayName("of should give equal content the same quoted tag")
+    void of_EqualContent_SameTag() {
+        // Act
+        String tag = ETags.of(SHARE);
+
+        // Assert
+        assertTrue(tag.matches("\"[0-9a-f]{32}\""));
+        assertEquals(tag, ETags.of(new ShareDto("AAPL", "Apple Inc.", "2,4T", "6.21", "28.7", "7.5", "40.1")));
+        assertEquals(ETags.of(ANALYSE), ETags.of(new AnalyseDto("Strong company.", "8/10",
+                List.of("Brand", "Cash"), List.of("Valuation"))));
+        assertEquals(ETags.of(PriceSeries.of(new int[] {1, 2}, new double[] {1.5, 2.5})),
+                ETags.of(PriceSeries.of(new int[] {1, 2}, new double[] {1.5, 2.5})));
+    }
+
+    @Test
+    @DisplayName("of should change the tag when any value changes")
+    void of_ChangedContent_NewTag() {
+        assertNotEquals(ETags.of(SHARE), ETags.of(new ShareDto("AAPL", "Apple Inc.", "2,4T", "6.21", "28.8", "7.5",
+                "40.1")));
+        assertNotEquals(ETags.of(ANALYSE), ETags.of(new AnalyseDto("Strong company.", "8/10",
+                List.of("Brand"), List.of("Cash", "Valuation"))));
+        assertNotEquals(ETags.of(PriceSeries.of(new int[] {1, 2}, new double[] {1.5, 2.5})),
+                ETags.of(PriceSeries.of(new int[] {1, 2}, new double[] {1.5, 2.6})));
+    }
+
+    @Test
+    @DisplayName("of should keep field boundaries and nulls apart")
+    void of_FieldBoundaries_Distinguished() {
+        assertNotEquals(ETags.of(new ShareDto("AB", "C", null, null, null, null, null)),
+                ETags.of(new ShareDto("A", "BC", null, null, null, null, null)));
+        assertNotEquals(ETags.of(new ShareDto("", null, null, null, null, null, null)),
+                ETags.of(new ShareDto(null, null, null, null, null, null, null)));
+        assertNotEquals(ETags.of(new AnalyseDto(null, null, null, List.of())),
+                ETags.of(new AnalyseDto(null, null, List.of(), null)));
+        assertEquals(ETags.of((ShareDto) null), ETags.of((ShareDto) null));
+        assertNotNull(ETags.of((AnalyseDto) null));
+    }
+}
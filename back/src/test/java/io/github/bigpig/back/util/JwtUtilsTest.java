@@ -3,6 +3,7 @@ package io.github.bigpig.back.util;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -12,7 +13,11 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
-import java.lang.reflect.Field;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.Collection;
 import java.util.List;
 
@@ -28,19 +33,12 @@ class JwtUtilsTest {
     private final String JWT_SECRET = "mySuperSecretKeyThatIsLongEnoughForHS256Algorithm";
     private final int JWT_EXPIRATION_MS = 3600000; // 1 hour
 
-    @BeforeEach
-    void setUp() throws Exception {
-        jwtUtils = new JwtUtils();
-
-        // Устанавливаем значения через рефлексию
-        setField(jwtUtils, "jwtSecret", JWT_SECRET);
-        setField(jwtUtils, "jwtExpirationMs", JWT_EXPIRATION_MS);
-    }
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-22T12:00:00Z"));
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
-    private void setField(Object target, String fieldName, Object value) throws Exception {
-        Field field = target.getClass().getDeclaredField(fieldName);
-        field.setAccessible(true);
-        field.set(target, value);
+    @BeforeEach
+    void setUp() {
+        jwtUtils = new JwtUtils(JWT_SECRET, JWT_EXPIRATION_MS, 100, meterRegistry, clock);
     }
 
     private UserDetails createUserDetails(String username, String... roles) {
@@ -159,17 +157,15 @@ class JwtUtilsTest {
 
     @Test
     @DisplayName("getUserNameFromJwtToken should throw exception for expired token")
-    void getUserNameFromJwtToken_ExpiredToken() throws Exception {
+    void getUserNameFromJwtToken_ExpiredToken() {
         // Arrange - создаем утилиту с очень коротким временем жизни
-        JwtUtils shortLivedJwtUtils = new JwtUtils();
-        setField(shortLivedJwtUtils, "jwtSecret", JWT_SECRET);
-        setField(shortLivedJwtUtils, "jwtExpirationMs", 1); // 1 ms
+        JwtUtils shortLivedJwtUtils = new JwtUtils(JWT_SECRET, 1, 100, meterRegistry, clock); // 1 ms
 
         UserDetails userDetails = createUserDetails("testuser", "ROLE_USER");
         String token = shortLivedJwtUtils.generateJwtToken(userDetails);
 
         // Ждем истечения срока действия
-        Thread.sleep(10);
+        clock.advance(Duration.ofSeconds(2));
 
         // Act & Assert
         assertThrows(ExpiredJwtException.class, () -> shortLivedJwtUtils.getUserNameFromJwtToken(token));
@@ -199,4 +195,76 @@ class JwtUtilsTest {
         // Act & Assert
         assertThrows(MalformedJwtException.class, () -> jwtUtils.getUserNameFromJwtToken(malformedToken));
     }
+
+    @Test
+    @DisplayName("verify should parse a token once and serve repeated requests from the cache")
+    void verify_RepeatedToken_ServedFromCache() {
+        // Arrange
+        String token = jwtUtils.generateJwtToken(createUserDetails("alice", "ROLE_USER"));
+
+        // Act
+        JwtUtils.VerifiedToken first = jwtUtils.verify(token);
+        JwtUtils.VerifiedToken second = jwtUtils.verify(token);
+
+        // Assert
+        assertEquals("alice", first.username());
+        assertEquals(List.of("ROLE_USER"), first.roles());
+        assertSame(first, second);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", JwtUtils.CACHE_NAME)
+                .tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("verify should reject a cached token once it expires")
+    void verify_CachedTokenExpired_Throws() {
+        // Arrange
+        String token = jwtUtils.generateJwtToken(createUserDetails("alice", "ROLE_USER"));
+        jwtUtils.verify(token);
+
+        // Act
+        clock.advance(Duration.ofMillis(JWT_EXPIRATION_MS).plusSeconds(1));
+
+        // Assert
+        assertThrows(ExpiredJwtException.class, () -> jwtUtils.verify(token));
+    }
+
+    @Test
+    @DisplayName("verify should not cache a token that fails verification")
+    void verify_TamperedToken_NotCached() {
+        // Arrange
+        String[] parts = jwtUtils.generateJwtToken(createUserDetails("alice", "ROLE_USER")).split("\\.");
+        String tamperedToken = parts[0] + "." + parts[1] + ".tamperedSignature";
+
+        // Act & Assert
+        assertThrows(SignatureException.class, () -> jwtUtils.verify(tamperedToken));
+        assertThrows(SignatureException.class, () -> jwtUtils.verify(tamperedToken));
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
 }
@@ -0,0 +1,75 @@
+package io.github.bigpig.back.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MarketCalendarTest {
+
+    private static MarketCalendar calendarAt(String instant) {
+        return new MarketCalendar(Clock.fixed(Instant.parse(instant), ZoneOffset.UTC));
+    }
+
+    @Test
+    @DisplayName("lastClosedSession should return today after the close")
+    void lastClosedSession_AfterClose_ReturnsToday() {
+        // 2024-01-22 16:30 in New York
+        assertEquals(LocalDate.parse("2024-01-22"), calendarAt("2024-01-22T21:30:00Z").lastClosedSession());
+    }
+
+    @Test
+    @DisplayName("lastClosedSession should return previous session before the close")
+    void lastClosedSession_BeforeClose_ReturnsPreviousSession() {
+        // Monday 2024-01-22 10:00 in New York, previous session is Friday
+        assertEquals(LocalDate.parse("2024-01-19"), calendarAt("2024-01-22T15:00:00Z").lastClosedSession());
+    }
+
+    @Test
+    @DisplayName("lastClosedSession should skip weekends")
+    void lastClosedSession_Weekend_ReturnsFriday() {
+        assertEquals(LocalDate.parse("2024-01-19"), calendarAt("2024-01-21T18:00:00Z").lastClosedSession());
+    }
+
+    @Test
+    @DisplayName("lastClosedSession should use New York date rather than UTC date")
+    void lastClosedSession_UtcAfterMidnight_UsesMarketZone() {
+        // 2024-01-23 02:00 UTC is still the evening of 2024-01-22 in New York
+        assertEquals(LocalDate.parse("2024-01-22"), calendarAt("2024-01-23T02:00:00Z").lastClosedSession());
+    }
+
+    @Test
+    @DisplayName("isTradingDay should reject weekends")
+    void isTradingDay_Weekend_ReturnsFalse() {
+        assertTrue(MarketCalendar.isTradingDay(LocalDate.parse("2024-01-19")));
+        assertFalse(MarketCalendar.isTradingDay(LocalDate.parse("2024-01-20")));
+        assertFalse(MarketCalendar.isTradingDay(LocalDate.parse("2024-01-21")));
+    }
+
+    @Test
+    @DisplayName("tradingDaysBetween should count weekdays after the first date up to the second")
+    void tradingDaysBetween_SkipsWeekends() {
+        assertEquals(1, MarketCalendar.tradingDaysBetween(LocalDate.parse("2024-01-19"), LocalDate.parse("2024-01-22")));
+        assertEquals(10, MarketCalendar.tradingDaysBetween(LocalDate.parse("2024-01-05"), LocalDate.parse("2024-01-19")));
+        assertEquals(0, MarketCalendar.tradingDaysBetween(LocalDate.parse("2024-01-22"), LocalDate.parse("2024-01-22")));
+    }
+
+    @Test
+    @DisplayName("nextClose should return today's close while the session is open")
+    void nextClose_BeforeClose_ReturnsTodaysClose() {
+        // Monday 2024-01-22 10:00 in New York
+        assertEquals(Instant.parse("2024-01-22T21:00:00Z"), calendarAt("2024-01-22T15:00:00Z").nextClose());
+    }
+
+    @Test
+    @DisplayName("nextClose should return the next session's close once the market has closed")
+    void nextClose_AfterFridayClose_ReturnsMondayClose() {
+        // Friday 2024-01-19 16:00 in New York
+        assertEquals(Instant.parse("2024-01-22T21:00:00Z"), calendarAt("2024-01-19T21:00:00Z").nextClose());
+    }
+}
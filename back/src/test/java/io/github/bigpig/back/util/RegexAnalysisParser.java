@@ -0,0 +1,64 @@
+package io.github.bigpig.back.util;
+
+import io.github.bigpig.back.dto.AnalyseDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The regex based parser {@link AnalysisParser} replaced, kept as the reference for the
+ * fuzz test and as the baseline of the parser benchmark.
+ */
+final class RegexAnalysisParser {
+
+    private static final Pattern OVERALL_PATTERN = Pattern.compile(
+            "Overall Assessment:\\s*(.*?)\\s*Attractiveness Rating:", Pattern.DOTALL);
+    private static final Pattern RATING_PATTERN = Pattern.compile(
+            "Attractiveness Rating:\\s*(.*?)\\s*Pros: ", Pattern.DOTALL);
+    private static final Pattern PROS_PATTERN = Pattern.compile(
+            "Pros:\\s*(.*?)\\s*Cons: ", Pattern.DOTALL);
+    private static final Pattern CONS_PATTERN = Pattern.compile(
+            "Cons:\\s*(.*?)(?=\\n\\n|\\z)", Pattern.DOTALL);
+
+    AnalyseDto parseAnalyse(String analyse) {
+        if (analyse == null || analyse.trim().isEmpty()) {
+            throw new IllegalArgumentException("Analysis text cannot be null or empty");
+        }
+
+        analyse = analyse.replace("\\n", "\n").trim();
+
+        return new AnalyseDto(
+                extract(analyse, OVERALL_PATTERN, "Overall assessment not found"),
+                extract(analyse, RATING_PATTERN, "Rating not found"),
+                getItems(analyse, PROS_PATTERN),
+                getItems(analyse, CONS_PATTERN));
+    }
+
+    private static String extract(String analyse, Pattern pattern, String notFound) {
+        Matcher matcher = pattern.matcher(analyse);
+        if (matcher.find()) {
+            return matcher.group(1).replace("\\n", " ").replaceAll("\\s+", " ").trim();
+        }
+        return notFound;
+    }
+
+    private static List<String> getItems(String content, Pattern pattern) {
+        List<String> items = new ArrayList<>();
+        Matcher matcher = pattern.matcher(content);
+
+        if (matcher.find()) {
+            String[] pros = matcher.group(1).replace("\\n", " ").replaceAll("\\s+", " ").trim().split(",");
+            for (String item : pros) {
+                String capitalized = Character.toUpperCase(item.trim().charAt(0)) +
+                        (item.trim().length() > 1 ? item.trim().substring(1) : "");
+                items.add(capitalized);
+            }
+        } else {
+            items.add("Not found");
+        }
+
+        return items;
+    }
+}
@@ -0,0 +1,322 @@
+package io.github.bigpig.back.util;
+
+import io.github.bigpig.back.exceptions.DeadlineExceededException;
+import io.github.bigpig.back.exceptions.FetchDataException;
+import io.github.bigpig.back.exceptions.UpstreamUnavailableException;
+import io.github.bigpig.back.resilience.CancellationScope;
+import io.github.bigpig.back.resilience.Deadline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestCoalescerTest {
+
+    private static final int CALLERS = 10;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RequestCoalescer requestCoalescer = new RequestCoalescer(meterRegistry);
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private double collapsed(String function) {
+        return meterRegistry.counter(RequestCoalescer.COLLAPSED_CALLS_METRIC, "function", function).count();
+    }
+
+    private double cancelled(String function) {
+        return meterRegistry.counter(RequestCoalescer.CANCELLED_CALLS_METRIC, "function", function).count();
+    }
+
+    /**
+     * Starts one call and keeps it running until {@code release} opens, then submits
+     * the other callers and waits until all of them joined the flight.
+     */
+    private <T> List<Future<T>> concurrentCalls(Supplier<T> call, CountDownLatch release) throws Exception {
+        List<Future<T>> results = new ArrayList<>();
+        CountDownLatch started = new CountDownLatch(1);
+        results.add(executor.submit(() -> requestCoalescer.execute("AI_ANALYSE", "AAPL", () -> {
+            started.countDown();
+            awaitQuietly(release);
+            return call.get();
+        })));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < CALLERS; i++) {
+            results.add(executor.submit(() -> requestCoalescer.execute("AI_ANALYSE", "aapl", call)));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (collapsed("AI_ANALYSE") < CALLERS - 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+        return results;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    @DisplayName("execute should run one upstream call for concurrent identical requests")
+    void execute_ConcurrentCalls_ShareOneFlight() throws Exception {
+        // Arrange
+        AtomicInteger upstreamCalls = new AtomicInteger();
+
+        // Act
+        List<Future<String>> results = concurrentCalls(() -> "analysis-" + upstreamCalls.incrementAndGet(),
+                new CountDownLatch(1));
+
+        // Assert
+        for (Future<String> result : results) {
+            assertEquals("analysis-1", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(CALLERS - 1, collapsed("AI_ANALYSE"));
+        assertEquals(0, requestCoalescer.inFlightCount());
+    }
+
+    @Test
+    @DisplayName("execute should pass the upstream failure to every waiting caller")
+    void execute_ConcurrentCalls_ShareFailure() throws Exception {
+        // Act
+        List<Future<String>> results = concurrentCalls(() -> {
+            throw new FetchDataException("Failed to fetch analyse: AAPL");
+        }, new CountDownLatch(1));
+
+        // Assert
+        for (Future<String> result : results) {
+            Exception ex = assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(FetchDataException.class, ex.getCause());
+        }
+        assertEquals(0, requestCoalescer.inFlightCount());
+    }
+
+    @Test
+    @DisplayName("execute should start a new call once the previous one has finished")
+    void execute_SequentialCalls_NotCoalesced() {
+        // Arrange
+        AtomicInteger upstreamCalls = new AtomicInteger();
+
+        // Act
+        requestCoalescer.execute("OVERVIEW", "AAPL", upstreamCalls::incrementAndGet);
+        requestCoalescer.execute("OVERVIEW", "AAPL", upstreamCalls::incrementAndGet);
+
+        // Assert
+        assertEquals(2, upstreamCalls.get());
+        assertEquals(0, collapsed("OVERVIEW"));
+    }
+
+    @Test
+    @DisplayName("execute should keep different functions and tickers apart")
+    void execute_DifferentKeys_NotCoalesced() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(3);
+        Supplier<String> call = () -> {
+            started.countDown();
+            awaitQuietly(release);
+            return "done";
+        };
+
+        // Act
+        List<Future<String>> results = List.of(
+                executor.submit(() -> requestCoalescer.execute("OVERVIEW", "AAPL", call)),
+                executor.submit(() -> requestCoalescer.execute("OVERVIEW", "MSFT", call)),
+                executor.submit(() -> requestCoalescer.execute("TIME_SERIES_DAILY", "AAPL", call)));
+
+        // Assert
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(3, requestCoalescer.inFlightCount());
+        release.countDown();
+        for (Future<String> result : results) {
+            assertEquals("done", result.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    @DisplayName("executeAsync should keep the call running for callers still waiting when one gives up")
+    void executeAsync_OneCallerCancels_OthersKeepResult() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        Supplier<String> call = () -> {
+            awaitQuietly(release);
+            return "analysis-" + upstreamCalls.incrementAndGet();
+        };
+        CompletableFuture<String> leaving = requestCoalescer.executeAsync("AI_ANALYSE", "AAPL", call, executor);
+        CompletableFuture<String> staying = requestCoalescer.executeAsync("AI_ANALYSE", "aapl", call, executor);
+
+        // Act
+        leaving.cancel(false);
+        release.countDown();
+
+        // Assert
+        assertEquals("analysis-1", staying.get(5, TimeUnit.SECONDS));
+        assertTrue(leaving.isCancelled());
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(1, collapsed("AI_ANALYSE"));
+        assertEquals(0, cancelled("AI_ANALYSE"));
+    }
+
+    @Test
+    @DisplayName("executeAsync should abort the call once every caller has given up")
+    void executeAsync_AllCallersCancel_AbortsCall() throws Exception {
+        // Arrange
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch aborted = new CountDownLatch(1);
+        Supplier<String> call = () -> {
+            CancellationScope.register(aborted::countDown);
+            started.countDown();
+            awaitQuietly(aborted);
+            throw new ResourceAccessException("Request aborted");
+        };
+        List<CompletableFuture<String>> callers = List.of(
+                requestCoalescer.executeAsync("AI_ANALYSE", "AAPL", call, executor),
+                requestCoalescer.executeAsync("AI_ANALYSE", "AAPL", call, executor));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Act
+        callers.forEach(caller -> caller.cancel(false));
+
+        // Assert
+        assertTrue(aborted.await(5, TimeUnit.SECONDS));
+        assertEquals(1, cancelled("AI_ANALYSE"));
+        assertEquals("fresh", requestCoalescer.executeAsync("AI_ANALYSE", "AAPL", () -> "fresh", executor)
+                .get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("executeAsync should skip a call every caller gave up on and start afresh for the next caller")
+    void executeAsync_CancelledBeforeStart_SkipsCall() {
+        // Arrange
+        List<Runnable> queued = new ArrayList<>();
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        CompletableFuture<Integer> caller =
+                requestCoalescer.executeAsync("OVERVIEW", "AAPL", upstreamCalls::incrementAndGet, queued::add);
+
+        // Act
+        caller.cancel(false);
+        CompletableFuture<Integer> next =
+                requestCoalescer.executeAsync("OVERVIEW", "AAPL", upstreamCalls::incrementAndGet, queued::add);
+        queued.forEach(Runnable::run);
+
+        // Assert
+        assertEquals(1, next.join());
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(0, requestCoalescer.inFlightCount());
+    }
+
+    @Test
+    @DisplayName("executeAsync should fail with 503 and start afresh when the executor rejects the call")
+    void executeAsync_ExecutorRejects_FailsUnavailable() throws Exception {
+        // Arrange
+        AtomicInteger upstreamCalls = new AtomicInteger();
+
+        // Act
+        CompletableFuture<Integer> rejected = requestCoalescer.executeAsync("AI_ANALYSE", "AAPL",
+                upstreamCalls::incrementAndGet, task -> {
+                    throw new RejectedExecutionException("saturated");
+                });
+
+        // Assert
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> rejected.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(UpstreamUnavailableException.class, ex.getCause());
+        assertEquals(0, upstreamCalls.get());
+        assertEquals(0, requestCoalescer.inFlightCount());
+        assertEquals(1, requestCoalescer.executeAsync("AI_ANALYSE", "AAPL", upstreamCalls::incrementAndGet, executor)
+                .get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("execute should keep an asynchronous call running after its only asynchronous caller gives up")
+    void execute_JoinsAsyncCall_KeepsItAlive() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> async = requestCoalescer.executeAsync("OVERVIEW", "AAPL", () -> {
+            awaitQuietly(release);
+            return "overview";
+        }, executor);
+        Future<String> sync = executor.submit(() -> requestCoalescer.execute("OVERVIEW", "AAPL", () -> "other"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (collapsed("OVERVIEW") < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        // Act
+        async.cancel(false);
+        release.countDown();
+
+        // Assert
+        assertEquals("overview", sync.get(5, TimeUnit.SECONDS));
+        assertEquals(0, cancelled("OVERVIEW"));
+    }
+
+    @Test
+    @DisplayName("executeAsync should run the call until the latest deadline of its callers")
+    void executeAsync_RunsUntilLatestCallerDeadline() {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<Duration> call = () -> {
+            awaitQuietly(release);
+            return Deadline.current().remaining();
+        };
+        CompletableFuture<Duration> starter = Deadline.after(Duration.ofMillis(50))
+                .call(() -> requestCoalescer.executeAsync("OVERVIEW", "AAPL", call, executor));
+
+        // Act
+        CompletableFuture<Duration> joiner = Deadline.after(Duration.ofMinutes(1))
+                .call(() -> requestCoalescer.executeAsync("OVERVIEW", "AAPL", call, executor));
+        release.countDown();
+
+        // Assert
+        assertTrue(joiner.join().compareTo(Duration.ofSeconds(59)) > 0);
+        assertSame(starter.join(), joiner.join());
+    }
+
+    @Test
+    @DisplayName("execute should stop waiting for a shared call once the caller's deadline has passed")
+    void execute_DeadlinePasses_GivesUp() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> async = requestCoalescer.executeAsync("OVERVIEW", "AAPL", () -> {
+            awaitQuietly(release);
+            return "overview";
+        }, executor);
+
+        // Act
+        DeadlineExceededException ex = assertThrows(DeadlineExceededException.class, () -> Deadline
+                .after(Duration.ofMillis(50))
+                .call(() -> requestCoalescer.execute("OVERVIEW", "AAPL", () -> "other")));
+        async.cancel(false);
+
+        // Assert
+        assertEquals("Request deadline passed waiting for OVERVIEW of AAPL", ex.getMessage());
+        assertEquals(1, collapsed("OVERVIEW"));
+        assertEquals(1, cancelled("OVERVIEW"));
+        release.countDown();
+    }
+}
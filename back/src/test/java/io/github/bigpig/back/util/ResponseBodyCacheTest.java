@@ -0,0 +1,98 @@
+package io.github.bigpig.back.util;
+
+import io.github.bigpig.back.dto.PointDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseBodyCacheTest {
+
+    private static final String KEY = "chart-info:AAPL:null:null:null";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ResponseBodyCache responseBodyCache = new ResponseBodyCache(
+            Jackson2ObjectMapperBuilder.json().build(), meterRegistry, 1 << 20, 64);
+
+    private final AtomicInteger serializations = new AtomicInteger();
+
+    private Supplier<Object> points(double price) {
+        return () -> {
+            serializations.incrementAndGet();
+            return List.of(new PointDto("2024-01-22", price));
+        };
+    }
+
+    private ResponseEntity<byte[]> render(String eTag, Supplier<?> value) {
+        return responseBodyCache.render(ResponseEntity.ok(), KEY, eTag, value, null);
+    }
+
+    @Test
+    @DisplayName("render should serve the stored bytes while the entity tag is unchanged")
+    void render_SameTag_ServesStoredBody() {
+        // Act
+        ResponseEntity<byte[]> first = render("\"a\"", points(155.0));
+        ResponseEntity<byte[]> second = render("\"a\"", points(155.0));
+
+        // Assert
+        assertEquals("[{\"day\":\"2024-01-22\",\"val\":155.0}]", new String(second.getBody()));
+        assertSame(first.getBody(), second.getBody());
+        assertEquals("\"a\"", second.getHeaders().getETag());
+        assertEquals(1, serializations.get());
+        assertEquals(1, meterRegistry.get("cache.gets").tags("cache", ResponseBodyCache.CACHE_NAME, "result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("render should render a new body once the data behind the key changes")
+    void render_ChangedTag_RendersNewBody() {
+        // Arrange
+        render("\"a\"", points(155.0));
+
+        // Act
+        ResponseEntity<byte[]> changed = render("\"b\"", points(156.0));
+
+        // Assert
+        assertEquals("[{\"day\":\"2024-01-22\",\"val\":156.0}]", new String(changed.getBody()));
+        assertEquals("\"b\"", changed.getHeaders().getETag());
+        assertEquals(2, serializations.get());
+    }
+
+    @Test
+    @DisplayName("render should not compress bodies below the minimum size")
+    void render_SmallBody_NotCompressed() {
+        // Act
+        ResponseEntity<byte[]> response = responseBodyCache.render(ResponseEntity.ok(), KEY, "\"a\"",
+                () -> List.of(), "gzip");
+
+        // Assert
+        assertEquals("[]", new String(response.getBody()));
+        assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    @DisplayName("render should fail when the value cannot be serialized")
+    void render_UnserializableValue_Throws() {
+        assertThrows(IllegalStateException.class, () -> render("\"a\"", Object::new));
+    }
+
+    @Test
+    @DisplayName("acceptsGzip should honour the quality of the gzip coding")
+    void acceptsGzip_ParsesAcceptEncoding() {
+        assertTrue(ResponseBodyCache.acceptsGzip("gzip, deflate, br"));
+        assertTrue(ResponseBodyCache.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertTrue(ResponseBodyCache.acceptsGzip("gzip;level=1"));
+        assertFalse(ResponseBodyCache.acceptsGzip("gzip;q=0"));
+        assertFalse(ResponseBodyCache.acceptsGzip("gzip;q=x"));
+        assertFalse(ResponseBodyCache.acceptsGzip("identity"));
+        assertFalse(ResponseBodyCache.acceptsGzip(null));
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.bigpig.back.util;
+
+import io.github.bigpig.back.models.PriceSeries;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeriesDownsamplerTest {
+
+    private final SeriesDownsampler downsampler = new SeriesDownsampler();
+
+    private static PriceSeries series(double... prices) {
+        int[] days = new int[prices.length];
+        for (int i = 0; i < days.length; i++) {
+            days[i] = 19000 + i;
+        }
+        return PriceSeries.of(days, prices);
+    }
+
+    @Test
+    @DisplayName("downsample should return the series unchanged when it already fits")
+    void downsample_ShortSeries_ReturnsSameSeries() {
+        PriceSeries series = series(1, 2, 3);
+
+        assertSame(series, downsampler.downsample(series, 3));
+        assertSame(series, downsampler.downsample(series, 500));
+    }
+
+    @Test
+    @DisplayName("downsample should keep exactly maxPoints including first and last")
+    void downsample_LongSeries_KeepsEndpoints() {
+        // Arrange
+        double[] prices = new double[1000];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = 100 + Math.sin(i / 10.0) * 10;
+        }
+        PriceSeries series = series(prices);
+
+        // Act
+        PriceSeries result = downsampler.downsample(series, 50);
+
+        // Assert
+        assertEquals(50, result.size());
+        assertEquals(series.epochDayAt(0), result.epochDayAt(0));
+        assertEquals(series.epochDayAt(999), result.epochDayAt(49));
+        for (int i = 1; i < result.size(); i++) {
+            assertTrue(result.epochDayAt(i) > result.epochDayAt(i - 1));
+        }
+    }
+
+    @Test
+    @DisplayName("downsample should keep spikes that a plain stride would drop")
+    void downsample_KeepsSpike() {
+        // Arrange
+        double[] prices = new double[101];
+        java.util.Arrays.fill(prices, 10.0);
+        prices[37] = 90.0;
+        PriceSeries series = series(prices);
+
+        // Act
+        PriceSeries result = downsampler.downsample(series, 10);
+
+        // Assert
+        boolean spikeKept = false;
+        for (int i = 0; i < result.size(); i++) {
+            spikeKept |= result.priceAt(i) == 90.0;
+        }
+        assertTrue(spikeKept);
+    }
+
+    @Test
+    @DisplayName("downsample should reject fewer than three points")
+    void downsample_TooFewPoints_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> downsampler.downsample(series(1, 2, 3, 4), 2));
+    }
+
+    @Test
+    @DisplayName("slice should keep the inclusive date range")
+    void slice_InclusiveRange() {
+        // Arrange
+        PriceSeries series = series(1, 2, 3, 4, 5);
+
+        // Act & Assert
+        PriceSeries sliced = series.slice(series.dateAt(1), series.dateAt(3));
+        assertEquals(3, sliced.size());
+        assertEquals(2.0, sliced.priceAt(0));
+        assertEquals(4.0, sliced.priceAt(2));
+        assertSame(series, series.slice(null, null));
+        assertTrue(series.slice(series.dateAt(4).plusDays(1), null).isEmpty());
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.bigpig.back.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TickerPopularityTest {
+
+    private final TickerPopularity tickerPopularity = new TickerPopularity(3);
+
+    private void record(String ticker, int times) {
+        for (int i = 0; i < times; i++) {
+            tickerPopularity.record(ticker);
+        }
+    }
+
+    @Test
+    @DisplayName("hottest should rank tickers by request count regardless of case")
+    void hottest_RanksByCount() {
+        // Arrange
+        record("msft", 2);
+        record("AAPL", 3);
+        record("nvda", 1);
+        record("MSFT", 2);
+
+        // Act & Assert
+        assertEquals(List.of("MSFT", "AAPL"), tickerPopularity.hottest(2));
+    }
+
+    @Test
+    @DisplayName("decay should halve counts and forget tickers nobody asks for anymore")
+    void decay_HalvesAndDropsCold() {
+        // Arrange
+        record("AAPL", 4);
+        record("MSFT", 1);
+
+        // Act
+        tickerPopularity.decay();
+        record("NVDA", 3);
+
+        // Assert
+        assertEquals(List.of("NVDA", "AAPL"), tickerPopularity.hottest(5));
+    }
+
+    @Test
+    @DisplayName("record should stop tracking new tickers at the limit but keep counting known ones")
+    void record_AtLimit_IgnoresNewTickers() {
+        // Arrange
+        record("AAPL", 1);
+        record("MSFT", 1);
+        record("NVDA", 1);
+
+        // Act
+        record("TSLA", 5);
+        record("NVDA", 2);
+
+        // Assert
+        List<String> hottest = tickerPopularity.hottest(5);
+        assertEquals(3, hottest.size());
+        assertEquals("NVDA", hottest.get(0));
+        assertFalse(hottest.contains("TSLA"));
+    }
+}
@@ -0,0 +1,248 @@
+package io.github.bigpig.back.util;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import io.github.bigpig.back.models.PriceBar;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeSeriesDecoderTest {
+
+    // About 20 years of daily bars, the size of an outputsize=full response
+    private static final int FULL_HISTORY_BARS = 5000;
+    private static final LocalDate NEWEST = LocalDate.parse("2024-01-19");
+
+    private static byte[] fullHistory;
+
+    private final TimeSeriesDecoder decoder = new TimeSeriesDecoder();
+
+    @BeforeAll
+    static void recordFixture() {
+        fullHistory = timeSeriesDaily(FULL_HISTORY_BARS).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Builds a TIME_SERIES_DAILY payload in the exact layout Alpha Vantage sends,
+     * newest bar first, with a deterministic random walk for prices.
+     */
+    static String timeSeriesDaily(int bars) {
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder(bars * 160);
+        json.append("""
+                {
+                    "Meta Data": {
+                        "1. Information": "Daily Prices (open, high, low, close) and Volumes",
+                        "2. Symbol": "IBM",
+                        "3. Last Refreshed": "2024-01-19",
+                        "4. Output Size": "Full size",
+                        "5. Time Zone": "US/Eastern"
+                    },
+                    "Time Series (Daily)": {
+                """);
+        double close = 150.0;
+        LocalDate date = NEWEST;
+        for (int i = 0; i < bars; i++) {
+            double open = close;
+            close = Math.max(1.0, open + random.nextGaussian() * 2.0);
+            double high = Math.max(open, close) + random.nextDouble();
+            double low = Math.min(open, close) - random.nextDouble();
+            json.append(String.format(Locale.ROOT, """
+                            "%s": {
+                                "1. open": "%.4f",
+                                "2. high": "%.4f",
+                                "3. low": "%.4f",
+                                "4. close": "%.4f",
+                                "5. volume": "%d"
+                            }%s
+                    """, date, open, high, low, close, 1_000_000 + random.nextInt(9_000_000),
+                    i == bars - 1 ? "" : ","));
+            do {
+                date = date.minusDays(1);
+            } while (!MarketCalendar.isTradingDay(date));
+        }
+        json.append("    }\n}\n");
+        return json.toString();
+    }
+
+    private List<PriceBar> decode(byte[] json, LocalDate after) throws IOException {
+        return decoder.decode(new ByteArrayInputStream(json), "IBM", after, FULL_HISTORY_BARS);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getCurrentThreadAllocatedBytes();
+    }
+
+    @Test
+    @DisplayName("decode should return bars in chronological order with parsed high and low")
+    void decode_ReturnsChronologicalBars() throws IOException {
+        // Arrange
+        String json = """
+            {
+                "Meta Data": { "2. Symbol": "IBM" },
+                "Time Series (Daily)": {
+                    "2024-01-19": { "1. open": "150.0000", "2. high": "155.1234", "3. low": "148.5678" },
+                    "2024-01-18": { "2. high": "152.0000", "3. low": "147.0000", "5. volume": "950000" }
+                }
+            }
+            """;
+
+        // Act
+        List<PriceBar> bars = decode(json.getBytes(StandardCharsets.UTF_8), null);
+
+        // Assert
+        assertEquals(List.of(
+                new PriceBar("IBM", LocalDate.parse("2024-01-18"), 152.0, 147.0),
+                new PriceBar("IBM", LocalDate.parse("2024-01-19"), 155.1234, 148.5678)
+        ), bars);
+    }
+
+    @Test
+    @DisplayName("decode should parse prices exactly like Double.parseDouble")
+    void decode_ParsesPricesExactly() throws IOException {
+        // Arrange
+        String json = """
+            { "Time Series (Daily)": {
+                "2024-01-19": { "2. high": "0.1000", "3. low": "123456.7891" },
+                "2024-01-18": { "2. high": "1e2", "3. low": 99.5 }
+            } }
+            """;
+
+        // Act
+        List<PriceBar> bars = decode(json.getBytes(StandardCharsets.UTF_8), null);
+
+        // Assert
+        assertEquals(100.0, bars.get(0).getHigh());
+        assertEquals(99.5, bars.get(0).getLow());
+        assertEquals(Double.parseDouble("0.1000"), bars.get(1).getHigh());
+        assertEquals(Double.parseDouble("123456.7891"), bars.get(1).getLow());
+    }
+
+    @Test
+    @DisplayName("decode should skip bars up to and including the given date")
+    void decode_WithAfter_SkipsKnownBars() throws IOException {
+        // Act
+        List<PriceBar> bars = decode(fullHistory, LocalDate.parse("2024-01-17"));
+
+        // Assert
+        assertEquals(2, bars.size());
+        assertEquals(LocalDate.parse("2024-01-18"), bars.get(0).getTradeDate());
+        assertEquals(NEWEST, bars.get(1).getTradeDate());
+    }
+
+    @Test
+    @DisplayName("decode should sort bars that are not listed newest first")
+    void decode_UnorderedBars_SortsChronologically() throws IOException {
+        // Arrange
+        String json = """
+            { "Time Series (Daily)": {
+                "2024-01-18": { "2. high": "2", "3. low": "1" },
+                "2024-01-19": { "2. high": "4", "3. low": "3" },
+                "2024-01-17": { "2. high": "6", "3. low": "5" }
+            } }
+            """;
+
+        // Act
+        List<PriceBar> bars = decode(json.getBytes(StandardCharsets.UTF_8), null);
+
+        // Assert
+        assertEquals(List.of("2024-01-17", "2024-01-18", "2024-01-19"),
+                bars.stream().map(bar -> bar.getTradeDate().toString()).toList());
+    }
+
+    @Test
+    @DisplayName("decode should fail when the time series is missing")
+    void decode_MissingTimeSeries_Throws() {
+        // Arrange
+        byte[] json = "{ \"Note\": \"Thank you for using Alpha Vantage!\" }".getBytes(StandardCharsets.UTF_8);
+
+        // Act & Assert
+        assertThrows(JsonParseException.class, () -> decode(json, null));
+    }
+
+    @Test
+    @DisplayName("decode should fail when the body or the time series is not an object")
+    void decode_NotAnObject_Throws() {
+        // Arrange
+        byte[] array = "[]".getBytes(StandardCharsets.UTF_8);
+        byte[] series = "{ \"Time Series (Daily)\": [] }".getBytes(StandardCharsets.UTF_8);
+        byte[] bar = "{ \"Time Series (Daily)\": { \"2024-01-19\": \"1.0\" } }".getBytes(StandardCharsets.UTF_8);
+
+        // Act & Assert
+        assertThrows(JsonParseException.class, () -> decode(array, null));
+        assertThrows(JsonParseException.class, () -> decode(series, null));
+        assertThrows(JsonParseException.class, () -> decode(bar, null));
+    }
+
+    @Test
+    @DisplayName("decode should fail when a bar has no low price")
+    void decode_MissingLow_Throws() {
+        // Arrange
+        byte[] json = "{ \"Time Series (Daily)\": { \"2024-01-19\": { \"2. high\": \"1.0\" } } }"
+                .getBytes(StandardCharsets.UTF_8);
+
+        // Act & Assert
+        assertThrows(JsonParseException.class, () -> decode(json, null));
+    }
+
+    @Test
+    @DisplayName("decode should keep allocation for a full history below the payload size")
+    void decode_FullHistory_AllocationBounded() throws IOException {
+        // Arrange - warm up class loading and JIT before measuring
+        for (int i = 0; i < 5; i++) {
+            decode(fullHistory, null);
+        }
+
+        // Act
+        long before = allocatedBytes();
+        List<PriceBar> bars = decode(fullHistory, null);
+        long allocated = allocatedBytes() - before;
+
+        // Assert - one small entity per bar, no tree and no copy of the payload
+        assertEquals(FULL_HISTORY_BARS, bars.size());
+        assertTrue(allocated < fullHistory.length / 2,
+                () -> String.format("allocated %d bytes for a %d byte payload", allocated, fullHistory.length));
+    }
+
+    @Test
+    @DisplayName("decode should allocate almost nothing for bars that are already stored")
+    void decode_IncrementalUpdate_AllocationBounded() throws IOException {
+        // Arrange
+        LocalDate after = LocalDate.parse("2024-01-18");
+        for (int i = 0; i < 5; i++) {
+            decode(fullHistory, after);
+        }
+
+        // Act
+        long before = allocatedBytes();
+        List<PriceBar> bars = decode(fullHistory, after);
+        long allocated = allocatedBytes() - before;
+
+        // Assert
+        assertEquals(1, bars.size());
+        assertTrue(allocated < fullHistory.length / 4,
+                () -> String.format("allocated %d bytes for a %d byte payload", allocated, fullHistory.length));
+    }
+
+    @Test
+    @DisplayName("decode should parse a full history quickly")
+    void decode_FullHistory_TimeBounded() {
+        assertTimeout(Duration.ofSeconds(2), () -> {
+            for (int i = 0; i < 10; i++) {
+                assertEquals(FULL_HISTORY_BARS, decode(fullHistory, null).size());
+            }
+        });
+    }
+}
@@ -0,0 +1,175 @@
+package io.github.bigpig.back.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.bigpig.back.resilience.Deadline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamHttpRequestFactoryTest {
+
+    private static final String BODY = "{\"Symbol\":\"AAPL\",\"Name\":\"Apple Inc.\"}";
+
+    private final Set<SocketAddress> connections = ConcurrentHashMap.newKeySet();
+    private final Set<String> acceptEncodings = ConcurrentHashMap.newKeySet();
+
+    private HttpServer server;
+    private String fastUrl;
+    private String slowUrl;
+    private UpstreamHttpRequestFactory requestFactory;
+    private RestClient restClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/fast", this::respond);
+        server.createContext("/slow", exchange -> {
+            sleep(Duration.ofMillis(500));
+            respond(exchange);
+        });
+        server.start();
+
+        // Host settings match on scheme, host and port, so the slow path gets its own host name
+        int port = server.getAddress().getPort();
+        fastUrl = "http://localhost:" + port + "/fast";
+        slowUrl = "http://127.0.0.1:" + port + "/slow";
+        requestFactory = new UpstreamHttpRequestFactory(10, Duration.ofSeconds(1), Duration.ofSeconds(5),
+                Duration.ofSeconds(30), List.of(
+                new UpstreamHttpRequestFactory.HostSettings(fastUrl, 3, Duration.ofSeconds(5)),
+                new UpstreamHttpRequestFactory.HostSettings(slowUrl, 1, Duration.ofMillis(100))));
+        restClient = RestClient.builder().requestFactory(requestFactory).build();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        requestFactory.destroy();
+        server.stop(0);
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        connections.add(exchange.getRemoteAddress());
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        acceptEncodings.add(String.valueOf(acceptEncoding));
+
+        byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(body);
+            }
+            body = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    @DisplayName("requests to the same host should reuse one kept-alive connection")
+    void sequentialRequests_ReuseConnection() {
+        // Act
+        for (int i = 0; i < 5; i++) {
+            assertEquals(BODY, restClient.get().uri(fastUrl).retrieve().body(String.class));
+        }
+
+        // Assert
+        assertEquals(1, connections.size());
+        assertEquals(1, requestFactory.availableConnections(fastUrl));
+    }
+
+    @Test
+    @DisplayName("responses should be requested and decoded as gzip")
+    void responses_AreGzipDecoded() {
+        // Act
+        String body = restClient.get().uri(fastUrl).retrieve().body(String.class);
+
+        // Assert
+        assertEquals(BODY, body);
+        assertTrue(acceptEncodings.iterator().next().contains("gzip"));
+    }
+
+    @Test
+    @DisplayName("each host should use its own response timeout")
+    void slowHost_TimesOutWithItsOwnTimeout() {
+        // Act & Assert
+        ResourceAccessException ex = assertThrows(ResourceAccessException.class,
+                () -> restClient.get().uri(slowUrl).retrieve().body(String.class));
+        assertInstanceOf(SocketTimeoutException.class, ex.getCause());
+        assertEquals(BODY, restClient.get().uri(fastUrl).retrieve().body(String.class));
+    }
+
+    @Test
+    @DisplayName("a request should wait for its answer no longer than the deadline leaves")
+    void deadline_CutsResponseTimeout() {
+        // Arrange - this host allows 5 s, the server answers after 500 ms
+        String slowOnFastHost = fastUrl.replace("/fast", "/slow");
+
+        // Act
+        long start = System.nanoTime();
+        ResourceAccessException ex = assertThrows(ResourceAccessException.class, () -> Deadline
+                .after(Duration.ofMillis(100))
+                .call(() -> restClient.get().uri(slowOnFastHost).retrieve().body(String.class)));
+
+        // Assert
+        assertInstanceOf(SocketTimeoutException.class, ex.getCause());
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofMillis(450)) < 0);
+        assertEquals(BODY, restClient.get().uri(slowOnFastHost).retrieve().body(String.class));
+    }
+
+    @Test
+    @DisplayName("each host should get its own connection limit")
+    void hosts_HaveOwnConnectionLimits() {
+        assertEquals(3, requestFactory.maxConnections(fastUrl));
+        assertEquals(1, requestFactory.maxConnections(slowUrl));
+    }
+
+    @Test
+    @DisplayName("default constructor should register limits for the known upstream hosts")
+    void defaultHosts_HaveConfiguredLimits() throws Exception {
+        // Arrange
+        UpstreamHttpRequestFactory defaults = new UpstreamHttpRequestFactory(100, Duration.ofSeconds(2),
+                Duration.ofSeconds(10), Duration.ofSeconds(30), 20, Duration.ofSeconds(10), 8,
+                Duration.ofSeconds(90), 10, Duration.ofSeconds(5), "https://oauth2.googleapis.com/token",
+                "https://www.googleapis.com/oauth2/v3/userinfo");
+
+        // Act & Assert
+        try {
+            assertEquals(20, defaults.maxConnections("https://www.alphavantage.co/query?function=OVERVIEW"));
+            assertEquals(8, defaults.maxConnections(UrlBuilder.AI_ANALYSE_URL));
+            assertEquals(10, defaults.maxConnections("https://oauth2.googleapis.com/token"));
+            assertEquals(10, defaults.maxConnections("https://www.googleapis.com/oauth2/v3/userinfo"));
+        } finally {
+            defaults.destroy();
+        }
+    }
+}
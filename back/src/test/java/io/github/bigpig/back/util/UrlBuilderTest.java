@@ -20,6 +20,14 @@ public class UrlBuilderTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    void buildAlphaVintageUrlWithOutputSizeTest() {
+        String expected = "https://www.alphavantage.co/query?function=TIME_SERIES_DAILY&symbol=IBM&apikey=demo"
+                + "&outputsize=compact";
+        String actual = urlBuilder.buildAlphaVintageUrl("IBM", "TIME_SERIES_DAILY", "compact");
+        assertEquals(expected, actual);
+    }
+
     @Test
     void buildAnalyseUrlTest() {
         String expected = "http://ai-analysis:9000/analyze";